@@ -2,10 +2,12 @@ package com.devops.springmongo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableMongoAuditing
+@EnableScheduling
+@EnableAsync
 public class SpringMongoApplication {
 
     public static void main(String[] args) {
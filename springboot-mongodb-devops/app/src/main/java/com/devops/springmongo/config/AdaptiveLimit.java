@@ -0,0 +1,98 @@
+package com.devops.springmongo.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to observed latency, after the gradient
+ * algorithm of Netflix's concurrency-limits.
+ *
+ * <p>A long-term moving average of response times stands in for latency
+ * without queueing. While samples stay within {@code tolerance} of it the
+ * limit grows by about its square root per sample, but only when at least
+ * half of it is in use, so an idle service does not inflate it. Slower
+ * samples scale the limit down by the ratio, and failed requests cut it by
+ * {@link #BACKOFF}. Changes are smoothed and bounded by min and max.
+ */
+final class AdaptiveLimit {
+
+    static final double BACKOFF = 0.9;
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+    private double estimatedLimit;
+    private double longRttNanos;
+
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max, were "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    /** Takes a slot if fewer than {@link #getLimit()} requests are in flight. */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** Returns a slot, feeding the request's latency and outcome into the limit. */
+    void release(long rttNanos, boolean failed) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        update(rttNanos, inFlightAtCompletion, failed);
+    }
+
+    /** Returns a slot without sampling, for requests whose latency says nothing about load. */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    synchronized void update(long rttNanos, int inFlightAtCompletion, boolean failed) {
+        double newLimit;
+        if (failed) {
+            newLimit = estimatedLimit * BACKOFF;
+        } else {
+            if (rttNanos <= 0) {
+                return;
+            }
+            longRttNanos = longRttNanos == 0 ? rttNanos : longRttNanos + (rttNanos - longRttNanos) / LONG_WINDOW;
+            // after a slow period the average is far above current latency; let it recover quickly
+            if (longRttNanos > 2 * rttNanos) {
+                longRttNanos *= 0.95;
+            }
+            if (inFlightAtCompletion < estimatedLimit / 2) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / rttNanos));
+            newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        }
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,193 @@
+package com.devops.springmongo.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for the user API. Each request class has its own
+ * {@link AdaptiveLimit} on concurrent requests, which adapts to observed
+ * latency. A request over its limit is turned away with 503 and
+ * {@code Retry-After} before it takes a database connection or a hashing
+ * slot. When MongoDB slows down, the service keeps serving what it can
+ * instead of blocking every Tomcat thread.
+ *
+ * <p>Budgets, by method and path: {@code write} is {@code POST /api/users},
+ * which pays for BCrypt; {@code bulk} is {@code POST /api/users/bulk}, which
+ * hashes a whole import and runs far longer than a single create, so it does
+ * not share that limit; {@code scan} is search and the active-user list and
+ * export; {@code read} is everything else, including lookups by id or
+ * {@code /batch} and the single round trip updates and deletes. Limits,
+ * in-flight requests and rejections are exported per budget as
+ * {@code http.admission.*}.
+ */
+@Component
+@Profile("!reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+    static final String USERS_PATH = "/api/users";
+
+    enum Budget { READ, SCAN, WRITE, BULK }
+
+    private final boolean enabled;
+    private final String retryAfter;
+    private final Map<Budget, AdaptiveLimit> limits = new EnumMap<>(Budget.class);
+    private final Map<Budget, Counter> rejections = new EnumMap<>(Budget.class);
+
+    public AdmissionControlFilter(MeterRegistry meterRegistry,
+                                  @Value("${app.admission.enabled:true}") boolean enabled,
+                                  @Value("${app.admission.retry-after:PT1S}") Duration retryAfter,
+                                  @Value("${app.admission.read.limit:50}") int readLimit,
+                                  @Value("${app.admission.read.min-limit:10}") int readMinLimit,
+                                  @Value("${app.admission.read.max-limit:200}") int readMaxLimit,
+                                  @Value("${app.admission.scan.limit:8}") int scanLimit,
+                                  @Value("${app.admission.scan.min-limit:2}") int scanMinLimit,
+                                  @Value("${app.admission.scan.max-limit:32}") int scanMaxLimit,
+                                  @Value("${app.admission.write.limit:16}") int writeLimit,
+                                  @Value("${app.admission.write.min-limit:2}") int writeMinLimit,
+                                  @Value("${app.admission.write.max-limit:64}") int writeMaxLimit,
+                                  @Value("${app.admission.bulk.limit:2}") int bulkLimit,
+                                  @Value("${app.admission.bulk.min-limit:1}") int bulkMinLimit,
+                                  @Value("${app.admission.bulk.max-limit:4}") int bulkMaxLimit) {
+        this.enabled = enabled;
+        this.retryAfter = Long.toString(Math.max(1, retryAfter.toSeconds()));
+        limits.put(Budget.READ, new AdaptiveLimit(readLimit, readMinLimit, readMaxLimit));
+        limits.put(Budget.SCAN, new AdaptiveLimit(scanLimit, scanMinLimit, scanMaxLimit));
+        limits.put(Budget.WRITE, new AdaptiveLimit(writeLimit, writeMinLimit, writeMaxLimit));
+        limits.put(Budget.BULK, new AdaptiveLimit(bulkLimit, bulkMinLimit, bulkMaxLimit));
+
+        limits.forEach((budget, limit) -> {
+            String tag = budget.name().toLowerCase();
+            Gauge.builder("http.admission.limit", limit, AdaptiveLimit::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .tag("budget", tag)
+                    .register(meterRegistry);
+            Gauge.builder("http.admission.inflight", limit, AdaptiveLimit::getInFlight)
+                    .description("Requests currently admitted")
+                    .tag("budget", tag)
+                    .register(meterRegistry);
+            rejections.put(budget, Counter.builder("http.admission.rejected")
+                    .description("Requests turned away with 503 because their budget was at its limit")
+                    .tag("budget", tag)
+                    .register(meterRegistry));
+        });
+    }
+
+    static Budget budget(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        if ("POST".equals(method) && path.equals(USERS_PATH)) {
+            return Budget.WRITE;
+        }
+        if ("POST".equals(method) && path.equals(USERS_PATH + "/bulk")) {
+            return Budget.BULK;
+        }
+        if ("GET".equals(method) && (path.startsWith(USERS_PATH + "/search") || path.startsWith(USERS_PATH + "/active"))) {
+            return Budget.SCAN;
+        }
+        return Budget.READ;
+    }
+
+    AdaptiveLimit limit(Budget budget) {
+        return limits.get(budget);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !enabled || "OPTIONS".equals(request.getMethod()) || !path.startsWith(USERS_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Budget budget = budget(request);
+        AdaptiveLimit limit = limits.get(budget);
+        if (!limit.tryAcquire()) {
+            rejections.get(budget).increment();
+            logger.debug("Rejected {} {}: {} budget at its limit of {}", request.getMethod(), request.getRequestURI(),
+                    budget.name().toLowerCase(), limit.getLimit());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Server is at capacity; retry later");
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            if (request.isAsyncStarted()) {
+                // a streamed export holds its slot until it ends, but its duration says nothing about load
+                request.getAsyncContext().addListener(new ReleaseOnCompletion(limit));
+            } else {
+                limit.release(System.nanoTime() - start, failed);
+            }
+        }
+    }
+
+    private static final class ReleaseOnCompletion implements AsyncListener {
+
+        private final AdaptiveLimit limit;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ReleaseOnCompletion(AdaptiveLimit limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limit.release();
+            }
+        }
+    }
+}
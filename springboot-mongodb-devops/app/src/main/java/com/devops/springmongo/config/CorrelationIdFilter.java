@@ -0,0 +1,96 @@
+package com.devops.springmongo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sets up the logging context for every request: reuses the caller's
+ * correlation id when it is well formed, otherwise generates one from
+ * {@link ThreadLocalRandom} (no shared SecureRandom as with
+ * {@code UUID.randomUUID()}), echoes it on the response and clears the
+ * MDC afterwards. Logs one timing line per request at DEBUG, or at WARN
+ * when the request exceeds the slow-request threshold.
+ */
+@Component
+@Profile("!reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CorrelationIdFilter extends OncePerRequestFilter {
+
+    public static final String CORRELATION_ID = "correlationId";
+    public static final String CORRELATION_ID_HEADER = "X-Correlation-Id";
+
+    private static final Logger logger = LoggerFactory.getLogger(CorrelationIdFilter.class);
+    private static final int MAX_INCOMING_LENGTH = 64;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    @Value("${app.logging.slow-request-threshold:PT1S}")
+    Duration slowRequestThreshold = Duration.ofSeconds(1);
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String correlationId = correlationId(request.getHeader(CORRELATION_ID_HEADER));
+        MDC.put(CORRELATION_ID, correlationId);
+        response.setHeader(CORRELATION_ID_HEADER, correlationId);
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= slowRequestThreshold.toNanos()) {
+                logger.warn("Slow request {} {} -> {} in {} ms", request.getMethod(), request.getRequestURI(),
+                        response.getStatus(), elapsed / 1_000_000);
+            } else if (logger.isDebugEnabled()) {
+                logger.debug("{} {} -> {} in {} us", request.getMethod(), request.getRequestURI(),
+                        response.getStatus(), elapsed / 1_000);
+            }
+            MDC.remove(CORRELATION_ID);
+        }
+    }
+
+    /** The incoming id when it is short and log-safe, otherwise a fresh 64-bit random id in hex. */
+    static String correlationId(String incoming) {
+        if (incoming != null && isLogSafe(incoming)) {
+            return incoming;
+        }
+        long bits = ThreadLocalRandom.current().nextLong();
+        char[] id = new char[16];
+        for (int i = id.length - 1; i >= 0; i--) {
+            id[i] = HEX[(int) (bits & 0xf)];
+            bits >>>= 4;
+        }
+        return new String(id);
+    }
+
+    private static boolean isLogSafe(String id) {
+        if (id.isEmpty() || id.length() > MAX_INCOMING_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.';
+            if (!safe) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,75 @@
+package com.devops.springmongo.config;
+
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserTombstone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the indexes declared on the entities once the application is
+ * ready, instead of while the mapping context starts, when
+ * {@code app.mongo.indexes.deferred=true}. Auto index creation costs a
+ * round trip per index before the first request can be served; on a
+ * database that already has them, which {@code deploy/init-mongo.js} sees
+ * to, every call is a no-op. Until it completes on a fresh database the
+ * unique username and email indexes are not yet enforced.
+ */
+@Component
+@Profile("!inmemory")
+public class DeferredIndexCreator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeferredIndexCreator.class);
+
+    // entities with @Indexed or @CompoundIndex declarations
+    static final List<Class<?>> INDEXED_ENTITIES = List.of(User.class, UserTombstone.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoMappingContext mappingContext;
+
+    @Value("${app.mongo.indexes.deferred:false}")
+    private boolean deferred;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (deferred) {
+            run();
+        }
+    }
+
+    public void run() {
+        long start = System.nanoTime();
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        int ensured = 0;
+        try {
+            for (Class<?> entity : INDEXED_ENTITIES) {
+                IndexOperations indexOps = mongoTemplate.indexOps(entity);
+                for (IndexDefinition index : resolver.resolveIndexFor(entity)) {
+                    indexOps.ensureIndex(index);
+                    ensured++;
+                }
+            }
+            logger.info("Ensured {} indexes in {} ms", ensured, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            logger.error("Deferred index creation failed after {} indexes: {}", ensured, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.devops.springmongo.config;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Defers creation of beans that no request path needs at startup, such as
+ * the OpenAPI document, until first use. A bean is made lazy when its class,
+ * or the class declaring its factory method, starts with one of
+ * {@code app.startup.lazy-packages}; the default list is empty.
+ *
+ * <p>This runs before any bean is created, so {@code @Value} is not
+ * available and the list is read from the environment. In an AOT-processed
+ * build it runs at build time and the lazy flags are compiled into the
+ * generated bean definitions.
+ */
+@Component
+public class LazyBeanPackages implements BeanFactoryPostProcessor, EnvironmentAware {
+
+    private List<String> prefixes = List.of();
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        String[] configured = environment.getProperty("app.startup.lazy-packages", String[].class, new String[0]);
+        this.prefixes = List.of(configured);
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        if (prefixes.isEmpty()) {
+            return;
+        }
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (definition.isSingleton() && !definition.isLazyInit() && matches(declaringClass(beanFactory, definition))) {
+                definition.setLazyInit(true);
+            }
+        }
+    }
+
+    private boolean matches(String className) {
+        return className != null && prefixes.stream().anyMatch(className::startsWith);
+    }
+
+    private static String declaringClass(ConfigurableListableBeanFactory beanFactory, BeanDefinition definition) {
+        String factoryBean = definition.getFactoryBeanName();
+        if (factoryBean != null && beanFactory.containsBeanDefinition(factoryBean)) {
+            return beanFactory.getBeanDefinition(factoryBean).getBeanClassName();
+        }
+        return definition.getBeanClassName();
+    }
+}
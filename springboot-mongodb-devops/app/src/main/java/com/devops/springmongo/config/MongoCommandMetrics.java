@@ -0,0 +1,126 @@
+package com.devops.springmongo.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Driver-level latency for every MongoDB command, tagged with the command,
+ * the collection and the repository method that issued it, so a slow HTTP
+ * request can be traced to the query behind it. The repository method is
+ * published by {@link RepositoryMetricsConfig} on the calling thread, which
+ * is the thread the synchronous driver reports {@code commandStarted} on.
+ */
+@Component
+public class MongoCommandMetrics implements CommandListener {
+
+    static final String UNKNOWN = "none";
+
+    private static final ThreadLocal<String> currentMethod = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Integer, Tags> inFlight = new ConcurrentHashMap<>();
+
+    public MongoCommandMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Marks the current thread as running {@code method} and returns the
+     * previous value for {@link #exit}. Nested calls keep the outermost name.
+     */
+    public static String enter(String method) {
+        String previous = currentMethod.get();
+        if (previous == null) {
+            currentMethod.set(method);
+        }
+        return previous;
+    }
+
+    public static void exit(String previous) {
+        if (previous == null) {
+            currentMethod.remove();
+        }
+    }
+
+    /** The repository method running on this thread, or {@value #UNKNOWN}. */
+    static String currentMethod() {
+        String method = currentMethod.get();
+        return method != null ? method : UNKNOWN;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String method = currentMethod.get();
+        inFlight.put(event.getRequestId(), Tags.of(
+                "command", event.getCommandName(),
+                "collection", collectionOf(event.getCommandName(), event.getCommand()),
+                "method", method != null ? method : UNKNOWN));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Tags tags = inFlight.remove(event.getRequestId());
+        if (tags == null) {
+            return;
+        }
+        timer(tags.and("status", "success")).record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+
+        int returned = batchSize(event.getResponse());
+        if (returned >= 0) {
+            DistributionSummary.builder("mongodb.command.docs.returned")
+                    .description("Documents returned per cursor batch")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(returned);
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Tags tags = inFlight.remove(event.getRequestId());
+        if (tags == null) {
+            return;
+        }
+        timer(tags.and("status", "failure")).record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(Tags tags) {
+        return Timer.builder("mongodb.command")
+                .description("MongoDB command latency as seen by the driver")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+    }
+
+    static String collectionOf(String commandName, BsonDocument command) {
+        BsonValue value = "getMore".equals(commandName) ? command.get("collection") : command.get(commandName);
+        return value != null && value.isString() ? value.asString().getValue() : UNKNOWN;
+    }
+
+    /** Size of firstBatch/nextBatch for cursor replies, or -1 for anything else. */
+    static int batchSize(BsonDocument response) {
+        BsonValue cursor = response.get("cursor");
+        if (cursor == null || !cursor.isDocument()) {
+            return -1;
+        }
+        BsonDocument document = cursor.asDocument();
+        BsonValue batch = document.containsKey("firstBatch") ? document.get("firstBatch") : document.get("nextBatch");
+        return batch != null && batch.isArray() ? batch.asArray().size() : -1;
+    }
+}
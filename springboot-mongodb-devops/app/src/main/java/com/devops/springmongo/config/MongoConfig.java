@@ -1,17 +1,180 @@
 package com.devops.springmongo.config;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.boot.autoconfigure.mongo.PropertiesMongoConnectionDetails;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
+import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.util.ClassUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
+@Profile("!inmemory")
+@EnableMongoAuditing
 public class MongoConfig extends AbstractMongoClientConfiguration {
 
+    private static final Logger logger = LoggerFactory.getLogger(MongoConfig.class);
+
     @Value("${spring.data.mongodb.database:devops_db}")
     private String databaseName;
 
+    // Unique username/email indexes back the single-round-trip create and update paths
+    @Value("${spring.data.mongodb.auto-index-creation:true}")
+    private boolean autoIndexCreation;
+
+    // Moves index creation after startup, see DeferredIndexCreator
+    @Value("${app.mongo.indexes.deferred:false}")
+    private boolean deferredIndexes;
+
+    @Value("${app.mongo.metrics.enabled:true}")
+    private boolean commandMetricsEnabled;
+
+    @Value("${app.mongo.pool.max-size:100}")
+    int poolMaxSize = 100;
+
+    @Value("${app.mongo.pool.min-size:0}")
+    int poolMinSize;
+
+    @Value("${app.mongo.pool.max-connecting:2}")
+    int poolMaxConnecting = 2;
+
+    @Value("${app.mongo.pool.max-wait-time:PT2M}")
+    Duration poolMaxWaitTime = Duration.ofMinutes(2);
+
+    @Value("${app.mongo.pool.max-idle-time:PT0S}")
+    Duration poolMaxIdleTime = Duration.ZERO;
+
+    @Value("${app.mongo.pool.max-life-time:PT0S}")
+    Duration poolMaxLifeTime = Duration.ZERO;
+
+    @Value("${app.mongo.socket.connect-timeout:PT10S}")
+    Duration connectTimeout = Duration.ofSeconds(10);
+
+    @Value("${app.mongo.socket.read-timeout:PT0S}")
+    Duration readTimeout = Duration.ZERO;
+
+    @Value("${app.mongo.compressors:}")
+    List<String> compressors = List.of();
+
+    @Autowired
+    private MongoProperties mongoProperties;
+
+    @Autowired
+    private MongoCommandMetrics mongoCommandMetrics;
+
+    @Autowired
+    private MongoReadRouting mongoReadRouting;
+
+    @Autowired
+    private QueryPlanAdvisor queryPlanAdvisor;
+
+    @Autowired
+    MongoPoolMetrics mongoPoolMetrics;
+
     @Override
     protected String getDatabaseName() {
         return databaseName;
     }
-}
\ No newline at end of file
+
+    /**
+     * Connects with spring.data.mongodb.* (uri, or host/port/credentials) and
+     * then applies app.mongo.* for the options the URI does not set.
+     */
+    @Override
+    protected void configureClientSettings(MongoClientSettings.Builder builder) {
+        ConnectionString uri = new PropertiesMongoConnectionDetails(mongoProperties).getConnectionString();
+        builder.applyConnectionString(uri);
+        applyPoolAndSocketSettings(builder, uri);
+
+        if (commandMetricsEnabled) {
+            builder.addCommandListener(mongoCommandMetrics);
+        }
+        builder.addCommandListener(mongoReadRouting);
+        builder.addCommandListener(queryPlanAdvisor);
+    }
+
+    /**
+     * Pool, socket and compression settings from app.mongo.*. An option given
+     * in {@code uri} (maxPoolSize, maxIdleTimeMS, connectTimeoutMS,
+     * compressors, ...) is left as the URI has it.
+     */
+    void applyPoolAndSocketSettings(MongoClientSettings.Builder builder, ConnectionString uri) {
+        builder.applyToConnectionPoolSettings(pool -> {
+            unlessInUri(uri.getMaxConnectionPoolSize(), "maxPoolSize", () -> pool.maxSize(poolMaxSize));
+            unlessInUri(uri.getMinConnectionPoolSize(), "minPoolSize", () -> pool.minSize(poolMinSize));
+            unlessInUri(uri.getMaxConnecting(), "maxConnecting", () -> pool.maxConnecting(poolMaxConnecting));
+            unlessInUri(uri.getMaxWaitTime(), "waitQueueTimeoutMS",
+                    () -> pool.maxWaitTime(poolMaxWaitTime.toMillis(), TimeUnit.MILLISECONDS));
+            unlessInUri(uri.getMaxConnectionIdleTime(), "maxIdleTimeMS",
+                    () -> pool.maxConnectionIdleTime(poolMaxIdleTime.toMillis(), TimeUnit.MILLISECONDS));
+            unlessInUri(uri.getMaxConnectionLifeTime(), "maxLifeTimeMS",
+                    () -> pool.maxConnectionLifeTime(poolMaxLifeTime.toMillis(), TimeUnit.MILLISECONDS));
+            pool.addConnectionPoolListener(mongoPoolMetrics);
+        }).applyToSocketSettings(socket -> {
+            unlessInUri(uri.getConnectTimeout(), "connectTimeoutMS",
+                    () -> socket.connectTimeout((int) connectTimeout.toMillis(), TimeUnit.MILLISECONDS));
+            unlessInUri(uri.getSocketTimeout(), "socketTimeoutMS",
+                    () -> socket.readTimeout((int) readTimeout.toMillis(), TimeUnit.MILLISECONDS));
+        });
+
+        List<MongoCompressor> enabled = compressors(compressors);
+        if (!uri.getCompressorList().isEmpty()) {
+            logger.info("Using compressors from the MongoDB URI; app.mongo.compressors is ignored");
+        } else if (!enabled.isEmpty()) {
+            builder.compressorList(enabled);
+        }
+    }
+
+    private static void unlessInUri(Object fromUri, String option, Runnable apply) {
+        if (fromUri == null) {
+            apply.run();
+        } else {
+            logger.info("Using {}={} from the MongoDB URI instead of app.mongo.*", option, fromUri);
+        }
+    }
+
+    /**
+     * Compressors in preference order. zlib is built into the JDK; zstd and
+     * snappy need zstd-jni or snappy-java on the classpath and are skipped
+     * with a warning otherwise.
+     */
+    static List<MongoCompressor> compressors(List<String> names) {
+        List<MongoCompressor> compressors = new ArrayList<>();
+        for (String name : names) {
+            switch (name.trim().toLowerCase()) {
+                case "" -> { }
+                case "zlib" -> compressors.add(MongoCompressor.createZlibCompressor());
+                case "zstd" -> addIfPresent(compressors, "com.github.luben.zstd.Zstd", MongoCompressor.createZstdCompressor());
+                case "snappy" -> addIfPresent(compressors, "org.xerial.snappy.Snappy", MongoCompressor.createSnappyCompressor());
+                default -> throw new IllegalArgumentException("Unknown MongoDB compressor: " + name);
+            }
+        }
+        return compressors;
+    }
+
+    private static void addIfPresent(List<MongoCompressor> compressors, String requiredClass, MongoCompressor compressor) {
+        if (ClassUtils.isPresent(requiredClass, MongoConfig.class.getClassLoader())) {
+            compressors.add(compressor);
+        } else {
+            logger.warn("MongoDB {} compression requested but {} is not on the classpath; skipping it",
+                    compressor.getName(), requiredClass);
+        }
+    }
+
+    @Override
+    protected boolean autoIndexCreation() {
+        return autoIndexCreation && !deferredIndexes;
+    }
+}
@@ -0,0 +1,151 @@
+package com.devops.springmongo.config;
+
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection pool telemetry per MongoDB server: open and checked-out
+ * connections against the configured maximum, threads waiting for a
+ * connection, checkout wait time, and connections created and closed.
+ * Checked-out close to max with a growing wait queue means the pool, not
+ * MongoDB, is the bottleneck.
+ */
+@Component
+public class MongoPoolMetrics implements ConnectionPoolListener {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<ServerId, Pool> pools = new ConcurrentHashMap<>();
+
+    public MongoPoolMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void connectionPoolCreated(ConnectionPoolCreatedEvent event) {
+        pools.computeIfAbsent(event.getServerId(), serverId -> new Pool(serverId, event.getSettings().getMaxSize()));
+    }
+
+    @Override
+    public void connectionPoolClosed(ConnectionPoolClosedEvent event) {
+        Pool pool = pools.remove(event.getServerId());
+        if (pool != null) {
+            pool.meters.forEach(meterRegistry::remove);
+        }
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        pool(event.getServerId()).waiting.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        Pool pool = pool(event.getConnectionId().getServerId());
+        pool.waiting.decrementAndGet();
+        pool.checkedOut.incrementAndGet();
+        pool.checkoutTimer.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        Pool pool = pool(event.getServerId());
+        pool.waiting.decrementAndGet();
+        Counter.builder("mongodb.pool.checkout.failures")
+                .description("Connection checkouts that failed, by reason (TIMEOUT means the pool was exhausted)")
+                .tags(pool.tags)
+                .tag("reason", event.getReason().name())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        pool(event.getConnectionId().getServerId()).checkedOut.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        Pool pool = pool(event.getConnectionId().getServerId());
+        pool.size.incrementAndGet();
+        pool.created.increment();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        Pool pool = pool(event.getConnectionId().getServerId());
+        pool.size.decrementAndGet();
+        Counter.builder("mongodb.pool.connections.closed")
+                .description("Connections closed, by reason")
+                .tags(pool.tags)
+                .tag("reason", event.getReason().name())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Events can outrun connectionPoolCreated only in tests; size the pool as unknown then
+    private Pool pool(ServerId serverId) {
+        return pools.computeIfAbsent(serverId, id -> new Pool(id, 0));
+    }
+
+    private final class Pool {
+
+        private final Tags tags;
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicInteger checkedOut = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Counter created;
+        private final Timer checkoutTimer;
+        private final List<Meter> meters = new ArrayList<>();
+
+        private Pool(ServerId serverId, int maxSize) {
+            this.tags = Tags.of("server", serverId.getAddress().toString());
+            meters.add(Gauge.builder("mongodb.pool.size", size, AtomicInteger::get)
+                    .description("Open connections, idle or in use")
+                    .tags(tags).register(meterRegistry));
+            meters.add(Gauge.builder("mongodb.pool.checkedout", checkedOut, AtomicInteger::get)
+                    .description("Connections currently checked out by operations")
+                    .tags(tags).register(meterRegistry));
+            meters.add(Gauge.builder("mongodb.pool.waitqueue", waiting, AtomicInteger::get)
+                    .description("Operations waiting for a connection")
+                    .tags(tags).register(meterRegistry));
+            meters.add(Gauge.builder("mongodb.pool.max", () -> maxSize)
+                    .description("Configured maximum pool size")
+                    .tags(tags).register(meterRegistry));
+            this.created = Counter.builder("mongodb.pool.connections.created")
+                    .description("Connections opened to the server")
+                    .tags(tags).register(meterRegistry);
+            this.checkoutTimer = Timer.builder("mongodb.pool.checkout")
+                    .description("Time operations waited to check out a connection")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(100_000))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(meterRegistry);
+            meters.add(created);
+            meters.add(checkoutTimer);
+        }
+    }
+}
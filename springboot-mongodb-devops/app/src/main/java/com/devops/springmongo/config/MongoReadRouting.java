@@ -0,0 +1,168 @@
+package com.devops.springmongo.config;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.connection.ServerType;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read/write routing for the users collection.
+ *
+ * <p>Reads that tolerate bounded staleness (listing, cursor scans, search,
+ * active users, exports) use {@link #tolerant()}, which sends them to
+ * secondaries when routing is enabled. Lookups by id, username or email and
+ * all writes stay on the primary, so an update followed by a lookup always
+ * sees the update.
+ *
+ * <p>Causal consistency across requests: as a command listener this records
+ * the operation time of the last write made on the current thread, which the
+ * controller returns as {@value #READ_AFTER_HEADER}. A request that echoes the
+ * header runs its tolerant reads in a causally consistent session that starts
+ * after that write. Every read is also counted per server and role, so it is
+ * visible which node served it.
+ */
+@Component
+public class MongoReadRouting implements CommandListener {
+
+    public static final String READ_AFTER_HEADER = "X-Read-After";
+
+    // Minimum the server accepts for maxStalenessSeconds
+    static final Duration MIN_MAX_STALENESS = Duration.ofSeconds(90);
+
+    private static final Set<String> READ_COMMANDS = Set.of("find", "getMore", "aggregate", "count", "distinct");
+    private static final Set<String> WRITE_COMMANDS = Set.of("insert", "update", "delete", "findAndModify");
+
+    private static final ThreadLocal<BsonTimestamp> readAfter = new ThreadLocal<>();
+    private static final ThreadLocal<BsonTimestamp> lastWrite = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final ReadPreference tolerant;
+
+    public MongoReadRouting(MeterRegistry meterRegistry,
+                            @Value("${app.mongo.read-routing.enabled:false}") boolean enabled,
+                            @Value("${app.mongo.read-routing.read-preference:secondaryPreferred}") String readPreference,
+                            @Value("${app.mongo.read-routing.max-staleness:PT90S}") Duration maxStaleness) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.tolerant = enabled ? readPreference(readPreference, maxStaleness) : ReadPreference.primary();
+    }
+
+    static ReadPreference readPreference(String name, Duration maxStaleness) {
+        if ("primary".equalsIgnoreCase(name)) {
+            return ReadPreference.primary();
+        }
+        if (maxStaleness.isZero()) {
+            return ReadPreference.valueOf(name);
+        }
+        if (maxStaleness.compareTo(MIN_MAX_STALENESS) < 0) {
+            throw new IllegalArgumentException("app.mongo.read-routing.max-staleness must be at least "
+                    + MIN_MAX_STALENESS + " (or 0 for unbounded), was " + maxStaleness);
+        }
+        return ReadPreference.valueOf(name, List.of(), maxStaleness.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Read preference for reads that may lag the primary by up to max-staleness. */
+    public ReadPreference tolerant() {
+        return tolerant;
+    }
+
+    /** Operation time the current request's tolerant reads must observe, or {@code null}. */
+    public static BsonTimestamp readAfter() {
+        return readAfter.get();
+    }
+
+    /** Sets {@link #readAfter()} from a {@value #READ_AFTER_HEADER} value; malformed values are ignored. */
+    public static void readAfter(String token) {
+        BsonTimestamp timestamp = parse(token);
+        if (timestamp != null) {
+            readAfter.set(timestamp);
+        }
+    }
+
+    /** Operation time of the last write on this thread as a {@value #READ_AFTER_HEADER} value, or {@code null}. */
+    public static String lastWriteToken() {
+        BsonTimestamp timestamp = lastWrite.get();
+        return timestamp != null ? timestamp.getTime() + "." + timestamp.getInc() : null;
+    }
+
+    public static void clear() {
+        readAfter.remove();
+        lastWrite.remove();
+    }
+
+    static BsonTimestamp parse(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot < 1 || dot == token.length() - 1) {
+            return null;
+        }
+        try {
+            return new BsonTimestamp(Integer.parseUnsignedInt(token, 0, dot, 10),
+                    Integer.parseUnsignedInt(token, dot + 1, token.length(), 10));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!READ_COMMANDS.contains(event.getCommandName())) {
+            return;
+        }
+        Counter.builder("mongodb.reads")
+                .description("Read commands by the server that served them")
+                .tag("server", event.getConnectionDescription().getServerAddress().toString())
+                .tag("role", role(event.getConnectionDescription().getServerType()))
+                .tag("method", MongoCommandMetrics.currentMethod())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        if (!WRITE_COMMANDS.contains(event.getCommandName())) {
+            return;
+        }
+        BsonValue operationTime = event.getResponse().get("operationTime");
+        if (operationTime != null && operationTime.isTimestamp()) {
+            BsonTimestamp previous = lastWrite.get();
+            if (previous == null || operationTime.asTimestamp().compareTo(previous) > 0) {
+                lastWrite.set(operationTime.asTimestamp());
+            }
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+    }
+
+    static String role(ServerType serverType) {
+        return switch (serverType) {
+            case REPLICA_SET_PRIMARY -> "primary";
+            case REPLICA_SET_SECONDARY -> "secondary";
+            case SHARD_ROUTER -> "mongos";
+            case STANDALONE -> "standalone";
+            default -> "other";
+        };
+    }
+}
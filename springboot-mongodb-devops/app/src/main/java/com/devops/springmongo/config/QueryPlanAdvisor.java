@@ -0,0 +1,407 @@
+package com.devops.springmongo.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Checks that the queries the service actually runs are served by an index.
+ *
+ * <p>Reads are grouped into shapes by repository method, command and
+ * collection. The first time a shape is seen, and again every
+ * {@code recheck-interval}, one execution is copied and explained with
+ * {@code executionStats} on a background thread, which runs the query a
+ * second time. A run slower than {@code slow-threshold} may mean the plan
+ * changed, so it also earns one re-check, at most a minute after the last
+ * explain and once per interval, with {@code queryPlanner} verbosity: that
+ * only plans the query, and the work figures are kept from the last
+ * {@code executionStats} explain. A plan is flagged for a
+ * {@code COLLSCAN}, a blocking in-memory {@code SORT}, or more than
+ * {@code max-docs-examined-ratio} documents examined per document returned;
+ * flags are logged at WARN and counted in {@code mongodb.query.plan.flagged}.
+ * Slow executions are kept in a bounded log with the latest plan of their
+ * shape. Both are served by the {@code queryplans} actuator endpoint.
+ *
+ * <p>No filter values are kept, only the shape and its plan, so the log
+ * never holds user data.
+ */
+@Component
+@Profile("!inmemory")
+public class QueryPlanAdvisor implements CommandListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryPlanAdvisor.class);
+
+    static final Set<String> EXPLAINABLE = Set.of("find", "aggregate", "count", "distinct");
+
+    static final String COLLSCAN = "COLLSCAN";
+    static final String IN_MEMORY_SORT = "IN_MEMORY_SORT";
+    static final String HIGH_DOCS_EXAMINED = "HIGH_DOCS_EXAMINED";
+
+    static final String EXECUTION_STATS = "executionStats";
+    static final String QUERY_PLANNER = "queryPlanner";
+
+    // Session, cluster time and routing fields the driver adds; explain takes them on the outer command only
+    private static final Set<String> ENVELOPE_FIELDS = Set.of(
+            "$db", "lsid", "txnNumber", "$clusterTime", "$readPreference", "readConcern", "autocommit", "startTransaction",
+            "apiVersion", "apiStrict", "apiDeprecationErrors");
+
+    private static final int MAX_SHAPES = 500;
+
+    // a shape that keeps running slow is re-explained at most this often
+    private static final long MIN_RECHECK_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /** Latest plan of one query shape. */
+    public record PlanSummary(String plan, long keysExamined, long docsExamined, long returned, long millis,
+                              List<String> flags, Instant explainedAt) {
+
+        /**
+         * This plan with the work figures of {@code previous}, for a
+         * {@code queryPlanner} explain that did not execute the query. The
+         * selectivity flag carries over while the plan stays the same.
+         */
+        PlanSummary withStatsOf(PlanSummary previous) {
+            List<String> merged = new ArrayList<>(flags);
+            if (previous.flags().contains(HIGH_DOCS_EXAMINED) && previous.plan().equals(plan)
+                    && !merged.contains(HIGH_DOCS_EXAMINED)) {
+                merged.add(HIGH_DOCS_EXAMINED);
+            }
+            return new PlanSummary(plan, previous.keysExamined(), previous.docsExamined(), previous.returned(),
+                    previous.millis(), List.copyOf(merged), explainedAt);
+        }
+    }
+
+    /** A query shape and the plan it got when last explained, or {@code null} if it has not been yet. */
+    public record ShapeReport(String method, String command, String collection, long executions, PlanSummary plan) {}
+
+    /** One execution slower than {@code slow-threshold}. */
+    public record SlowQuery(Instant at, String method, String command, String collection, long millis, PlanSummary plan) {}
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final long recheckNanos;
+    private final int slowLogSize;
+    private final double maxDocsExaminedRatio;
+    private final Executor executor;
+    private final BiFunction<String, BsonDocument, BsonDocument> explainer;
+
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+    private final Map<Integer, Started> inFlight = new ConcurrentHashMap<>();
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+
+    @Autowired
+    public QueryPlanAdvisor(MeterRegistry meterRegistry,
+                            ObjectProvider<MongoTemplate> mongoTemplate,
+                            @Value("${app.mongo.plan-advisor.enabled:true}") boolean enabled,
+                            @Value("${app.mongo.plan-advisor.slow-threshold:PT0.1S}") Duration slowThreshold,
+                            @Value("${app.mongo.plan-advisor.recheck-interval:PT10M}") Duration recheckInterval,
+                            @Value("${app.mongo.plan-advisor.slow-log-size:100}") int slowLogSize,
+                            @Value("${app.mongo.plan-advisor.max-docs-examined-ratio:10}") double maxDocsExaminedRatio) {
+        this(meterRegistry, enabled, slowThreshold, recheckInterval, slowLogSize, maxDocsExaminedRatio,
+                explainExecutor(),
+                (database, command) -> mongoTemplate.getObject().getMongoDatabaseFactory().getMongoDatabase(database)
+                        .runCommand(command, BsonDocument.class));
+    }
+
+    QueryPlanAdvisor(MeterRegistry meterRegistry, boolean enabled, Duration slowThreshold, Duration recheckInterval,
+                     int slowLogSize, double maxDocsExaminedRatio, Executor executor,
+                     BiFunction<String, BsonDocument, BsonDocument> explainer) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.recheckNanos = recheckInterval.toNanos();
+        this.slowLogSize = slowLogSize;
+        this.maxDocsExaminedRatio = maxDocsExaminedRatio;
+        this.executor = executor;
+        this.explainer = explainer;
+    }
+
+    // One thread and a short queue: explains are advisory and are dropped rather than allowed to pile up
+    private static ExecutorService explainExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "query-plan-advisor");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!enabled || !EXPLAINABLE.contains(event.getCommandName())) {
+            return;
+        }
+        String method = MongoCommandMetrics.currentMethod();
+        String collection = MongoCommandMetrics.collectionOf(event.getCommandName(), event.getCommand());
+        String key = method + ' ' + event.getCommandName() + ' ' + collection;
+        Shape shape = shapes.get(key);
+        if (shape == null) {
+            if (shapes.size() >= MAX_SHAPES) {
+                return;
+            }
+            shape = shapes.computeIfAbsent(key, ignored -> new Shape(method, event.getCommandName(), collection));
+        }
+
+        // the event's command is only valid during the callback, so the sample is copied here
+        String verbosity = shape.claimExplain(System.nanoTime(), recheckNanos);
+        BsonDocument sample = verbosity != null ? explainable(event.getCommand()) : null;
+        inFlight.put(event.getRequestId(), new Started(shape, event.getDatabaseName(), sample, verbosity));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Started started = inFlight.remove(event.getRequestId());
+        if (started == null) {
+            return;
+        }
+        Shape shape = started.shape();
+        shape.executions.increment();
+        long elapsed = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        if (elapsed >= slowThresholdNanos) {
+            recordSlow(new SlowQuery(Instant.now(), shape.method, shape.command, shape.collection,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), shape.plan));
+            // the plan may have changed since it was last explained
+            shape.slowRun();
+        }
+        if (started.sample() != null) {
+            submitExplain(shape, started.database(), started.sample(), started.verbosity());
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Started started = inFlight.remove(event.getRequestId());
+        if (started != null && started.sample() != null) {
+            started.shape().explaining.set(false);
+        }
+    }
+
+    /** Every shape seen so far, most executed first. */
+    public List<ShapeReport> getShapes() {
+        return shapes.values().stream()
+                .map(shape -> new ShapeReport(shape.method, shape.command, shape.collection, shape.executions.sum(), shape.plan))
+                .sorted(Comparator.comparingLong(ShapeReport::executions).reversed())
+                .toList();
+    }
+
+    /** The slow-query log, newest first. */
+    public List<SlowQuery> getSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    private void recordSlow(SlowQuery query) {
+        synchronized (slowQueries) {
+            slowQueries.addFirst(query);
+            while (slowQueries.size() > slowLogSize) {
+                slowQueries.removeLast();
+            }
+        }
+    }
+
+    private void submitExplain(Shape shape, String database, BsonDocument command, String verbosity) {
+        try {
+            executor.execute(() -> explain(shape, database, command, verbosity));
+        } catch (RejectedExecutionException e) {
+            shape.explaining.set(false);
+        }
+    }
+
+    private void explain(Shape shape, String database, BsonDocument command, String verbosity) {
+        try {
+            BsonDocument result = explainer.apply(database,
+                    new BsonDocument("explain", command).append("verbosity", new BsonString(verbosity)));
+            PlanSummary plan = summarize(result, maxDocsExaminedRatio);
+            PlanSummary previous = shape.plan;
+            if (QUERY_PLANNER.equals(verbosity) && previous != null) {
+                plan = plan.withStatsOf(previous);
+            }
+            shape.plan = plan;
+            for (String flag : plan.flags()) {
+                Counter.builder("mongodb.query.plan.flagged")
+                        .description("Explained query plans with a collection scan, in-memory sort or poor selectivity")
+                        .tags("flag", flag, "method", shape.method, "collection", shape.collection)
+                        .register(meterRegistry)
+                        .increment();
+            }
+            if (!plan.flags().isEmpty()) {
+                logger.warn("Query plan for {} ({} on {}) flagged {}: {}, {} docs examined for {} returned",
+                        shape.method, shape.command, shape.collection, plan.flags(), plan.plan(),
+                        plan.docsExamined(), plan.returned());
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Could not explain {} ({} on {}): {}", shape.method, shape.command, shape.collection, e.getMessage());
+        } finally {
+            shape.explainedAtNanos = System.nanoTime();
+            shape.explaining.set(false);
+        }
+    }
+
+    /** {@code command} without the envelope fields explain rejects on the inner command. */
+    static BsonDocument explainable(BsonDocument command) {
+        // decoding copies every value out of the driver's buffer
+        BsonDocument copy = new BsonDocumentCodec().decode(new BsonDocumentReader(command), DecoderContext.builder().build());
+        ENVELOPE_FIELDS.forEach(copy::remove);
+        return copy;
+    }
+
+    /**
+     * Reduces an {@code executionStats} explain of a find, count, distinct or
+     * aggregate to its winning plan, the work it did and the flags it earns.
+     */
+    static PlanSummary summarize(BsonDocument explain, double maxDocsExaminedRatio) {
+        BsonDocument planner = explain.getDocument("queryPlanner", null);
+        BsonDocument stats = explain.getDocument("executionStats", null);
+        boolean pipelineSort = false;
+        BsonValue stages = explain.get("stages");
+        if (stages != null && stages.isArray()) {
+            for (BsonValue stage : stages.asArray()) {
+                BsonDocument document = stage.asDocument();
+                if (document.containsKey("$cursor")) {
+                    planner = document.getDocument("$cursor").getDocument("queryPlanner", planner);
+                    stats = document.getDocument("$cursor").getDocument("executionStats", stats);
+                } else if (document.containsKey("$sort")) {
+                    pipelineSort = true;
+                }
+            }
+        }
+
+        List<String> path = new ArrayList<>();
+        Set<String> stageNames = new HashSet<>();
+        if (planner != null && planner.containsKey("winningPlan")) {
+            BsonDocument winning = planner.getDocument("winningPlan");
+            // slot-based engine plans nest the classic tree under queryPlan
+            walk(winning.getDocument("queryPlan", winning), path, stageNames);
+        }
+
+        long keys = stats != null ? number(stats, "totalKeysExamined") : 0;
+        long docs = stats != null ? number(stats, "totalDocsExamined") : 0;
+        long returned = stats != null ? number(stats, "nReturned") : 0;
+        long millis = stats != null ? number(stats, "executionTimeMillis") : 0;
+
+        List<String> flags = new ArrayList<>();
+        if (stageNames.contains("COLLSCAN")) {
+            flags.add(COLLSCAN);
+        }
+        if (stageNames.contains("SORT") || pipelineSort) {
+            flags.add(IN_MEMORY_SORT);
+        }
+        if (docs > Math.max(returned, 1) * maxDocsExaminedRatio) {
+            flags.add(HIGH_DOCS_EXAMINED);
+        }
+        return new PlanSummary(String.join(" > ", path), keys, docs, returned, millis, List.copyOf(flags), Instant.now());
+    }
+
+    private static void walk(BsonDocument stage, List<String> path, Set<String> stageNames) {
+        String name = stage.getString("stage", new BsonString("?")).getValue();
+        stageNames.add(name);
+        BsonValue index = stage.get("indexName");
+        path.add(index != null && index.isString() ? name + "(" + index.asString().getValue() + ")" : name);
+        if (stage.containsKey("inputStage")) {
+            walk(stage.getDocument("inputStage"), path, stageNames);
+        } else if (stage.containsKey("inputStages")) {
+            List<String> branches = new ArrayList<>();
+            for (BsonValue input : stage.getArray("inputStages")) {
+                List<String> branch = new ArrayList<>();
+                walk(input.asDocument(), branch, stageNames);
+                branches.add(String.join(" > ", branch));
+            }
+            path.add("[" + String.join(" | ", branches) + "]");
+        }
+    }
+
+    private static long number(BsonDocument document, String key) {
+        BsonValue value = document.get(key);
+        return value != null && value.isNumber() ? value.asNumber().longValue() : 0;
+    }
+
+    private record Started(Shape shape, String database, BsonDocument sample, String verbosity) {}
+
+    static final class Shape {
+
+        final String method;
+        final String command;
+        final String collection;
+        final AtomicBoolean explaining = new AtomicBoolean();
+        final LongAdder executions = new LongAdder();
+
+        // updated without locks; at worst a shape is explained once more than needed
+        volatile boolean due;
+        volatile boolean slowRechecked;
+        volatile long explainedAtNanos;
+        volatile PlanSummary plan;
+
+        Shape(String method, String command, String collection) {
+            this.method = method;
+            this.command = command;
+            this.collection = collection;
+        }
+
+        /** Arms the slow-run re-check, unless this interval already had one. */
+        void slowRun() {
+            if (!slowRechecked) {
+                due = true;
+            }
+        }
+
+        /** The verbosity to explain the next execution with, or {@code null} when no explain is due. */
+        String claimExplain(long now, long recheckNanos) {
+            boolean scheduled = explainedAtNanos == 0 || now - explainedAtNanos >= recheckNanos;
+            boolean slow = due && now - explainedAtNanos >= Math.min(MIN_RECHECK_NANOS, recheckNanos);
+            if ((!scheduled && !slow) || !explaining.compareAndSet(false, true)) {
+                return null;
+            }
+            due = false;
+            slowRechecked = !scheduled;
+            return scheduled ? EXECUTION_STATS : QUERY_PLANNER;
+        }
+    }
+}
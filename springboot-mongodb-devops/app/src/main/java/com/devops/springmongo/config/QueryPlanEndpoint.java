@@ -0,0 +1,33 @@
+package com.devops.springmongo.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/queryplans}: the plan of every query shape the service has
+ * run, and the slow-query log, as collected by {@link QueryPlanAdvisor}.
+ */
+@Component
+@Profile("!inmemory")
+@Endpoint(id = "queryplans")
+public class QueryPlanEndpoint {
+
+    private final QueryPlanAdvisor queryPlanAdvisor;
+
+    public QueryPlanEndpoint(QueryPlanAdvisor queryPlanAdvisor) {
+        this.queryPlanAdvisor = queryPlanAdvisor;
+    }
+
+    @ReadOperation
+    public Map<String, Object> queryPlans() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("shapes", queryPlanAdvisor.getShapes());
+        report.put("slowQueries", queryPlanAdvisor.getSlowQueries());
+        return report;
+    }
+}
@@ -0,0 +1,11 @@
+package com.devops.springmongo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+
+@Configuration
+@Profile("reactive")
+@EnableReactiveMongoAuditing
+public class ReactiveMongoConfig {
+}
@@ -0,0 +1,20 @@
+package com.devops.springmongo.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Tomcat is on the classpath for the servlet mode and would otherwise win the
+ * reactive server auto-configuration, so pin the reactive mode to Netty.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveWebConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
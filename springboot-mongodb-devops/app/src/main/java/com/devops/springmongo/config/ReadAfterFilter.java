@@ -0,0 +1,36 @@
+package com.devops.springmongo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Scopes {@link MongoReadRouting}'s per-request state: picks up the
+ * {@value MongoReadRouting#READ_AFTER_HEADER} a client echoes from an earlier
+ * write and clears the routing state once the request completes.
+ */
+@Component
+@Profile("!reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ReadAfterFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        MongoReadRouting.readAfter(request.getHeader(MongoReadRouting.READ_AFTER_HEADER));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MongoReadRouting.clear();
+        }
+    }
+}
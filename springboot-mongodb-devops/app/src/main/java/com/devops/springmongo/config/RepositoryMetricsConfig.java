@@ -0,0 +1,38 @@
+package com.devops.springmongo.config;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactoryBean;
+
+/**
+ * Wraps every blocking Mongo repository so the driver commands it issues are
+ * tagged with the repository method name in {@link MongoCommandMetrics}.
+ */
+@Configuration
+public class RepositoryMetricsConfig {
+
+    @Bean
+    static BeanPostProcessor repositoryMethodTagger() {
+        MethodInterceptor interceptor = invocation -> {
+            String previous = MongoCommandMetrics.enter(invocation.getMethod().getName());
+            try {
+                return invocation.proceed();
+            } finally {
+                MongoCommandMetrics.exit(previous);
+            }
+        };
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof MongoRepositoryFactoryBean<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(interceptor)));
+                }
+                return bean;
+            }
+        };
+    }
+}
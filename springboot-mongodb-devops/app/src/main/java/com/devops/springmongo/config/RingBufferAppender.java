@@ -0,0 +1,75 @@
+package com.devops.springmongo.config;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logback's {@link AsyncAppender} with {@code neverBlock} on by default and
+ * drops counted per level, so request threads never wait on console or file
+ * I/O and lost events are visible. Once free space falls below
+ * {@code discardingThreshold} INFO and lower events are dropped, and when the
+ * buffer is full every event is. The counts are published by
+ * {@link RingBufferAppenderMetrics}; an event that races another for the last
+ * free slot may be lost without being counted.
+ *
+ * <pre>{@code
+ * <appender name="ASYNC" class="com.devops.springmongo.config.RingBufferAppender">
+ *   <queueSize>8192</queueSize>
+ *   <appender-ref ref="CONSOLE"/>
+ * </appender>
+ * }</pre>
+ */
+public class RingBufferAppender extends AsyncAppender {
+
+    static final Level[] LEVELS = {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR};
+
+    private final LongAdder[] dropped = new LongAdder[LEVELS.length];
+
+    public RingBufferAppender() {
+        for (int i = 0; i < dropped.length; i++) {
+            dropped[i] = new LongAdder();
+        }
+        setQueueSize(8192);
+        setNeverBlock(true);
+    }
+
+    // only asked when the buffer is below the discarding threshold
+    @Override
+    protected boolean isDiscardable(ILoggingEvent event) {
+        boolean discardable = super.isDiscardable(event);
+        if (discardable) {
+            drop(event);
+        }
+        return discardable;
+    }
+
+    // runs right before the offer, which fails without a trace on a full buffer when neverBlock is set
+    @Override
+    protected void preprocess(ILoggingEvent event) {
+        super.preprocess(event);
+        if (isNeverBlock() && getRemainingCapacity() == 0) {
+            drop(event);
+        }
+    }
+
+    private void drop(ILoggingEvent event) {
+        dropped[index(event.getLevel())].increment();
+    }
+
+    private static int index(Level level) {
+        for (int i = LEVELS.length - 1; i > 0; i--) {
+            if (level.toInt() >= LEVELS[i].toInt()) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /** Events at {@code level} dropped since start. */
+    public long getDroppedCount(Level level) {
+        return dropped[index(level)].sum();
+    }
+}
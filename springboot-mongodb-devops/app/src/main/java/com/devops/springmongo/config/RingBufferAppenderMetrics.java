@@ -0,0 +1,52 @@
+package com.devops.springmongo.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+/**
+ * Publishes dropped-event counts and queue depth for every
+ * {@link RingBufferAppender} attached to the root logger.
+ */
+@Component
+public class RingBufferAppenderMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        Iterator<Appender<ILoggingEvent>> appenders = context.getLogger(Logger.ROOT_LOGGER_NAME).iteratorForAppenders();
+        while (appenders.hasNext()) {
+            if (appenders.next() instanceof RingBufferAppender appender) {
+                bind(registry, appender);
+            }
+        }
+    }
+
+    static void bind(MeterRegistry registry, RingBufferAppender appender) {
+        for (Level level : RingBufferAppender.LEVELS) {
+            FunctionCounter.builder("logback.async.dropped", appender, a -> a.getDroppedCount(level))
+                    .description("Log events dropped because the async buffer was full or over its discarding threshold")
+                    .tags("appender", appender.getName(), "level", level.toString().toLowerCase())
+                    .register(registry);
+        }
+        Gauge.builder("logback.async.queue.depth", appender, RingBufferAppender::getNumberOfElementsInQueue)
+                .description("Log events waiting in the async buffer")
+                .tag("appender", appender.getName())
+                .register(registry);
+        Gauge.builder("logback.async.queue.capacity", appender, RingBufferAppender::getQueueSize)
+                .tag("appender", appender.getName())
+                .register(registry);
+    }
+}
@@ -0,0 +1,48 @@
+package com.devops.springmongo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Streamed responses (the active-user exports) are written on their own
+ * bounded pool instead of the shared {@code applicationTaskExecutor}, so a
+ * long or rate-capped export cannot occupy the threads {@code @Async} work
+ * runs on. The pool is not a bean: an {@code Executor} bean would replace
+ * Boot's {@code applicationTaskExecutor}.
+ */
+@Configuration
+@Profile("!reactive")
+public class StreamingExportConfig implements WebMvcConfigurer {
+
+    private final ThreadPoolTaskExecutor exportExecutor = new ThreadPoolTaskExecutor();
+
+    public StreamingExportConfig(MeterRegistry meterRegistry,
+                                 @Value("${app.users.stream.threads:4}") int threads,
+                                 @Value("${app.users.stream.queue-capacity:32}") int queueCapacity) {
+        exportExecutor.setCorePoolSize(threads);
+        exportExecutor.setMaxPoolSize(threads);
+        exportExecutor.setQueueCapacity(queueCapacity);
+        exportExecutor.setThreadNamePrefix("user-export-");
+        exportExecutor.initialize();
+        new ExecutorServiceMetrics(exportExecutor.getThreadPoolExecutor(), "user.export", List.of()).bindTo(meterRegistry);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(exportExecutor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        exportExecutor.shutdown();
+    }
+}
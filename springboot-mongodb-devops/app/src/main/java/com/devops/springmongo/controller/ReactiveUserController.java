@@ -0,0 +1,206 @@
+package com.devops.springmongo.controller;
+
+import com.devops.springmongo.model.SearchPage;
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.service.DuplicateUserException;
+import com.devops.springmongo.service.PasswordHashingRejectedException;
+import com.devops.springmongo.service.ReactiveUserService;
+import com.devops.springmongo.service.UserSortPlanner;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * WebFlux implementation of the {@code /api/users} surface, active with the
+ * {@code reactive} profile in place of {@link UserController}. List, search
+ * and active-user endpoints stream {@code Flux} results as NDJSON when asked
+ * for {@code application/x-ndjson}. Reads are projected with
+ * {@link com.devops.springmongo.repository.UserRepository#PUBLIC_FIELDS}, so
+ * they never load password hashes; only the users returned by create and
+ * update have theirs cleared.
+ */
+@Tag(name = "User Management (reactive)", description = "Non-blocking APIs for managing users")
+@RestController
+@RequestMapping("/api/users")
+@CrossOrigin(origins = "*", maxAge = 3600)
+@Profile("reactive")
+public class ReactiveUserController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveUserController.class);
+
+    @Autowired
+    private ReactiveUserService userService;
+
+    @Autowired
+    private UserSortPlanner userSortPlanner;
+
+    @Operation(summary = "Get all users", description = "Retrieve all users with optional pagination")
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<?>> getAllUsers(
+            @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Sort by field") @RequestParam(defaultValue = "createdAt") String sortBy,
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "desc") String sortDir) {
+
+        logger.debug("GET /api/users - page: {}, size: {}, sortBy: {}, sortDir: {}", page, size, sortBy, sortDir);
+        return Mono.defer(() -> userService.findPage(PageRequest.of(page, size, sort(sortBy, sortDir))))
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().body(e.getMessage())));
+    }
+
+    @Operation(summary = "Stream users", description = "Stream one page of users as newline-delimited JSON")
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<User> streamUsers(
+            @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Sort by field") @RequestParam(defaultValue = "createdAt") String sortBy,
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "desc") String sortDir) {
+
+        // a rejected sort fails before the first element, so it still gets a 400 status
+        return Flux.defer(() -> userService.findAll(PageRequest.of(page, size, sort(sortBy, sortDir))))
+                .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    @Operation(summary = "Get user by ID", description = "Retrieve a user by their unique identifier")
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<User>> getUserById(@Parameter(description = "User ID") @PathVariable String id) {
+        return userService.findById(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Create new user", description = "Create a new user account")
+    @PostMapping
+    public Mono<ResponseEntity<Object>> createUser(@Valid @RequestBody User user) {
+        logger.info("POST /api/users - Creating user: {}", user.getUsername());
+
+        return userService.save(user)
+                .map(savedUser -> ResponseEntity.ok((Object) stripPassword(savedUser)))
+                .onErrorResume(PasswordHashingRejectedException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "1")
+                                .body(e.getMessage())))
+                .onErrorResume(DuplicateUserException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage())))
+                .onErrorResume(RuntimeException.class, e -> {
+                    logger.error("Error creating user: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().body(e.getMessage()));
+                });
+    }
+
+    @Operation(summary = "Update user", description = "Update an existing user")
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Object>> updateUser(
+            @Parameter(description = "User ID") @PathVariable String id,
+            @Valid @RequestBody User user) {
+
+        return userService.update(id, user)
+                .map(updatedUser -> ResponseEntity.ok((Object) stripPassword(updatedUser)))
+                .onErrorResume(e -> e instanceof DuplicateUserException || e instanceof OptimisticLockingFailureException,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage())))
+                .onErrorResume(RuntimeException.class, e -> {
+                    logger.error("Error updating user: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.notFound().build());
+                });
+    }
+
+    @Operation(summary = "Delete user", description = "Delete a user by ID")
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteUser(@Parameter(description = "User ID") @PathVariable String id) {
+        return userService.deleteById(id)
+                .then(Mono.just(ResponseEntity.ok().<Void>build()))
+                .onErrorResume(RuntimeException.class, e -> {
+                    logger.error("Error deleting user: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.notFound().build());
+                });
+    }
+
+    @Operation(summary = "Search users", description = "Search users by keyword")
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<SearchPage<User>> searchUsers(
+            @Parameter(description = "Search keyword") @RequestParam String keyword,
+            @Parameter(description = "Page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size) {
+
+        return userService.searchPage(keyword, PageRequest.of(page, size));
+    }
+
+    @Operation(summary = "Stream search results", description = "Stream one page of search results as newline-delimited JSON")
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<User> streamSearchUsers(
+            @Parameter(description = "Search keyword") @RequestParam String keyword,
+            @Parameter(description = "Page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size) {
+
+        return userService.searchUsers(keyword, PageRequest.of(page, size));
+    }
+
+    @Operation(summary = "Get active users", description = "Retrieve all active users")
+    @GetMapping(value = "/active", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public Flux<User> getActiveUsers() {
+        return userService.findActiveUsers();
+    }
+
+    @Operation(summary = "Get user statistics", description = "Get user count statistics")
+    @GetMapping("/stats")
+    public Mono<ResponseEntity<?>> getUserStats() {
+        return userService.getStats()
+                .map(stats -> {
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("activeUsers", stats.getActiveUsers());
+                    body.put("inactiveUsers", stats.getInactiveUsers());
+                    body.put("totalUsers", stats.getTotalUsers());
+                    if (stats.getReconciledAt() != null) {
+                        body.put("reconciledAt", stats.getReconciledAt());
+                    }
+                    body.put("timestamp", Instant.now().toString());
+                    return ResponseEntity.ok(body);
+                });
+    }
+
+    @Operation(summary = "Get daily signups", description = "Users created per day, oldest first; defaults to the last 30 days")
+    @GetMapping("/stats/signups")
+    public Mono<ResponseEntity<?>> getDailySignups(
+            @Parameter(description = "First day (ISO date)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day (ISO date)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        LocalDate lastDay = to != null ? to : LocalDate.now();
+        LocalDate firstDay = from != null ? from : lastDay.minusDays(29);
+
+        return userService.getDailySignups(firstDay, lastDay)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().body(e.getMessage())));
+    }
+
+    // The reactive repositories have no disk-sort path, so every sort must be index-backed
+    private Sort sort(String sortBy, String sortDir) {
+        return userSortPlanner.requireIndexed(userSortPlanner.sort(sortBy, sortDir));
+    }
+
+    private User stripPassword(User user) {
+        user.setPassword(null);
+        return user;
+    }
+}
@@ -1,7 +1,26 @@
 package com.devops.springmongo.controller;
 
+import com.devops.springmongo.config.CorrelationIdFilter;
+import com.devops.springmongo.config.MongoReadRouting;
+import com.devops.springmongo.model.BulkUserResponse;
+import com.devops.springmongo.model.DailySignups;
 import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserChanges;
+import com.devops.springmongo.model.UserCursor;
+import com.devops.springmongo.model.UserSlice;
+import com.devops.springmongo.model.UserStats;
+import com.devops.springmongo.model.UserView;
+import com.devops.springmongo.service.BulkUserService;
+import com.devops.springmongo.service.DuplicateUserException;
+import com.devops.springmongo.service.ExpiredChangeTokenException;
+import com.devops.springmongo.service.NdjsonUserWriter;
+import com.devops.springmongo.service.PasswordHashingRejectedException;
+import com.devops.springmongo.service.SortCapacityExceededException;
 import com.devops.springmongo.service.UserService;
+import com.devops.springmongo.service.UserSortPlanner;
+import com.devops.springmongo.service.UserStatsService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,81 +31,253 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Tag(name = "User Management", description = "APIs for managing users")
 @RestController
 @RequestMapping("/api/users")
 @CrossOrigin(origins = "*", maxAge = 3600)
+@Profile("!reactive")
 public class UserController {
 
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private NdjsonUserWriter ndjsonUserWriter;
+
+    @Autowired
+    private BulkUserService bulkUserService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private MongoReadRouting readRouting;
+
+    @Autowired
+    private UserSortPlanner userSortPlanner;
+
+    // List endpoints transcode BSON straight to JSON instead of mapping every document to a UserView
+    @Value("${app.users.raw-json.enabled:true}")
+    boolean rawJson;
+
+    @Value("${app.users.batch.max-ids:100}")
+    int batchMaxIds = 100;
+
+    @Value("${app.users.changes.max-size:1000}")
+    int changesMaxSize = 1000;
+
     @Operation(summary = "Get all users", description = "Retrieve all users with optional pagination")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved users"),
+        @ApiResponse(responseCode = "400", description = "Unknown sort field or a sort no index serves"),
+        @ApiResponse(responseCode = "503", description = "Too many unindexed sorts in progress"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping
-    public ResponseEntity<Page<User>> getAllUsers(
+    public ResponseEntity<?> getAllUsers(
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
-            @Parameter(description = "Sort by field") @RequestParam(defaultValue = "createdAt") String sortBy,
-            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "desc") String sortDir) {
+            @Parameter(description = "Sort by field (createdAt, updatedAt, username, email, id or a field in app.users.sort.indexed-fields)") @RequestParam(defaultValue = "createdAt") String sortBy,
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "desc") String sortDir,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,username (default: all)") @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
-        String correlationId = UUID.randomUUID().toString();
-        MDC.put("correlationId", correlationId);
+        logger.debug("GET /api/users - page: {}, size: {}, sortBy: {}, sortDir: {}", page, size, sortBy, sortDir);
 
-        logger.info("GET /api/users - page: {}, size: {}, sortBy: {}, sortDir: {}", page, size, sortBy, sortDir);
+        try {
+            // parameters are checked before the tag, so an invalid request is never answered with 304
+            Pageable pageable = PageRequest.of(page, size, userSortPlanner.sort(sortBy, sortDir));
+            Set<String> selected = UserView.parseFields(fields);
 
-        Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-                   Sort.by(sortBy).descending() : 
-                   Sort.by(sortBy).ascending();
+            String etag = listTag();
+            if (UserEntityTags.matches(ifNoneMatch, etag)) {
+                return notModified(etag);
+            }
 
-        Pageable pageable = PageRequest.of(page, size, sort);
-        Page<User> users = userService.findAll(pageable);
+            Page<?> users = rawJson
+                    ? userService.findRawViews(pageable, selected)
+                    : userService.findViews(pageable, selected);
 
-        logger.info("Retrieved {} users", users.getTotalElements());
+            logger.debug("Retrieved {} users", users.getTotalElements());
 
-        MDC.clear();
-        return ResponseEntity.ok(users);
+            return ResponseEntity.ok().eTag(etag).body(users);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error retrieving users: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (SortCapacityExceededException e) {
+            logger.warn("Rejected unindexed sort: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Scan users by cursor",
+               description = "Keyset pagination without a total count; pass an empty cursor to start and nextCursor to continue")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved users"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or unsupported sort field"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping(params = "cursor")
+    public ResponseEntity<?> getUsersByCursor(
+            @Parameter(description = "Continuation token from the previous page (empty for the first page)") @RequestParam String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Sort by field (createdAt, username, email or id)") @RequestParam(defaultValue = "createdAt") String sortBy,
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "desc") String sortDir,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,username (default: all)") @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        logger.debug("GET /api/users - cursor: {}, size: {}, sortBy: {}, sortDir: {}", cursor, size, sortBy, sortDir);
+
+        if (size < 1) {
+            return ResponseEntity.badRequest().body("Page size must be greater than zero");
+        }
+
+        try {
+            UserCursor position = UserCursor.parse(cursor, sortBy, sortDir);
+            Set<String> selected = UserView.parseFields(fields);
+
+            String etag = listTag();
+            if (UserEntityTags.matches(ifNoneMatch, etag)) {
+                return notModified(etag);
+            }
+
+            UserSlice<UserView> users = userService.findSlice(position, size, selected);
+            logger.debug("Retrieved {} users, hasNext: {}", users.getNumberOfElements(), users.isHasNext());
+
+            return ResponseEntity.ok().eTag(etag).body(users);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error scanning users: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Get users by ID", description = "Multi-get: the users with the given ids, in request order; unknown ids are left out")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Users found"),
+        @ApiResponse(responseCode = "400", description = "No ids, too many ids, or an unknown field"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/batch")
+    public ResponseEntity<?> getUsersByIds(
+            @Parameter(description = "Comma-separated user IDs") @RequestParam List<String> ids,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,username (default: all)") @RequestParam(required = false) String fields) {
+
+        logger.debug("GET /api/users/batch - {} ids", ids.size());
+
+        if (ids.isEmpty() || ids.size() > batchMaxIds) {
+            return ResponseEntity.badRequest().body("Between 1 and " + batchMaxIds + " ids are required");
+        }
+        try {
+            Set<String> selected = UserView.parseFields(fields);
+            List<UserView> users = userService.findAllById(ids).stream().map(user -> UserView.of(user, selected)).toList();
+            return ResponseEntity.ok(users);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Get user changes",
+               description = "Delta sync: users created, updated or deleted after the checkpoint, oldest first; "
+                       + "omit since to start from the beginning and pass next to continue")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Changes after the checkpoint"),
+        @ApiResponse(responseCode = "400", description = "Invalid change token or page size"),
+        @ApiResponse(responseCode = "410", description = "Change token too old; resync from the beginning"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/changes")
+    public ResponseEntity<?> getUserChanges(
+            @Parameter(description = "Checkpoint from the previous call (next); empty for the beginning") @RequestParam(required = false) String since,
+            @Parameter(description = "Maximum number of changes") @RequestParam(defaultValue = "100") int size) {
+
+        logger.debug("GET /api/users/changes - since: {}, size: {}", since, size);
+
+        if (size > changesMaxSize) {
+            return ResponseEntity.badRequest().body("Page size must not exceed " + changesMaxSize);
+        }
+        try {
+            UserChanges changes = userService.findChanges(since, size);
+            logger.debug("Retrieved {} changes, hasMore: {}", changes.getChanges().size(), changes.isHasMore());
+
+            return ResponseEntity.ok(changes);
+        } catch (ExpiredChangeTokenException e) {
+            logger.warn("Expired change token: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.GONE).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            logger.error("Error fetching changes: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @Operation(summary = "Get user by ID", description = "Retrieve a user by their unique identifier")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "User found"),
+        @ApiResponse(responseCode = "304", description = "User unchanged since the ETag in If-None-Match"),
         @ApiResponse(responseCode = "404", description = "User not found"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(
-            @Parameter(description = "User ID") @PathVariable String id) {
+    public ResponseEntity<?> getUserById(
+            @Parameter(description = "User ID") @PathVariable String id,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,username (default: all)") @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
-        String correlationId = UUID.randomUUID().toString();
-        MDC.put("correlationId", correlationId);
+        logger.debug("GET /api/users/{}", id);
 
-        logger.info("GET /api/users/{}", id);
+        Set<String> selected;
+        try {
+            selected = UserView.parseFields(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        // revalidation needs only the version, not the document
+        if (ifNoneMatch != null) {
+            String etag = userService.findVersionStamp(id).map(stamp -> UserEntityTags.of(stamp, selected)).orElse(null);
+            if (UserEntityTags.matches(ifNoneMatch, etag)) {
+                return notModified(etag);
+            }
+        }
 
         return userService.findById(id)
-                .map(user -> {
-                    logger.info("User found: {}", user.getUsername());
-                    MDC.clear();
-                    return ResponseEntity.ok(user);
+                .<ResponseEntity<?>>map(user -> {
+                    logger.debug("User found: {}", user.getUsername());
+                    return ResponseEntity.ok().eTag(UserEntityTags.of(user, selected)).body(UserView.of(user, selected));
                 })
                 .orElseGet(() -> {
                     logger.warn("User not found with id: {}", id);
-                    MDC.clear();
                     return ResponseEntity.notFound().build();
                 });
     }
@@ -96,27 +287,67 @@ public class UserController {
         @ApiResponse(responseCode = "200", description = "User created successfully"),
         @ApiResponse(responseCode = "400", description = "Invalid user data"),
         @ApiResponse(responseCode = "409", description = "Username or email already exists"),
+        @ApiResponse(responseCode = "503", description = "Password hashing capacity exhausted; retry later"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping
     public ResponseEntity<?> createUser(@Valid @RequestBody User user) {
-        String correlationId = UUID.randomUUID().toString();
-        MDC.put("correlationId", correlationId);
-
-        logger.info("POST /api/users - Creating user: {}", user.getUsername());
+        logger.debug("POST /api/users - Creating user: {}", user.getUsername());
 
         try {
             User savedUser = userService.save(user);
-            logger.info("User created successfully: {}", savedUser.getId());
+            logger.debug("User created successfully: {}", savedUser.getId());
 
             // Remove password from response
             savedUser.setPassword(null);
 
-            MDC.clear();
-            return ResponseEntity.ok(savedUser);
+            return okAfterWrite().eTag(UserEntityTags.of(savedUser, UserView.FIELDS)).body(savedUser);
+        } catch (PasswordHashingRejectedException e) {
+            logger.warn("Rejected user creation: {}", e.getMessage());
+            return hashingUnavailable(e);
+        } catch (DuplicateUserException e) {
+            logger.warn("Error creating user: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (RuntimeException e) {
             logger.error("Error creating user: {}", e.getMessage());
-            MDC.clear();
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Create users in bulk", description = "Create many users from a JSON array; returns one result per item")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Import processed; see per-item results"),
+        @ApiResponse(responseCode = "400", description = "Malformed request body"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> createUsers(@RequestBody List<User> users) {
+        logger.debug("POST /api/users/bulk - {} users", users.size());
+
+        try {
+            BulkUserResponse response = bulkUserService.createAll(users.iterator());
+
+            return okAfterWrite().body(response);
+        } catch (PasswordHashingRejectedException e) {
+            logger.warn("Rejected bulk import: {}", e.getMessage());
+            return hashingUnavailable(e);
+        }
+    }
+
+    @Operation(summary = "Create users in bulk from NDJSON", description = "Create many users from newline-delimited JSON; returns one result per line")
+    @PostMapping(value = "/bulk", consumes = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> createUsersFromNdjson(InputStream body) {
+        logger.debug("POST /api/users/bulk (ndjson)");
+
+        try (MappingIterator<User> users = objectMapper.readerFor(User.class).readValues(body)) {
+            BulkUserResponse response = bulkUserService.createAll(users);
+
+            return okAfterWrite().body(response);
+        } catch (PasswordHashingRejectedException e) {
+            logger.warn("Rejected bulk import: {}", e.getMessage());
+            return hashingUnavailable(e);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error importing users: {}", e.getMessage());
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
@@ -126,30 +357,45 @@ public class UserController {
         @ApiResponse(responseCode = "200", description = "User updated successfully"),
         @ApiResponse(responseCode = "400", description = "Invalid user data"),
         @ApiResponse(responseCode = "404", description = "User not found"),
+        @ApiResponse(responseCode = "409", description = "Email already in use, or version does not match"),
+        @ApiResponse(responseCode = "412", description = "User changed since the ETag in If-Match"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PutMapping("/{id}")
     public ResponseEntity<?> updateUser(
             @Parameter(description = "User ID") @PathVariable String id,
-            @Valid @RequestBody User user) {
-
-        String correlationId = UUID.randomUUID().toString();
-        MDC.put("correlationId", correlationId);
-
-        logger.info("PUT /api/users/{}", id);
+            @Valid @RequestBody User user,
+            @Parameter(description = "ETag the update is based on; * only requires the user to exist")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+
+        logger.debug("PUT /api/users/{}", id);
+
+        // If-Match takes precedence over a version in the body
+        if (ifMatch != null && !ifMatch.trim().equals("*")) {
+            Long version = UserEntityTags.version(ifMatch);
+            if (version == null) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("If-Match must be a user's strong ETag");
+            }
+            user.setVersion(version);
+        }
 
         try {
             User updatedUser = userService.update(id, user);
-            logger.info("User updated successfully: {}", updatedUser.getId());
+            logger.debug("User updated successfully: {}", updatedUser.getId());
 
             // Remove password from response
             updatedUser.setPassword(null);
 
-            MDC.clear();
-            return ResponseEntity.ok(updatedUser);
+            return okAfterWrite().eTag(UserEntityTags.of(updatedUser, UserView.FIELDS)).body(updatedUser);
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Conflict updating user: {}", e.getMessage());
+            return ResponseEntity.status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                    .body(e.getMessage());
+        } catch (DuplicateUserException e) {
+            logger.warn("Conflict updating user: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (RuntimeException e) {
             logger.error("Error updating user: {}", e.getMessage());
-            MDC.clear();
             return ResponseEntity.notFound().build();
         }
     }
@@ -162,20 +408,15 @@ public class UserController {
     })
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteUser(@Parameter(description = "User ID") @PathVariable String id) {
-        String correlationId = UUID.randomUUID().toString();
-        MDC.put("correlationId", correlationId);
-
-        logger.info("DELETE /api/users/{}", id);
+        logger.debug("DELETE /api/users/{}", id);
 
         try {
             userService.deleteById(id);
-            logger.info("User deleted successfully: {}", id);
+            logger.debug("User deleted successfully: {}", id);
 
-            MDC.clear();
-            return ResponseEntity.ok().build();
+            return okAfterWrite().build();
         } catch (RuntimeException e) {
             logger.error("Error deleting user: {}", e.getMessage());
-            MDC.clear();
             return ResponseEntity.notFound().build();
         }
     }
@@ -186,58 +427,161 @@ public class UserController {
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/search")
-    public ResponseEntity<Page<User>> searchUsers(
+    public ResponseEntity<?> searchUsers(
             @Parameter(description = "Search keyword") @RequestParam String keyword,
             @Parameter(description = "Page number") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size) {
-
-        String correlationId = UUID.randomUUID().toString();
-        MDC.put("correlationId", correlationId);
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,username (default: all)") @RequestParam(required = false) String fields) {
 
-        logger.info("GET /api/users/search - keyword: {}", keyword);
+        logger.debug("GET /api/users/search - keyword: {}", keyword);
 
-        Pageable pageable = PageRequest.of(page, size);
-        Page<User> users = userService.searchUsers(keyword, pageable);
+        try {
+            Set<String> selected = UserView.parseFields(fields);
+            Pageable pageable = PageRequest.of(page, size);
+            Page<?> users = rawJson
+                    ? userService.searchRawUsers(keyword, pageable, selected)
+                    : userService.searchUsers(keyword, pageable).map(user -> UserView.of(user, selected));
 
-        logger.info("Search returned {} users", users.getTotalElements());
+            logger.debug("Search returned {} users", users.getTotalElements());
 
-        MDC.clear();
-        return ResponseEntity.ok(users);
+            return ResponseEntity.ok(users);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error searching users: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
-    @Operation(summary = "Get active users", description = "Retrieve all active users")
+    @Operation(summary = "Get active users", description = "Retrieve all active users as a JSON array streamed from a cursor")
     @GetMapping("/active")
-    public ResponseEntity<List<User>> getActiveUsers() {
-        String correlationId = UUID.randomUUID().toString();
-        MDC.put("correlationId", correlationId);
+    public ResponseEntity<StreamingResponseBody> getActiveUsers(
+            @Parameter(description = "Comma-separated fields to return, e.g. id,username (default: all)") @RequestParam(required = false) String fields) {
+        logger.debug("GET /api/users/active");
+
+        Set<String> selected;
+        try {
+            selected = UserView.parseFields(fields);
+        } catch (IllegalArgumentException e) {
+            byte[] message = e.getMessage().getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(out -> out.write(message));
+        }
 
-        logger.info("GET /api/users/active");
+        StreamingResponseBody body = withCorrelationId(out -> {
+            try (Stream<?> users = rawJson
+                    ? userService.streamActiveRawViews(selected)
+                    : userService.streamActiveViews(selected)) {
+                long written = ndjsonUserWriter.writeArray(users, out);
+                logger.debug("Retrieved {} active users", written);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
 
-        List<User> activeUsers = userService.findActiveUsers();
-        logger.info("Retrieved {} active users", activeUsers.size());
+    @Operation(summary = "Stream active users", description = "Stream all active users as newline-delimited JSON")
+    @GetMapping(value = "/active", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamActiveUsers() {
+        logger.debug("GET /api/users/active (stream)");
+
+        StreamingResponseBody body = withCorrelationId(out -> {
+            try (Stream<User> users = userService.streamActiveUsers()) {
+                long written = ndjsonUserWriter.write(users, out);
+                logger.debug("Streamed {} active users", written);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
 
-        MDC.clear();
-        return ResponseEntity.ok(activeUsers);
+    // A streamed body is written on an async thread, outside the request filter's MDC scope
+    private static StreamingResponseBody withCorrelationId(StreamingResponseBody body) {
+        String correlationId = MDC.get(CorrelationIdFilter.CORRELATION_ID);
+        return out -> {
+            if (correlationId != null) {
+                MDC.put(CorrelationIdFilter.CORRELATION_ID, correlationId);
+            }
+            try {
+                body.writeTo(out);
+            } finally {
+                MDC.remove(CorrelationIdFilter.CORRELATION_ID);
+            }
+        };
     }
 
     @Operation(summary = "Get user statistics", description = "Get user count statistics")
     @GetMapping("/stats")
     public ResponseEntity<?> getUserStats() {
-        String correlationId = UUID.randomUUID().toString();
-        MDC.put("correlationId", correlationId);
-
-        logger.info("GET /api/users/stats");
+        logger.debug("GET /api/users/stats");
 
-        long activeUsers = userService.countActiveUsers();
+        UserStats userStats = userStatsService.getStats();
 
         var stats = new Object() {
-            public final long activeUsers = userService.countActiveUsers();
+            public final long activeUsers = userStats.getActiveUsers();
+            public final long inactiveUsers = userStats.getInactiveUsers();
+            public final long totalUsers = userStats.getTotalUsers();
+            public final LocalDateTime reconciledAt = userStats.getReconciledAt();
             public final String timestamp = java.time.Instant.now().toString();
         };
 
-        logger.info("Active users count: {}", activeUsers);
+        logger.debug("Active users count: {}", userStats.getActiveUsers());
 
-        MDC.clear();
         return ResponseEntity.ok(stats);
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Get daily signups", description = "Users created per day, oldest first; defaults to the last 30 days")
+    @GetMapping("/stats/signups")
+    public ResponseEntity<?> getDailySignups(
+            @Parameter(description = "First day (ISO date)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day (ISO date)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        LocalDate lastDay = to != null ? to : LocalDate.now();
+        LocalDate firstDay = from != null ? from : lastDay.minusDays(29);
+
+        try {
+            List<DailySignups> signups = userStatsService.getDailySignups(firstDay, lastDay);
+            return ResponseEntity.ok(signups);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * 200 carrying the write's operation time; clients that send it back as
+     * {@value MongoReadRouting#READ_AFTER_HEADER} read their own writes even
+     * from secondaries.
+     */
+    private static ResponseEntity.BodyBuilder okAfterWrite() {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        String token = MongoReadRouting.lastWriteToken();
+        if (token != null) {
+            ok.header(MongoReadRouting.READ_AFTER_HEADER, token);
+        }
+        return ok;
+    }
+
+    /**
+     * Tag for list pages, or {@code null} when no users revision is kept. The
+     * revision is read before the page, so a write racing the request leaves
+     * the tag older than the page, never newer. Pages from secondaries can
+     * lag the revision, so they are not tagged.
+     */
+    private String listTag() {
+        if (readRouting.isEnabled()) {
+            return null;
+        }
+        return userStatsService.getRevision().map(UserEntityTags::ofRevision).orElse(null);
+    }
+
+    private static ResponseEntity<?> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+
+    private ResponseEntity<String> hashingUnavailable(PasswordHashingRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
+    }
+}
@@ -0,0 +1,80 @@
+package com.devops.springmongo.controller;
+
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserView;
+
+import java.time.ZoneOffset;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Entity tags for user resources.
+ *
+ * <p>A single user is tagged with its version, {@code "7"}, so the tag changes
+ * with every update and can be sent back as {@code If-Match}. A field
+ * selection adds a suffix, {@code "7-1a2b3c"}, since the representation
+ * differs. Users stored without a version fall back to a weak tag from
+ * {@code updatedAt}, which is good for {@code If-None-Match} only.
+ *
+ * <p>List pages share one weak tag from the users revision, {@code W/"r42"}:
+ * any user write changes it, however cheap the page was to build.
+ */
+final class UserEntityTags {
+
+    private UserEntityTags() {}
+
+    /** Tag of {@code user} as rendered with {@code fields}, or {@code null} if it has neither version nor updatedAt. */
+    static String of(User user, Set<String> fields) {
+        String suffix = fields.equals(UserView.FIELDS)
+                ? ""
+                : "-" + Integer.toHexString(String.join(",", new TreeSet<>(fields)).hashCode());
+        if (user.getVersion() != null) {
+            return "\"" + user.getVersion() + suffix + "\"";
+        }
+        if (user.getUpdatedAt() != null) {
+            return "W/\"t" + user.getUpdatedAt().toInstant(ZoneOffset.UTC).toEpochMilli() + suffix + "\"";
+        }
+        return null;
+    }
+
+    static String ofRevision(long revision) {
+        return "W/\"r" + revision + "\"";
+    }
+
+    /** Weak comparison of {@code etag} against an {@code If-None-Match} list, as RFC 9110 requires for GET. */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || opaque(candidate).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Version named by a strong {@code If-Match} tag, or {@code null} if the
+     * value is weak, a list, or not a version tag; such a precondition can
+     * never hold.
+     */
+    static Long version(String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"' || tag.indexOf(',') >= 0) {
+            return null;
+        }
+        int end = tag.indexOf('-');
+        try {
+            return Long.parseLong(tag, 1, end > 0 ? end : tag.length() - 1, 10);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
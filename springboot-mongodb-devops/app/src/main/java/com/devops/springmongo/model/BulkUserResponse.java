@@ -0,0 +1,31 @@
+package com.devops.springmongo.model;
+
+import java.util.List;
+
+/**
+ * Summary and per-item results of a bulk user import.
+ */
+public class BulkUserResponse {
+
+    private final int total;
+    private final int created;
+    private final int rejected;
+    private final List<BulkUserResult> results;
+
+    public BulkUserResponse(List<BulkUserResult> results) {
+        this.results = results;
+        this.total = results.size();
+        this.created = (int) results.stream()
+                .filter(result -> result.getStatus() == BulkUserResult.Status.CREATED)
+                .count();
+        this.rejected = total - created;
+    }
+
+    public int getTotal() { return total; }
+
+    public int getCreated() { return created; }
+
+    public int getRejected() { return rejected; }
+
+    public List<BulkUserResult> getResults() { return results; }
+}
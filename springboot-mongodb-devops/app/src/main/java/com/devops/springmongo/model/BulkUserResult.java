@@ -0,0 +1,42 @@
+package com.devops.springmongo.model;
+
+/**
+ * Outcome of one item in a bulk user import, identified by its position in
+ * the request body.
+ */
+public class BulkUserResult {
+
+    public enum Status { CREATED, DUPLICATE, INVALID, FAILED }
+
+    private final int index;
+    private final String username;
+    private final Status status;
+    private final String id;
+    private final String message;
+
+    public BulkUserResult(int index, String username, Status status, String id, String message) {
+        this.index = index;
+        this.username = username;
+        this.status = status;
+        this.id = id;
+        this.message = message;
+    }
+
+    public static BulkUserResult created(int index, User user) {
+        return new BulkUserResult(index, user.getUsername(), Status.CREATED, user.getId(), null);
+    }
+
+    public static BulkUserResult rejected(int index, User user, Status status, String message) {
+        return new BulkUserResult(index, user != null ? user.getUsername() : null, status, null, message);
+    }
+
+    public int getIndex() { return index; }
+
+    public String getUsername() { return username; }
+
+    public Status getStatus() { return status; }
+
+    public String getId() { return id; }
+
+    public String getMessage() { return message; }
+}
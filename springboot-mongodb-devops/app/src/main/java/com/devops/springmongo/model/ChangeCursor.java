@@ -0,0 +1,62 @@
+package com.devops.springmongo.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Checkpoint in the user change feed: the (change time, _id) pair of the
+ * last change a consumer has seen. Changes are read strictly after it, in
+ * that order, from the {@code updatedAt_id} index on users and the
+ * {@code deletedAt} index on tombstones.
+ */
+public class ChangeCursor {
+
+    /** Before every change; a consumer without a checkpoint starts here. */
+    public static final ChangeCursor START = new ChangeCursor(LocalDateTime.of(1970, 1, 1, 0, 0), "");
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime changedAt;
+    private final String lastId;
+
+    public ChangeCursor(LocalDateTime changedAt, String lastId) {
+        this.changedAt = changedAt;
+        this.lastId = lastId;
+    }
+
+    public static ChangeCursor decode(String token) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid change token");
+        }
+
+        String[] parts = decoded.split("\\" + SEPARATOR, 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid change token");
+        }
+        try {
+            return new ChangeCursor(LocalDateTime.parse(parts[0]), parts[1]);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid change token");
+        }
+    }
+
+    public String encode() {
+        String raw = changedAt + SEPARATOR + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Orders checkpoints as the feed does: by change time, then by id. */
+    public int compareTo(LocalDateTime otherChangedAt, String otherId) {
+        int byTime = changedAt.compareTo(otherChangedAt);
+        return byTime != 0 ? byTime : lastId.compareTo(otherId);
+    }
+
+    public LocalDateTime getChangedAt() { return changedAt; }
+
+    public String getLastId() { return lastId; }
+}
@@ -0,0 +1,30 @@
+package com.devops.springmongo.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Number of existing users created on one day, keyed by the ISO date
+ * ({@code yyyy-MM-dd}) of their {@code createdAt}.
+ */
+@Document(collection = "user_signups_daily")
+public class DailySignups {
+
+    @Id
+    private String date;
+
+    private long count;
+
+    public DailySignups() {}
+
+    public DailySignups(String date, long count) {
+        this.date = date;
+        this.count = count;
+    }
+
+    public String getDate() { return date; }
+    public void setDate(String date) { this.date = date; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+}
@@ -0,0 +1,122 @@
+package com.devops.springmongo.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonReader;
+import org.bson.BsonString;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Set;
+
+/**
+ * A user document as read from MongoDB, still in BSON, that serializes
+ * itself to the same JSON as {@link UserView}. List endpoints return these
+ * so a response is transcoded straight from the driver's bytes, with no
+ * entity mapping and no {@link User} or {@link UserView} per document.
+ *
+ * <p>Only {@code fields} are written, so the password hash and search tokens
+ * never reach the output even if the document holds them. Field order follows
+ * the stored document. Dates are converted to {@link LocalDateTime} in the JVM
+ * time zone and written by Jackson, as the mapping layer would.
+ */
+public class RawUserView implements JsonSerializable {
+
+    private final RawBsonDocument document;
+    private final Set<String> fields;
+
+    public RawUserView(RawBsonDocument document, Set<String> fields) {
+        this.document = document;
+        this.fields = fields;
+    }
+
+    /** Encodes {@code user} for repositories that do not read BSON, such as the in-memory one. */
+    public static RawUserView of(User user, Set<String> fields) {
+        BsonDocument document = new BsonDocument("_id", new BsonString(user.getId()));
+        putString(document, "username", user.getUsername());
+        putString(document, "email", user.getEmail());
+        putString(document, "firstName", user.getFirstName());
+        putString(document, "lastName", user.getLastName());
+        document.put("active", BsonBoolean.valueOf(user.isActive()));
+        putDate(document, "createdAt", user.getCreatedAt());
+        putDate(document, "updatedAt", user.getUpdatedAt());
+        if (user.getVersion() != null) {
+            document.put("version", new BsonInt64(user.getVersion()));
+        }
+        return new RawUserView(new RawBsonDocument(document, new BsonDocumentCodec()), fields);
+    }
+
+    /** The name fields search ranks by; other properties stay unset. */
+    public User names() {
+        User user = new User();
+        user.setUsername(string("username"));
+        user.setEmail(string("email"));
+        user.setFirstName(string("firstName"));
+        user.setLastName(string("lastName"));
+        return user;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject();
+        try (BsonReader reader = document.asBsonReader()) {
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                String field = name.equals("_id") ? "id" : name;
+                if (!fields.contains(field)) {
+                    reader.skipValue();
+                    continue;
+                }
+                switch (reader.getCurrentBsonType()) {
+                    case STRING -> generator.writeStringField(field, reader.readString());
+                    case OBJECT_ID -> generator.writeStringField(field, reader.readObjectId().toHexString());
+                    case BOOLEAN -> generator.writeBooleanField(field, reader.readBoolean());
+                    case INT32 -> generator.writeNumberField(field, reader.readInt32());
+                    case INT64 -> generator.writeNumberField(field, reader.readInt64());
+                    case DATE_TIME -> provider.defaultSerializeField(field, LocalDateTime.ofInstant(
+                            Instant.ofEpochMilli(reader.readDateTime()), ZoneId.systemDefault()), generator);
+                    // nulls are left out, like the NON_NULL inclusion of every other response
+                    default -> reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+        }
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer)
+            throws IOException {
+        serialize(generator, provider);
+    }
+
+    private String string(String key) {
+        BsonValue value = document.get(key);
+        return value != null && value.isString() ? value.asString().getValue() : null;
+    }
+
+    private static void putString(BsonDocument document, String key, String value) {
+        if (value != null) {
+            document.put(key, new BsonString(value));
+        }
+    }
+
+    private static void putDate(BsonDocument document, String key, LocalDateTime value) {
+        if (value != null) {
+            document.put(key, new BsonDateTime(value.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.devops.springmongo.model;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of ranked search hits. Search ranks at most
+ * {@code app.search.max-candidates} index hits; when more users match,
+ * {@code capped} is true, the total is the size of that window rather than
+ * the number of matches, and pages only reach into the window.
+ */
+public class SearchPage<T> extends PageImpl<T> {
+
+    private final boolean capped;
+
+    public SearchPage(List<T> content, Pageable pageable, long total, boolean capped) {
+        super(content, pageable, total);
+        this.capped = capped;
+    }
+
+    public boolean isCapped() { return capped; }
+
+    @Override
+    public <U> SearchPage<U> map(Function<? super T, ? extends U> converter) {
+        return new SearchPage<>(getConvertedContent(converter), getPageable(), getTotalElements(), capped);
+    }
+}
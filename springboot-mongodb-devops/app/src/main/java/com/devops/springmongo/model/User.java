@@ -1,18 +1,28 @@
 package com.devops.springmongo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Objects;
 
 @Document(collection = "users")
+@CompoundIndexes({
+    @CompoundIndex(name = "createdAt_id", def = "{ 'createdAt': 1, '_id': 1 }"),
+    // change feed order, see ChangeCursor
+    @CompoundIndex(name = "updatedAt_id", def = "{ 'updatedAt': 1, '_id': 1 }")
+})
 public class User {
 
     @Id
@@ -49,9 +59,31 @@ public class User {
     @LastModifiedDate
     private LocalDateTime updatedAt;
 
+    // Optimistic-lock revision, incremented by every update
+    @Version
+    private Long version;
+
+    @JsonIgnore
+    @Indexed
+    private List<String> searchTokens;
+
     // Constructors
     public User() {}
 
+    public User(User source) {
+        this.id = source.id;
+        this.username = source.username;
+        this.email = source.email;
+        this.password = source.password;
+        this.firstName = source.firstName;
+        this.lastName = source.lastName;
+        this.active = source.active;
+        this.createdAt = source.createdAt;
+        this.updatedAt = source.updatedAt;
+        this.version = source.version;
+        this.searchTokens = source.searchTokens;
+    }
+
     public User(String username, String email, String password, String firstName, String lastName) {
         this.username = username;
         this.email = email;
@@ -88,6 +120,12 @@ public class User {
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public List<String> getSearchTokens() { return searchTokens; }
+    public void setSearchTokens(List<String> searchTokens) { this.searchTokens = searchTokens; }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,42 @@
+package com.devops.springmongo.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the change feed: the current state of a created or updated
+ * user, or the id of a deleted one.
+ */
+public class UserChange {
+
+    private final String id;
+    private final boolean deleted;
+    private final LocalDateTime changedAt;
+    private final UserView user;
+
+    private UserChange(String id, boolean deleted, LocalDateTime changedAt, UserView user) {
+        this.id = id;
+        this.deleted = deleted;
+        this.changedAt = changedAt;
+        this.user = user;
+    }
+
+    public static UserChange upserted(User user) {
+        return new UserChange(user.getId(), false, user.getUpdatedAt(), UserView.of(user, UserView.FIELDS));
+    }
+
+    public static UserChange deleted(UserTombstone tombstone) {
+        return new UserChange(tombstone.getId(), true, tombstone.getDeletedAt(), null);
+    }
+
+    public ChangeCursor cursor() {
+        return new ChangeCursor(changedAt, id);
+    }
+
+    public String getId() { return id; }
+
+    public boolean isDeleted() { return deleted; }
+
+    public LocalDateTime getChangedAt() { return changedAt; }
+
+    public UserView getUser() { return user; }
+}
@@ -0,0 +1,27 @@
+package com.devops.springmongo.model;
+
+import java.util.List;
+
+/**
+ * One page of the change feed. {@code next} is the checkpoint to send as
+ * {@code since} on the following call; it is returned even when there were
+ * no changes, so a consumer can keep polling with whatever it got last.
+ */
+public class UserChanges {
+
+    private final List<UserChange> changes;
+    private final boolean hasMore;
+    private final String next;
+
+    public UserChanges(List<UserChange> changes, boolean hasMore, String next) {
+        this.changes = changes;
+        this.hasMore = hasMore;
+        this.next = next;
+    }
+
+    public List<UserChange> getChanges() { return changes; }
+
+    public boolean isHasMore() { return hasMore; }
+
+    public String getNext() { return next; }
+}
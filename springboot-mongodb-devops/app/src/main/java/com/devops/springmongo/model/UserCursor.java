@@ -0,0 +1,124 @@
+package com.devops.springmongo.model;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Opaque continuation token for keyset pagination over the users collection.
+ * Encodes the sort field, direction and the (sortValue, _id) pair of the last
+ * document returned, so the next page can seek past it through the index
+ * instead of skipping entries.
+ */
+public class UserCursor {
+
+    /**
+     * Sort fields a cursor can seek on: createdAt through its (createdAt, _id)
+     * index, username and email through their unique indexes, and _id.
+     */
+    public static final Set<String> SORT_FIELDS = Set.of("createdAt", "username", "email", "id");
+
+    private static final String SEPARATOR = "|";
+
+    private final String sortField;
+    private final Sort.Direction direction;
+    private final String lastId;
+    private final String lastValue;
+
+    public UserCursor(String sortField, Sort.Direction direction, String lastId, String lastValue) {
+        this.sortField = sortField;
+        this.direction = direction;
+        this.lastId = lastId;
+        this.lastValue = lastValue;
+    }
+
+    public static UserCursor after(String sortField, Sort.Direction direction, User user) {
+        String value;
+        switch (sortField) {
+            case "createdAt":
+                value = user.getCreatedAt() != null ? user.getCreatedAt().toString() : "";
+                break;
+            case "username":
+                value = user.getUsername();
+                break;
+            case "email":
+                value = user.getEmail();
+                break;
+            default:
+                value = "";
+        }
+        return new UserCursor(sortField, direction, user.getId(), value);
+    }
+
+    /**
+     * The position a scan continues from: {@code token} when one is given,
+     * which carries its own sort, otherwise the start of a new scan sorted by
+     * {@code sortBy}/{@code sortDir}.
+     */
+    public static UserCursor parse(String token, String sortBy, String sortDir) {
+        if (token != null && !token.isBlank()) {
+            return decode(token);
+        }
+        if (!SORT_FIELDS.contains(sortBy)) {
+            throw new IllegalArgumentException("Cursor pagination is not supported for sort field: " + sortBy);
+        }
+        Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return new UserCursor(sortBy, direction, null, null);
+    }
+
+    public static UserCursor decode(String token) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        String[] parts = decoded.split("\\" + SEPARATOR, 4);
+        if (parts.length != 4 || !SORT_FIELDS.contains(parts[0])) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        Sort.Direction direction = Sort.Direction.fromOptionalString(parts[1])
+                .orElseThrow(() -> new IllegalArgumentException("Invalid cursor"));
+        return new UserCursor(parts[0], direction, parts[2], parts[3]);
+    }
+
+    public String encode() {
+        String raw = sortField + SEPARATOR + direction.name() + SEPARATOR + lastId + SEPARATOR + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the last sort value converted to the type stored in MongoDB,
+     * or {@code null} when the cursor sorts on {@code id} alone.
+     */
+    public Object getTypedValue() {
+        if ("id".equals(sortField)) {
+            return null;
+        }
+        if ("createdAt".equals(sortField)) {
+            try {
+                return LocalDateTime.parse(lastValue);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        return lastValue;
+    }
+
+    /** True for the start of a scan, which has no last document to seek past. */
+    public boolean isStart() { return lastId == null; }
+
+    public String getSortField() { return sortField; }
+
+    public Sort.Direction getDirection() { return direction; }
+
+    public String getLastId() { return lastId; }
+
+    public String getLastValue() { return lastValue; }
+}
@@ -0,0 +1,32 @@
+package com.devops.springmongo.model;
+
+import java.util.List;
+
+/**
+ * One page of a keyset scan. Unlike {@link org.springframework.data.domain.Page}
+ * it carries no total count, so producing it never requires a countDocuments.
+ */
+public class UserSlice<T> {
+
+    private final List<T> content;
+    private final int size;
+    private final boolean hasNext;
+    private final String nextCursor;
+
+    public UserSlice(List<T> content, int size, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() { return content; }
+
+    public int getSize() { return size; }
+
+    public int getNumberOfElements() { return content.size(); }
+
+    public boolean isHasNext() { return hasNext; }
+
+    public String getNextCursor() { return nextCursor; }
+}
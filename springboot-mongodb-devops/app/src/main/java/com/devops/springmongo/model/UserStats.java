@@ -0,0 +1,59 @@
+package com.devops.springmongo.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Materialized user totals. A single document, kept current with {@code $inc}
+ * on every user write and corrected, also with {@code $inc}, by the periodic
+ * reconcile.
+ *
+ * <p>{@code revision} is bumped by every user write and every reconcile, and
+ * serves as the change marker behind the list endpoints' ETags.
+ */
+@Document(collection = "user_stats")
+public class UserStats {
+
+    public static final String TOTALS_ID = "totals";
+
+    @Id
+    @JsonIgnore
+    private String id = TOTALS_ID;
+
+    private long activeUsers;
+
+    private long inactiveUsers;
+
+    private LocalDateTime reconciledAt;
+
+    @JsonIgnore
+    private long revision;
+
+    public UserStats() {}
+
+    public UserStats(long activeUsers, long inactiveUsers, LocalDateTime reconciledAt) {
+        this.activeUsers = activeUsers;
+        this.inactiveUsers = inactiveUsers;
+        this.reconciledAt = reconciledAt;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public long getActiveUsers() { return activeUsers; }
+    public void setActiveUsers(long activeUsers) { this.activeUsers = activeUsers; }
+
+    public long getInactiveUsers() { return inactiveUsers; }
+    public void setInactiveUsers(long inactiveUsers) { this.inactiveUsers = inactiveUsers; }
+
+    public long getTotalUsers() { return activeUsers + inactiveUsers; }
+
+    public LocalDateTime getReconciledAt() { return reconciledAt; }
+    public void setReconciledAt(LocalDateTime reconciledAt) { this.reconciledAt = reconciledAt; }
+
+    public long getRevision() { return revision; }
+    public void setRevision(long revision) { this.revision = revision; }
+}
@@ -0,0 +1,43 @@
+package com.devops.springmongo.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Marker left behind by a deleted user, so the change feed can report the
+ * deletion. Tombstones are removed by a TTL index after {@link #RETENTION};
+ * a consumer whose checkpoint is older than that has to resync in full.
+ */
+@Document(collection = "user_tombstones")
+// change feed order, see UserTombstoneRepository#findDeletedAfter
+@CompoundIndex(name = "deletedAt_id", def = "{ 'deletedAt': 1, '_id': 1 }")
+public class UserTombstone {
+
+    /** Keep in step with {@code expireAfter} on {@link #deletedAt}. */
+    public static final Duration RETENTION = Duration.ofDays(30);
+
+    // id of the deleted user
+    @Id
+    private String id;
+
+    @Indexed(name = "deletedAt_ttl", expireAfter = "30d")
+    private LocalDateTime deletedAt;
+
+    public UserTombstone() {}
+
+    public UserTombstone(String id, LocalDateTime deletedAt) {
+        this.id = id;
+        this.deletedAt = deletedAt;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public LocalDateTime getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(LocalDateTime deletedAt) { this.deletedAt = deletedAt; }
+}
@@ -0,0 +1,93 @@
+package com.devops.springmongo.model;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read model returned by the user read endpoints: the public properties of
+ * {@link User}, never the password hash or search tokens. Queries fetch only
+ * the fields a client asked for with {@code fields=}; the rest stay null and
+ * are left out of the JSON.
+ */
+public class UserView {
+
+    /** Selectable fields, in response order. {@code id} is always returned. */
+    public static final Set<String> FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(List.of(
+            "id", "username", "email", "firstName", "lastName", "active", "createdAt", "updatedAt", "version")));
+
+    private String id;
+    private String username;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private Boolean active;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private Long version;
+
+    public UserView() {}
+
+    /**
+     * Parses a comma-separated {@code fields=} value. Blank means all
+     * fields; {@code id} is always added.
+     */
+    public static Set<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return FIELDS;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String field : Arrays.stream(fields.split(",")).map(String::trim).filter(f -> !f.isEmpty()).toList()) {
+            if (!FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+            selected.add(field);
+        }
+        return selected;
+    }
+
+    public static UserView of(User user, Set<String> fields) {
+        UserView view = new UserView();
+        view.id = user.getId();
+        if (fields.contains("username")) view.username = user.getUsername();
+        if (fields.contains("email")) view.email = user.getEmail();
+        if (fields.contains("firstName")) view.firstName = user.getFirstName();
+        if (fields.contains("lastName")) view.lastName = user.getLastName();
+        if (fields.contains("active")) view.active = user.isActive();
+        if (fields.contains("createdAt")) view.createdAt = user.getCreatedAt();
+        if (fields.contains("updatedAt")) view.updatedAt = user.getUpdatedAt();
+        if (fields.contains("version")) view.version = user.getVersion();
+        return view;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public String getFirstName() { return firstName; }
+    public void setFirstName(String firstName) { this.firstName = firstName; }
+
+    public String getLastName() { return lastName; }
+    public void setLastName(String lastName) { this.lastName = lastName; }
+
+    public Boolean getActive() { return active; }
+    public void setActive(Boolean active) { this.active = active; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+}
@@ -0,0 +1,93 @@
+package com.devops.springmongo.repository;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free bit set over non-negative ints. Bits live in fixed-size
+ * segments that are allocated on first use, so the set grows without
+ * copying and every update is a single CAS on one word.
+ */
+final class ConcurrentBitSet {
+
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_BITS = 1 << SEGMENT_SHIFT;
+    private static final int WORDS_PER_SEGMENT = SEGMENT_BITS >>> 6;
+    private static final int MAX_SEGMENTS = 1 << 12;
+
+    private final AtomicReferenceArray<AtomicLongArray> segments = new AtomicReferenceArray<>(MAX_SEGMENTS);
+
+    void set(int bit) {
+        segment(bit, true).getAndAccumulate(word(bit), mask(bit), (current, mask) -> current | mask);
+    }
+
+    void clear(int bit) {
+        AtomicLongArray segment = segment(bit, false);
+        if (segment != null) {
+            segment.getAndAccumulate(word(bit), mask(bit), (current, mask) -> current & ~mask);
+        }
+    }
+
+    boolean get(int bit) {
+        AtomicLongArray segment = segment(bit, false);
+        return segment != null && (segment.get(word(bit)) & mask(bit)) != 0;
+    }
+
+    /** Returns the first set bit at or after {@code from}, or -1. */
+    int nextSetBit(int from) {
+        for (int s = from >>> SEGMENT_SHIFT; s < MAX_SEGMENTS; s++) {
+            AtomicLongArray segment = segments.get(s);
+            if (segment == null) {
+                continue;
+            }
+            int start = s == from >>> SEGMENT_SHIFT ? word(from) : 0;
+            for (int w = start; w < WORDS_PER_SEGMENT; w++) {
+                long bits = segment.get(w);
+                if (w == start && s == from >>> SEGMENT_SHIFT) {
+                    bits &= -1L << (from & 63);
+                }
+                if (bits != 0) {
+                    return (s << SEGMENT_SHIFT) + (w << 6) + Long.numberOfTrailingZeros(bits);
+                }
+            }
+        }
+        return -1;
+    }
+
+    int cardinality() {
+        int count = 0;
+        for (int s = 0; s < MAX_SEGMENTS; s++) {
+            AtomicLongArray segment = segments.get(s);
+            if (segment != null) {
+                for (int w = 0; w < WORDS_PER_SEGMENT; w++) {
+                    count += Long.bitCount(segment.get(w));
+                }
+            }
+        }
+        return count;
+    }
+
+    private AtomicLongArray segment(int bit, boolean create) {
+        if (bit < 0) {
+            throw new IndexOutOfBoundsException("bit < 0: " + bit);
+        }
+        int index = bit >>> SEGMENT_SHIFT;
+        if (index >= MAX_SEGMENTS) {
+            throw new IndexOutOfBoundsException("bit >= " + ((long) MAX_SEGMENTS << SEGMENT_SHIFT) + ": " + bit);
+        }
+        AtomicLongArray segment = segments.get(index);
+        if (segment == null && create) {
+            segments.compareAndSet(index, null, new AtomicLongArray(WORDS_PER_SEGMENT));
+            segment = segments.get(index);
+        }
+        return segment;
+    }
+
+    private static int word(int bit) {
+        return (bit & (SEGMENT_BITS - 1)) >>> 6;
+    }
+
+    private static long mask(int bit) {
+        return 1L << (bit & 63);
+    }
+}
@@ -0,0 +1,97 @@
+package com.devops.springmongo.repository;
+
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.support.ExampleMatcherAccessor;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Matches entities against a query-by-example probe the way the criteria
+ * Spring Data MongoDB derives from it would. Every persistent field of the
+ * probe takes part unless its path is ignored or it is null (unless the
+ * matcher includes nulls); primitives always take part, as they are never
+ * null. Strings follow the path's string matcher and case setting, other
+ * values must be equal, and the matcher decides whether all or any of the
+ * fields must match. Only top-level paths are configurable: nested objects
+ * are compared whole.
+ */
+final class ExamplePredicate implements Predicate<Object> {
+
+    private record Criterion(Field field, Object expected, ExampleMatcher.StringMatcher stringMatcher, boolean ignoreCase) {
+
+        boolean matches(Object entity) {
+            Object actual = ReflectionUtils.getField(field, entity);
+            if (expected == null || actual == null) {
+                return expected == actual;
+            }
+            if (expected instanceof String probe && actual instanceof String value) {
+                return matches(probe, value);
+            }
+            return Objects.equals(expected, actual);
+        }
+
+        private boolean matches(String probe, String value) {
+            if (stringMatcher == ExampleMatcher.StringMatcher.REGEX) {
+                return Pattern.compile(probe, ignoreCase ? Pattern.CASE_INSENSITIVE : 0).matcher(value).find();
+            }
+            String expected = ignoreCase ? probe.toLowerCase(Locale.ROOT) : probe;
+            String actual = ignoreCase ? value.toLowerCase(Locale.ROOT) : value;
+            return switch (stringMatcher) {
+                case STARTING -> actual.startsWith(expected);
+                case ENDING -> actual.endsWith(expected);
+                case CONTAINING -> actual.contains(expected);
+                default -> actual.equals(expected);
+            };
+        }
+    }
+
+    private final Class<?> probeType;
+    private final boolean allMatching;
+    private final List<Criterion> criteria = new ArrayList<>();
+
+    ExamplePredicate(Example<?> example) {
+        ExampleMatcher matcher = example.getMatcher();
+        ExampleMatcherAccessor accessor = new ExampleMatcherAccessor(matcher);
+        Object probe = example.getProbe();
+        this.probeType = example.getProbeType();
+        this.allMatching = matcher.isAllMatching();
+        ReflectionUtils.doWithFields(probeType, field -> {
+            String path = field.getName();
+            if (accessor.isIgnoredPath(path)) {
+                return;
+            }
+            ReflectionUtils.makeAccessible(field);
+            Optional<Object> value = accessor.getValueTransformerForPath(path)
+                    .apply(Optional.ofNullable(ReflectionUtils.getField(field, probe)));
+            if (value.isPresent() || accessor.getNullHandler() == ExampleMatcher.NullHandler.INCLUDE) {
+                criteria.add(new Criterion(field, value.orElse(null),
+                        accessor.getStringMatcherForPath(path), accessor.isIgnoreCaseForPath(path)));
+            }
+        }, field -> !Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())
+                && !field.isAnnotationPresent(Transient.class));
+    }
+
+    @Override
+    public boolean test(Object entity) {
+        if (!probeType.isInstance(entity)) {
+            return false;
+        }
+        if (criteria.isEmpty()) {
+            return true;
+        }
+        return allMatching
+                ? criteria.stream().allMatch(criterion -> criterion.matches(entity))
+                : criteria.stream().anyMatch(criterion -> criterion.matches(entity));
+    }
+}
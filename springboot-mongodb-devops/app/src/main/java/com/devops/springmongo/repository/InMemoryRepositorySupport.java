@@ -0,0 +1,315 @@
+package com.devops.springmongo.repository;
+
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.query.FluentQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The {@link MongoRepository} contract for in-memory repositories, built on
+ * a handful of storage hooks. Entities are copied on the way in and out, as
+ * a round trip through MongoDB would. Sorting follows MongoDB: nulls first,
+ * missing properties compare as null. Query by example scans every entity
+ * with an {@link ExamplePredicate}, as there are no indexes to plan with.
+ */
+abstract class InMemoryRepositorySupport<T> implements MongoRepository<T, String> {
+
+    private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+    protected abstract String idOf(T entity);
+
+    /** Returns a copy of the stored entity. */
+    protected abstract Optional<T> load(String id);
+
+    /** Returns copies of all stored entities in no particular order. */
+    protected abstract Stream<T> loadAll();
+
+    /** Insert semantics: fails on an existing id or unique key, updates {@code entity} in place. */
+    protected abstract T create(T entity);
+
+    /** Save semantics: inserts or replaces, updates {@code entity} in place. */
+    protected abstract T write(T entity);
+
+    protected abstract boolean remove(String id);
+
+    /** Value of a sortable property, or {@code null} when the entity has no such property. */
+    protected abstract Object property(T entity, String name);
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends T> S insert(S entity) {
+        return (S) create(entity);
+    }
+
+    @Override
+    public <S extends T> List<S> insert(Iterable<S> entities) {
+        List<S> inserted = new ArrayList<>();
+        entities.forEach(entity -> inserted.add(insert(entity)));
+        return inserted;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends T> S save(S entity) {
+        return (S) write(entity);
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(entity -> saved.add(save(entity)));
+        return saved;
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return load(id);
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return load(id).isPresent();
+    }
+
+    @Override
+    public List<T> findAll() {
+        return loadAll().toList();
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        return loadAll().sorted(comparator(sort)).toList();
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        return page(loadAll(), pageable, count());
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<String> ids) {
+        return StreamSupport.stream(ids.spliterator(), false).map(this::load).flatMap(Optional::stream).toList();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        remove(id);
+    }
+
+    @Override
+    public void delete(T entity) {
+        remove(idOf(entity));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        ids.forEach(this::remove);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        loadAll().map(this::idOf).toList().forEach(this::remove);
+    }
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        return single(matching(example));
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        return matching(example).toList();
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        return matching(example).sorted(comparator(sort)).toList();
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        List<S> matches = matching(example).toList();
+        return page(matches.stream(), pageable, matches.size());
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        return matching(example).count();
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        return matching(example).findAny().isPresent();
+    }
+
+    @Override
+    public <S extends T, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        return queryFunction.apply(new ExampleQuery<>(example, Sort.unsorted(), 0, Function.identity()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S extends T> Stream<S> matching(Example<S> example) {
+        return loadAll().filter(new ExamplePredicate(example)).map(entity -> (S) entity);
+    }
+
+    private static <E> Optional<E> single(Stream<E> entities) {
+        List<E> matches = entities.limit(2).toList();
+        if (matches.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1);
+        }
+        return matches.stream().findFirst();
+    }
+
+    /** Sorts (when the pageable is sorted) and slices {@code entities}; {@code total} is the unpaged count. */
+    protected <E extends T> Page<E> page(Stream<E> entities, Pageable pageable, long total) {
+        Stream<E> ordered = pageable.getSort().isSorted() ? entities.sorted(comparator(pageable.getSort())) : entities;
+        if (pageable.isUnpaged()) {
+            List<E> content = ordered.toList();
+            return new PageImpl<>(content, pageable, content.size());
+        }
+        return new PageImpl<>(ordered.skip(pageable.getOffset()).limit(pageable.getPageSize()).toList(), pageable, total);
+    }
+
+    protected Comparator<T> comparator(Sort sort) {
+        Comparator<T> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<T> byProperty = Comparator.comparing(
+                    (T entity) -> comparable(property(entity, order.getProperty())),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Object value) {
+        return (Comparable<Object>) value;
+    }
+
+    /**
+     * The fluent query of {@link #findBy(Example, Function)}. Projections to
+     * a supertype of the entity or to an interface are supported; property
+     * selection is ignored, as every property is in memory anyway.
+     */
+    private final class ExampleQuery<S extends T, R> implements FluentQuery.FetchableFluentQuery<R> {
+
+        private final Example<S> example;
+        private final Sort sort;
+        private final int limit;
+        private final Function<? super S, ? extends R> projection;
+
+        ExampleQuery(Example<S> example, Sort sort, int limit, Function<? super S, ? extends R> projection) {
+            this.example = example;
+            this.sort = sort;
+            this.limit = limit;
+            this.projection = projection;
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> sortBy(Sort sort) {
+            return new ExampleQuery<>(example, this.sort.and(sort), limit, projection);
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> limit(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("Limit must not be negative");
+            }
+            return new ExampleQuery<>(example, sort, limit, projection);
+        }
+
+        @Override
+        public <P> FluentQuery.FetchableFluentQuery<P> as(Class<P> resultType) {
+            return new ExampleQuery<>(example, sort, limit, entity -> projectAs(entity, resultType));
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> project(Collection<String> properties) {
+            return this;
+        }
+
+        @Override
+        public R oneValue() {
+            return single(fetch()).orElse(null);
+        }
+
+        @Override
+        public R firstValue() {
+            return fetch().findFirst().orElse(null);
+        }
+
+        @Override
+        public List<R> all() {
+            return fetch().toList();
+        }
+
+        @Override
+        public Page<R> page(Pageable pageable) {
+            List<S> matches = matching(example).toList();
+            Pageable sorted = pageable.isPaged()
+                    ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort.and(pageable.getSort()))
+                    : Pageable.unpaged(sort.and(pageable.getSort()));
+            return InMemoryRepositorySupport.this.page(matches.stream(), sorted, matches.size())
+                    .map(projection::apply);
+        }
+
+        @Override
+        public Stream<R> stream() {
+            return fetch();
+        }
+
+        @Override
+        public long count() {
+            long count = matching(example).count();
+            return limit > 0 ? Math.min(count, limit) : count;
+        }
+
+        @Override
+        public boolean exists() {
+            return matching(example).findAny().isPresent();
+        }
+
+        private Stream<R> fetch() {
+            Stream<S> matches = matching(example);
+            if (sort.isSorted()) {
+                matches = matches.sorted(comparator(sort));
+            }
+            if (limit > 0) {
+                matches = matches.limit(limit);
+            }
+            return matches.map(projection);
+        }
+    }
+
+    private static <P> P projectAs(Object entity, Class<P> resultType) {
+        if (resultType.isInstance(entity)) {
+            return resultType.cast(entity);
+        }
+        if (resultType.isInterface()) {
+            return PROJECTIONS.createProjection(resultType, entity);
+        }
+        throw new UnsupportedOperationException("Cannot project " + entity.getClass().getSimpleName()
+                + " to " + resultType.getSimpleName() + "; use a supertype or an interface");
+    }
+}
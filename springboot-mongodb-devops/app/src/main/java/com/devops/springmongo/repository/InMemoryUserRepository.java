@@ -0,0 +1,732 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.RawUserView;
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserCursor;
+import com.devops.springmongo.model.UserView;
+import com.devops.springmongo.service.SearchTokenizer;
+import jakarta.annotation.PostConstruct;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * {@link UserRepository} held entirely in memory, for local development and
+ * for load tests that should measure the service rather than MongoDB.
+ * Selected by the {@code inmemory} profile; nothing is persisted.
+ *
+ * <p>Users are kept behind hash indexes on id, username and email, a sorted
+ * index on (createdAt, id), a bit set of active users and a search-token
+ * index. Stored users are never mutated: each write swaps in a new copy
+ * under a lock on that user's entry only, and readers take the current copy
+ * without locking. Unique keys are claimed with {@code putIfAbsent} and
+ * violations raise the same {@link DuplicateKeyException} MongoDB would.
+ */
+// @Component rather than @Repository: without MongoDB there is no exception translator to proxy with
+@Component
+@Profile("inmemory")
+public class InMemoryUserRepository extends InMemoryRepositorySupport<User> implements UserRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryUserRepository.class);
+
+    // BCrypt hash of "password", so seeding does not spend startup time hashing
+    private static final String SEED_PASSWORD_HASH = "$2a$10$B9kwzJVX0b8PzBwqqzyY6u5FQFA22X2uFuRYUPfhhHkzfj.bnw3Nq";
+
+    private static final class Entry {
+        final String id;
+        final int ordinal;
+        // A lock rather than a monitor, so that virtual threads waiting on it do not pin their carrier
+        final ReentrantLock lock = new ReentrantLock();
+        // Replaced under the entry lock; null once the user is removed
+        volatile User user;
+
+        Entry(String id, int ordinal, User user) {
+            this.id = id;
+            this.ordinal = ordinal;
+            this.user = user;
+        }
+    }
+
+    private record CreatedKey(LocalDateTime createdAt, String id) implements Comparable<CreatedKey> {
+        private static final Comparator<CreatedKey> ORDER = Comparator
+                .comparing(CreatedKey::createdAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(CreatedKey::id);
+
+        @Override
+        public int compareTo(CreatedKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> byId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Entry> byOrdinal = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> idByUsername = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> idByEmail = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<CreatedKey> byCreatedAt = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<String, Set<String>> idsByToken = new ConcurrentHashMap<>();
+    private final ConcurrentBitSet active = new ConcurrentBitSet();
+    private final AtomicInteger nextOrdinal = new AtomicInteger();
+
+    @Value("${app.inmemory.seed-users:0}")
+    int seedUsers;
+
+    /** Pre-populates {@code app.inmemory.seed-users} users so load tests start from a realistic data set. */
+    @PostConstruct
+    void seed() {
+        for (int i = 0; i < seedUsers; i++) {
+            create(new User("user" + i, "user" + i + "@example.com", SEED_PASSWORD_HASH, "First" + i, "Last" + i));
+        }
+        if (seedUsers > 0) {
+            logger.info("Seeded {} in-memory users", seedUsers);
+        }
+    }
+
+    // Storage hooks
+
+    @Override
+    protected String idOf(User user) {
+        return user.getId();
+    }
+
+    @Override
+    protected Optional<User> load(String id) {
+        return stored(id).map(User::new);
+    }
+
+    @Override
+    protected Stream<User> loadAll() {
+        return stored().map(User::new);
+    }
+
+    @Override
+    protected User create(User user) {
+        LocalDateTime now = now();
+        String id = user.getId() != null ? user.getId() : new ObjectId().toHexString();
+        user.setId(id);
+        if (user.getCreatedAt() == null) {
+            user.setCreatedAt(now);
+        }
+        user.setUpdatedAt(now);
+        if (user.getVersion() == null) {
+            user.setVersion(0L);
+        }
+        user.setSearchTokens(SearchTokenizer.tokensFor(user));
+
+        User current = new User(user);
+        Entry entry = new Entry(id, nextOrdinal.getAndIncrement(), current);
+        entry.lock.lock();
+        try {
+            boolean usernameClaimed = claim(idByUsername, "username", current.getUsername(), id);
+            boolean emailClaimed;
+            try {
+                emailClaimed = claim(idByEmail, "email", current.getEmail(), id);
+            } catch (DuplicateKeyException e) {
+                if (usernameClaimed) {
+                    release(idByUsername, current.getUsername(), id);
+                }
+                throw e;
+            }
+            if (byId.putIfAbsent(id, entry) != null) {
+                if (usernameClaimed) {
+                    release(idByUsername, current.getUsername(), id);
+                }
+                if (emailClaimed) {
+                    release(idByEmail, current.getEmail(), id);
+                }
+                throw duplicate("_id_", id);
+            }
+            index(entry, null, current);
+        } finally {
+            entry.lock.unlock();
+        }
+        return user;
+    }
+
+    /**
+     * Versioned save, as Spring Data does it: a user without a version is
+     * inserted, one with a version replaces the stored user only if the
+     * versions match.
+     */
+    @Override
+    protected User write(User user) {
+        if (user.getVersion() == null) {
+            return create(user);
+        }
+        Entry entry = user.getId() != null ? byId.get(user.getId()) : null;
+        if (entry == null) {
+            throw versionConflict(user);
+        }
+        entry.lock.lock();
+        try {
+            User previous = entry.user;
+            if (previous == null || !user.getVersion().equals(previous.getVersion())) {
+                throw versionConflict(user);
+            }
+            User current = new User(user);
+            current.setUpdatedAt(now());
+            current.setVersion(previous.getVersion() + 1);
+            current.setSearchTokens(SearchTokenizer.tokensFor(current));
+
+            swap(idByUsername, "username", previous.getUsername(), current.getUsername(), entry.id);
+            try {
+                swap(idByEmail, "email", previous.getEmail(), current.getEmail(), entry.id);
+            } catch (DuplicateKeyException e) {
+                swap(idByUsername, "username", current.getUsername(), previous.getUsername(), entry.id);
+                throw e;
+            }
+            entry.user = current;
+            index(entry, previous, current);
+
+            user.setUpdatedAt(current.getUpdatedAt());
+            user.setVersion(current.getVersion());
+            user.setSearchTokens(current.getSearchTokens());
+        } finally {
+            entry.lock.unlock();
+        }
+        return user;
+    }
+
+    @Override
+    protected boolean remove(String id) {
+        return detach(id) != null;
+    }
+
+    @Override
+    protected Object property(User user, String name) {
+        return switch (name) {
+            case "id", "_id" -> user.getId();
+            case "username" -> user.getUsername();
+            case "email" -> user.getEmail();
+            case "firstName" -> user.getFirstName();
+            case "lastName" -> user.getLastName();
+            case "active" -> user.isActive();
+            case "createdAt" -> user.getCreatedAt();
+            case "updatedAt" -> user.getUpdatedAt();
+            case "version" -> user.getVersion();
+            default -> null;
+        };
+    }
+
+    @Override
+    public long count() {
+        return byId.size();
+    }
+
+    @Override
+    public Page<User> findAll(Pageable pageable) {
+        return pageOf(pageable, User::new);
+    }
+
+    // UserRepository
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return storedBy(idByUsername, username).map(User::new);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return storedBy(idByEmail, email).map(User::new);
+    }
+
+    @Override
+    public Optional<User> findPublicById(String id) {
+        return stored(id).map(InMemoryUserRepository::publicCopy);
+    }
+
+    @Override
+    public List<User> findPublicByIdIn(Collection<String> ids) {
+        return ids.stream().distinct().map(this::stored).flatMap(Optional::stream)
+                .map(InMemoryUserRepository::publicCopy).toList();
+    }
+
+    @Override
+    public List<User> findPublicByUsernameIn(Collection<String> usernames) {
+        return usernames.stream().distinct().map(username -> storedBy(idByUsername, username)).flatMap(Optional::stream)
+                .map(InMemoryUserRepository::publicCopy).toList();
+    }
+
+    @Override
+    public Optional<User> findVersionStampById(String id) {
+        return stored(id).map(user -> project(user, Set.of("version", "updatedAt")));
+    }
+
+    @Override
+    public List<User> findChangedAfter(LocalDateTime updatedAt, String id, LocalDateTime until, Pageable pageable) {
+        Stream<User> after = stored().filter(user -> user.getUpdatedAt() != null && user.getUpdatedAt().isBefore(until)
+                && (user.getUpdatedAt().isAfter(updatedAt)
+                    || user.getUpdatedAt().isEqual(updatedAt) && user.getId().compareTo(id) > 0));
+        return page(after.map(InMemoryUserRepository::publicCopy), pageable, 0).getContent();
+    }
+
+    @Override
+    public Optional<User> findPublicByUsername(String username) {
+        return storedBy(idByUsername, username).map(InMemoryUserRepository::publicCopy);
+    }
+
+    @Override
+    public Optional<User> findPublicByEmail(String email) {
+        return storedBy(idByEmail, email).map(InMemoryUserRepository::publicCopy);
+    }
+
+    @Override
+    public Boolean existsByUsername(String username) {
+        return username != null && idByUsername.containsKey(username);
+    }
+
+    @Override
+    public Boolean existsByEmail(String email) {
+        return email != null && idByEmail.containsKey(email);
+    }
+
+    @Override
+    public List<User> findByActiveTrue() {
+        return activeUsers().map(User::new).toList();
+    }
+
+    @Override
+    public Page<User> findByFirstNameToken(String token, String firstNamePattern, Pageable pageable) {
+        Pattern pattern = Pattern.compile(firstNamePattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        List<User> matches = usersWithToken(token)
+                .filter(user -> user.getFirstName() != null && pattern.matcher(user.getFirstName()).find())
+                .toList();
+        return page(matches.stream(), pageable, matches.size()).map(InMemoryUserRepository::publicCopy);
+    }
+
+    @Override
+    public long countByActiveTrue() {
+        return active.cardinality();
+    }
+
+    @Override
+    public long countByPasswordRegex(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return stored().filter(user -> user.getPassword() != null && pattern.matcher(user.getPassword()).find()).count();
+    }
+
+    @Override
+    public List<User> findExistingUsernamesOrEmails(Collection<String> usernames, Collection<String> emails) {
+        Set<String> ids = new LinkedHashSet<>();
+        usernames.stream().filter(Objects::nonNull).map(idByUsername::get).filter(Objects::nonNull).forEach(ids::add);
+        emails.stream().filter(Objects::nonNull).map(idByEmail::get).filter(Objects::nonNull).forEach(ids::add);
+        return ids.stream()
+                .map(this::stored)
+                .flatMap(Optional::stream)
+                .map(user -> project(user, Set.of("username", "email")))
+                .toList();
+    }
+
+    // UserRepositoryCustom
+
+    @Override
+    public List<User> findAfter(Sort sort, UserCursor after, int limit, Set<String> fields) {
+        String sortField = sort.iterator().next().getProperty();
+        Sort.Direction direction = sort.iterator().next().getDirection();
+        Set<String> included = new LinkedHashSet<>(fields);
+        included.add(sortField);
+
+        Stream<User> ordered;
+        if ("createdAt".equals(sortField)) {
+            NavigableSet<CreatedKey> keys = byCreatedAt;
+            if (after != null) {
+                CreatedKey from = new CreatedKey((LocalDateTime) after.getTypedValue(), after.getLastId());
+                keys = direction.isAscending() ? keys.tailSet(from, false) : keys.headSet(from, false);
+            }
+            ordered = usersIn(direction.isAscending() ? keys : keys.descendingSet()).limit(limit);
+        } else {
+            Comparator<User> order = comparator(sort);
+            Stream<User> candidates = stored();
+            if (after != null) {
+                User last = new User();
+                last.setId(after.getLastId());
+                last.setUsername(after.getLastValue());
+                last.setEmail(after.getLastValue());
+                candidates = candidates.filter(user -> order.compare(user, last) > 0);
+            }
+            ordered = first(candidates, order, limit).stream();
+        }
+        return ordered.map(user -> project(user, included)).toList();
+    }
+
+    @Override
+    public List<User> findBySearchTokens(List<String> terms, int limit) {
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        String rarest = terms.stream()
+                .min(Comparator.comparingInt(term -> idsByToken.getOrDefault(term, Set.of()).size()))
+                .get();
+        return usersWithToken(rarest)
+                .filter(user -> user.getSearchTokens() != null && user.getSearchTokens().containsAll(terms))
+                .limit(limit)
+                .map(InMemoryUserRepository::publicCopy)
+                .toList();
+    }
+
+    @Override
+    public Page<UserView> findViews(Pageable pageable, Set<String> fields) {
+        return pageOf(pageable, user -> UserView.of(user, fields));
+    }
+
+    @Override
+    public Stream<UserView> streamActiveViews(int batchSize, Set<String> fields) {
+        return activeUsers().map(user -> UserView.of(user, fields));
+    }
+
+    @Override
+    public Page<RawUserView> findRawViews(Pageable pageable, Set<String> fields) {
+        return pageOf(pageable, user -> RawUserView.of(user, fields));
+    }
+
+    @Override
+    public Page<UserView> findViewsSortedOnDisk(Pageable pageable, Set<String> fields, Duration maxTime) {
+        return findViews(pageable, fields);
+    }
+
+    @Override
+    public Page<RawUserView> findRawViewsSortedOnDisk(Pageable pageable, Set<String> fields, Duration maxTime) {
+        return findRawViews(pageable, fields);
+    }
+
+    @Override
+    public Stream<RawUserView> streamActiveRawViews(int batchSize, Set<String> fields) {
+        return activeUsers().map(user -> RawUserView.of(user, fields));
+    }
+
+    @Override
+    public List<RawUserView> findRawBySearchTokens(List<String> terms, int limit, Set<String> fields) {
+        return findBySearchTokens(terms, limit).stream().map(user -> RawUserView.of(user, fields)).toList();
+    }
+
+    @Override
+    public List<User> findMissingSearchTokens(int limit) {
+        return stored()
+                .filter(user -> user.getSearchTokens() == null)
+                .limit(limit)
+                .map(user -> project(user, Set.of("username", "email", "firstName", "lastName")))
+                .toList();
+    }
+
+    @Override
+    public void updateSearchTokens(Map<String, List<String>> tokensById) {
+        tokensById.forEach((id, tokens) -> {
+            Entry entry = byId.get(id);
+            if (entry == null) {
+                return;
+            }
+            entry.lock.lock();
+            try {
+                User previous = entry.user;
+                if (previous != null) {
+                    User current = new User(previous);
+                    current.setSearchTokens(List.copyOf(tokens));
+                    entry.user = current;
+                    index(entry, previous, current);
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+        });
+    }
+
+    @Override
+    public Stream<User> streamActiveUsers(int batchSize) {
+        return activeUsers().map(InMemoryUserRepository::publicCopy);
+    }
+
+    @Override
+    public Map<Integer, Integer> insertUnordered(List<User> users) {
+        Map<Integer, Integer> errors = new HashMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            try {
+                create(users.get(i));
+            } catch (DuplicateKeyException e) {
+                errors.put(i, 11000);
+            }
+        }
+        return errors;
+    }
+
+    @Override
+    public Map<String, Long> countByCreatedDay() {
+        return stored()
+                .filter(user -> user.getCreatedAt() != null)
+                .collect(Collectors.groupingBy(user -> user.getCreatedAt().toLocalDate().toString(), Collectors.counting()));
+    }
+
+    @Override
+    public User updateProfile(String id, Long expectedVersion, User changes) {
+        Entry entry = byId.get(id);
+        if (entry == null) {
+            return null;
+        }
+        entry.lock.lock();
+        try {
+            User previous = entry.user;
+            if (previous == null || !Objects.equals(previous.getUsername(), changes.getUsername())
+                    || (expectedVersion != null && !expectedVersion.equals(previous.getVersion()))) {
+                return null;
+            }
+            User current = new User(previous);
+            current.setFirstName(changes.getFirstName());
+            current.setLastName(changes.getLastName());
+            current.setEmail(changes.getEmail());
+            current.setActive(changes.isActive());
+            current.setUpdatedAt(changes.getUpdatedAt());
+            current.setSearchTokens(SearchTokenizer.tokensFor(changes));
+            current.setVersion(previous.getVersion() != null ? previous.getVersion() + 1 : 1L);
+
+            swap(idByEmail, "email", previous.getEmail(), current.getEmail(), id);
+            entry.user = current;
+            index(entry, previous, current);
+            return publicCopy(previous);
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    @Override
+    public User removeById(String id) {
+        User removed = detach(id);
+        return removed != null ? project(removed, Set.of("active", "createdAt", "username")) : null;
+    }
+
+    // Indexes
+
+    private User detach(String id) {
+        Entry entry = id != null ? byId.get(id) : null;
+        if (entry == null) {
+            return null;
+        }
+        entry.lock.lock();
+        try {
+            User previous = entry.user;
+            if (previous == null) {
+                return null;
+            }
+            entry.user = null;
+            byId.remove(id, entry);
+            byOrdinal.remove(entry.ordinal);
+            byCreatedAt.remove(new CreatedKey(previous.getCreatedAt(), id));
+            updateTokens(id, previous.getSearchTokens(), null);
+            active.clear(entry.ordinal);
+            release(idByUsername, previous.getUsername(), id);
+            release(idByEmail, previous.getEmail(), id);
+            return previous;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    // Caller holds the entry lock; unique keys are already claimed
+    private void index(Entry entry, User previous, User current) {
+        if (previous == null) {
+            byOrdinal.put(entry.ordinal, entry);
+        }
+        if (previous == null || !Objects.equals(previous.getCreatedAt(), current.getCreatedAt())) {
+            if (previous != null) {
+                byCreatedAt.remove(new CreatedKey(previous.getCreatedAt(), entry.id));
+            }
+            byCreatedAt.add(new CreatedKey(current.getCreatedAt(), entry.id));
+        }
+        updateTokens(entry.id, previous != null ? previous.getSearchTokens() : null, current.getSearchTokens());
+        if (current.isActive()) {
+            active.set(entry.ordinal);
+        } else {
+            active.clear(entry.ordinal);
+        }
+    }
+
+    private void updateTokens(String id, List<String> previous, List<String> current) {
+        Set<String> removed = previous != null ? new LinkedHashSet<>(previous) : new LinkedHashSet<>();
+        if (current != null) {
+            for (String token : current) {
+                if (!removed.remove(token)) {
+                    idsByToken.compute(token, (key, ids) -> {
+                        Set<String> set = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                        set.add(id);
+                        return set;
+                    });
+                }
+            }
+        }
+        for (String token : removed) {
+            idsByToken.computeIfPresent(token, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /** Maps {@code key} to {@code id}; returns false if it already was, throws if another id owns it. */
+    private static boolean claim(ConcurrentHashMap<String, String> index, String name, String key, String id) {
+        if (key == null) {
+            return false;
+        }
+        String owner = index.putIfAbsent(key, id);
+        if (owner != null && !owner.equals(id)) {
+            throw duplicate(name, key);
+        }
+        return owner == null;
+    }
+
+    private static void release(ConcurrentHashMap<String, String> index, String key, String id) {
+        if (key != null) {
+            index.remove(key, id);
+        }
+    }
+
+    private static void swap(ConcurrentHashMap<String, String> index, String name, String from, String to, String id) {
+        if (!Objects.equals(from, to)) {
+            claim(index, name, to, id);
+            release(index, from, id);
+        }
+    }
+
+    private static DuplicateKeyException duplicate(String index, String key) {
+        return new DuplicateKeyException("E11000 duplicate key error collection: users index: " + index
+                + " dup key: { " + index + ": \"" + key + "\" }");
+    }
+
+    private static OptimisticLockingFailureException versionConflict(User user) {
+        return new OptimisticLockingFailureException(String.format(
+                "Cannot save entity %s with version %s to collection users; Has it been modified meanwhile",
+                user.getId(), user.getVersion()));
+    }
+
+    // Reads
+
+    private Optional<User> stored(String id) {
+        Entry entry = id != null ? byId.get(id) : null;
+        return entry != null ? Optional.ofNullable(entry.user) : Optional.empty();
+    }
+
+    private Optional<User> storedBy(ConcurrentHashMap<String, String> index, String key) {
+        return key != null ? stored(index.get(key)) : Optional.empty();
+    }
+
+    private Stream<User> stored() {
+        return byId.values().stream().map(entry -> entry.user).filter(Objects::nonNull);
+    }
+
+    private Stream<User> usersIn(Collection<CreatedKey> keys) {
+        return keys.stream().map(key -> stored(key.id())).flatMap(Optional::stream);
+    }
+
+    private Stream<User> usersWithToken(String token) {
+        return idsByToken.getOrDefault(token, Set.of()).stream().map(this::stored).flatMap(Optional::stream);
+    }
+
+    private Stream<User> activeUsers() {
+        return IntStream.iterate(active.nextSetBit(0), bit -> bit >= 0, bit -> active.nextSetBit(bit + 1))
+                .mapToObj(byOrdinal::get)
+                .filter(Objects::nonNull)
+                .map(entry -> entry.user)
+                .filter(user -> user != null && user.isActive());
+    }
+
+    /** Pages through the createdAt index when the sort allows it, otherwise sorts only what the page needs. */
+    private <R> Page<R> pageOf(Pageable pageable, Function<User, R> mapper) {
+        Sort sort = pageable.getSort();
+        List<Sort.Order> orders = sort.toList();
+        boolean createdAtOrder = !orders.isEmpty()
+                && orders.get(0).getProperty().equals("createdAt")
+                && (orders.size() == 1 || (orders.size() == 2 && orders.get(1).getProperty().equals("id")
+                        && orders.get(1).getDirection() == orders.get(0).getDirection()));
+
+        if (pageable.isUnpaged()) {
+            return page(stored(), pageable, count()).map(mapper);
+        }
+        long end = pageable.getOffset() + pageable.getPageSize();
+        List<User> window;
+        if (createdAtOrder) {
+            window = usersIn(orders.get(0).isAscending() ? byCreatedAt : byCreatedAt.descendingSet())
+                    .limit(end)
+                    .toList();
+        } else if (sort.isSorted() && end <= Integer.MAX_VALUE) {
+            window = first(stored(), comparator(sort), (int) end);
+        } else {
+            window = stored().limit(end).toList();
+        }
+        List<R> content = window.stream().skip(pageable.getOffset()).map(mapper).toList();
+        return new PageImpl<>(content, pageable, count());
+    }
+
+    /** The first {@code limit} users in {@code order}, with a bounded heap instead of a full sort. */
+    private static List<User> first(Stream<User> users, Comparator<User> order, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        PriorityQueue<User> heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, order.reversed());
+        users.forEach(user -> {
+            heap.offer(user);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        });
+        List<User> first = new ArrayList<>(heap);
+        first.sort(order);
+        return first;
+    }
+
+    private static User publicCopy(User user) {
+        User copy = new User(user);
+        copy.setPassword(null);
+        copy.setSearchTokens(null);
+        return copy;
+    }
+
+    /** Copy holding only the id and {@code fields}, like a MongoDB inclusion projection. */
+    private static User project(User user, Set<String> fields) {
+        User copy = new User();
+        copy.setId(user.getId());
+        if (fields.contains("username")) copy.setUsername(user.getUsername());
+        if (fields.contains("email")) copy.setEmail(user.getEmail());
+        if (fields.contains("firstName")) copy.setFirstName(user.getFirstName());
+        if (fields.contains("lastName")) copy.setLastName(user.getLastName());
+        if (fields.contains("active")) copy.setActive(user.isActive());
+        if (fields.contains("createdAt")) copy.setCreatedAt(user.getCreatedAt());
+        if (fields.contains("updatedAt")) copy.setUpdatedAt(user.getUpdatedAt());
+        if (fields.contains("version")) copy.setVersion(user.getVersion());
+        return copy;
+    }
+
+    // MongoDB stores dates with millisecond precision
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+}
@@ -0,0 +1,142 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.DailySignups;
+import com.devops.springmongo.model.UserStats;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * {@link UserStatsRepository} for the {@code inmemory} profile. Totals are
+ * replaced atomically per document and daily signups are merged per day.
+ */
+@Component
+@Profile("inmemory")
+public class InMemoryUserStatsRepository extends InMemoryRepositorySupport<UserStats> implements UserStatsRepository {
+
+    private final ConcurrentHashMap<String, UserStats> stats = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Long> signups = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+
+    @Override
+    protected String idOf(UserStats userStats) {
+        return userStats.getId();
+    }
+
+    @Override
+    protected Optional<UserStats> load(String id) {
+        return Optional.ofNullable(stats.get(id)).map(InMemoryUserStatsRepository::copy);
+    }
+
+    @Override
+    protected Stream<UserStats> loadAll() {
+        return stats.values().stream().map(InMemoryUserStatsRepository::copy);
+    }
+
+    @Override
+    protected UserStats create(UserStats userStats) {
+        if (stats.putIfAbsent(userStats.getId(), copy(userStats)) != null) {
+            throw new DuplicateKeyException("E11000 duplicate key error collection: user_stats index: _id_ dup key: { _id: \""
+                    + userStats.getId() + "\" }");
+        }
+        return userStats;
+    }
+
+    @Override
+    protected UserStats write(UserStats userStats) {
+        stats.put(userStats.getId(), copy(userStats));
+        return userStats;
+    }
+
+    @Override
+    protected boolean remove(String id) {
+        return stats.remove(id) != null;
+    }
+
+    @Override
+    protected Object property(UserStats userStats, String name) {
+        return switch (name) {
+            case "id", "_id" -> userStats.getId();
+            case "activeUsers" -> userStats.getActiveUsers();
+            case "inactiveUsers" -> userStats.getInactiveUsers();
+            case "reconciledAt" -> userStats.getReconciledAt();
+            default -> null;
+        };
+    }
+
+    @Override
+    public long count() {
+        return stats.size();
+    }
+
+    @Override
+    public void increment(long activeDelta, long inactiveDelta, Map<String, Long> signupDeltas) {
+        stats.compute(UserStats.TOTALS_ID, (id, totals) -> totals == null
+                ? revised(new UserStats(activeDelta, inactiveDelta, null), null)
+                : revised(new UserStats(totals.getActiveUsers() + activeDelta,
+                        totals.getInactiveUsers() + inactiveDelta, totals.getReconciledAt()), totals));
+        signupDeltas.forEach((day, delta) -> signups.merge(day, delta, Long::sum));
+    }
+
+    @Override
+    public void touch() {
+        increment(0, 0, Map.of());
+    }
+
+    @Override
+    public void correct(long activeDelta, long inactiveDelta, Map<String, Long> signupDeltas) {
+        LocalDateTime reconciledAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        stats.compute(UserStats.TOTALS_ID, (id, totals) -> totals == null
+                ? revised(new UserStats(activeDelta, inactiveDelta, reconciledAt), null)
+                : revised(new UserStats(totals.getActiveUsers() + activeDelta,
+                        totals.getInactiveUsers() + inactiveDelta, reconciledAt), totals));
+        // counters that drop to zero are removed, as in MongoDB
+        signupDeltas.forEach((day, delta) ->
+                signups.merge(day, delta, (count, change) -> count + change > 0 ? count + change : null));
+    }
+
+    @Override
+    public List<DailySignups> findSignups(String fromDay, String toDay) {
+        if (fromDay.compareTo(toDay) > 0) {
+            return List.of();
+        }
+        return signups.subMap(fromDay, true, toDay, true).entrySet().stream()
+                .map(day -> new DailySignups(day.getKey(), day.getValue()))
+                .toList();
+    }
+
+    @Override
+    public boolean tryLease(String name, String owner, Duration ttl) {
+        Instant now = Instant.now();
+        Lease lease = leases.compute(name, (key, held) ->
+                held == null || held.owner().equals(owner) || !held.expiresAt().isAfter(now)
+                        ? new Lease(owner, now.plus(ttl))
+                        : held);
+        return lease.owner().equals(owner);
+    }
+
+    private record Lease(String owner, Instant expiresAt) {}
+
+    private static UserStats copy(UserStats userStats) {
+        UserStats copy = new UserStats(userStats.getActiveUsers(), userStats.getInactiveUsers(), userStats.getReconciledAt());
+        copy.setId(userStats.getId());
+        copy.setRevision(userStats.getRevision());
+        return copy;
+    }
+
+    private static UserStats revised(UserStats totals, UserStats previous) {
+        totals.setRevision(previous != null ? previous.getRevision() + 1 : 1);
+        return totals;
+    }
+}
@@ -0,0 +1,81 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.UserTombstone;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * {@link UserTombstoneRepository} for the {@code inmemory} profile.
+ * Tombstones are kept for the life of the process rather than expired.
+ */
+@Component
+@Profile("inmemory")
+public class InMemoryUserTombstoneRepository extends InMemoryRepositorySupport<UserTombstone>
+        implements UserTombstoneRepository {
+
+    private final ConcurrentHashMap<String, UserTombstone> tombstones = new ConcurrentHashMap<>();
+
+    @Override
+    protected String idOf(UserTombstone tombstone) {
+        return tombstone.getId();
+    }
+
+    @Override
+    protected Optional<UserTombstone> load(String id) {
+        return Optional.ofNullable(tombstones.get(id)).map(InMemoryUserTombstoneRepository::copy);
+    }
+
+    @Override
+    protected Stream<UserTombstone> loadAll() {
+        return tombstones.values().stream().map(InMemoryUserTombstoneRepository::copy);
+    }
+
+    @Override
+    protected UserTombstone create(UserTombstone tombstone) {
+        return write(tombstone);
+    }
+
+    @Override
+    protected UserTombstone write(UserTombstone tombstone) {
+        tombstones.put(tombstone.getId(), copy(tombstone));
+        return tombstone;
+    }
+
+    @Override
+    protected boolean remove(String id) {
+        return tombstones.remove(id) != null;
+    }
+
+    @Override
+    protected Object property(UserTombstone tombstone, String name) {
+        return switch (name) {
+            case "id", "_id" -> tombstone.getId();
+            case "deletedAt" -> tombstone.getDeletedAt();
+            default -> null;
+        };
+    }
+
+    @Override
+    public long count() {
+        return tombstones.size();
+    }
+
+    @Override
+    public List<UserTombstone> findDeletedAfter(LocalDateTime deletedAt, String id, LocalDateTime until, Pageable pageable) {
+        Stream<UserTombstone> after = loadAll().filter(tombstone -> tombstone.getDeletedAt().isBefore(until)
+                && (tombstone.getDeletedAt().isAfter(deletedAt)
+                    || tombstone.getDeletedAt().isEqual(deletedAt) && tombstone.getId().compareTo(id) > 0));
+        return page(after, pageable, 0).getContent();
+    }
+
+    private static UserTombstone copy(UserTombstone tombstone) {
+        return new UserTombstone(tombstone.getId(), tombstone.getDeletedAt());
+    }
+}
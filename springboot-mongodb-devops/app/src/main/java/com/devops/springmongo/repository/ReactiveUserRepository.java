@@ -0,0 +1,39 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking access to the users collection for the reactive runtime mode.
+ * Only instantiated when the reactive Mongo auto-configuration is enabled
+ * (the {@code reactive} profile). Read methods skip the password hash and
+ * search tokens, like their {@link UserRepository} counterparts.
+ */
+@Repository
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String>, ReactiveUserRepositoryCustom {
+
+    @Query(value = "{}", fields = UserRepository.PUBLIC_FIELDS)
+    Flux<User> findAllBy(Pageable pageable);
+
+    @Query(value = "{ '_id' : ?0 }", fields = UserRepository.PUBLIC_FIELDS)
+    Mono<User> findPublicById(String id);
+
+    Mono<Boolean> existsByUsername(String username);
+
+    Mono<Boolean> existsByEmail(String email);
+
+    @Query(value = "{ 'active' : true }", fields = UserRepository.PUBLIC_FIELDS)
+    Flux<User> findByActiveTrue();
+
+    Mono<Long> countByActiveTrue();
+
+    @Query(value = "{ 'searchTokens' : { $all: ?0 } }", fields = UserRepository.PUBLIC_FIELDS)
+    Flux<User> findBySearchTokens(List<String> terms, Pageable pageable);
+}
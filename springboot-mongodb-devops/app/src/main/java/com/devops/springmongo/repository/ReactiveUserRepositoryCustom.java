@@ -0,0 +1,17 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.User;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterparts of the single-round-trip writes in
+ * {@link UserRepositoryCustom}.
+ */
+public interface ReactiveUserRepositoryCustom {
+
+    /** See {@link UserRepositoryCustom#updateProfile}; completes empty when no document matched. */
+    Mono<User> updateProfile(String id, Long expectedVersion, User changes);
+
+    /** See {@link UserRepositoryCustom#removeById}; completes empty when there was no such user. */
+    Mono<User> removeById(String id);
+}
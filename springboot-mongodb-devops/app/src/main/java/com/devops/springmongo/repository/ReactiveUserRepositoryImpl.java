@@ -0,0 +1,28 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Mono;
+
+public class ReactiveUserRepositoryImpl implements ReactiveUserRepositoryCustom {
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<User> updateProfile(String id, Long expectedVersion, User changes) {
+        Query query = UserRepositoryImpl.profileQuery(id, expectedVersion, changes.getUsername());
+        query.fields().exclude("password", "searchTokens");
+        return mongoTemplate.findAndModify(query, UserRepositoryImpl.profileUpdate(changes), User.class);
+    }
+
+    @Override
+    public Mono<User> removeById(String id) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        query.fields().include("active", "createdAt");
+        return mongoTemplate.findAndRemove(query, User.class);
+    }
+}
@@ -0,0 +1,22 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.service.SearchTokenizer;
+import org.reactivestreams.Publisher;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeConvertCallback;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link UserSearchTokenCallback} for writes made
+ * through ReactiveMongoTemplate and reactive repositories.
+ */
+@Component
+public class ReactiveUserSearchTokenCallback implements ReactiveBeforeConvertCallback<User> {
+
+    @Override
+    public Publisher<User> onBeforeConvert(User user, String collection) {
+        user.setSearchTokens(SearchTokenizer.tokensFor(user));
+        return Mono.just(user);
+    }
+}
@@ -1,36 +1,88 @@
 package com.devops.springmongo.repository;
 
 import com.devops.springmongo.model.User;
+import com.devops.springmongo.service.SearchTokenizer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.regex.Pattern;
 
 @Repository
-public interface UserRepository extends MongoRepository<User, String> {
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom {
+
+    /** Projection for read paths: everything but the password hash and search tokens. */
+    String PUBLIC_FIELDS = "{ 'password' : 0, 'searchTokens' : 0 }";
 
     Optional<User> findByUsername(String username);
 
     Optional<User> findByEmail(String email);
 
+    @Query(value = "{ '_id' : ?0 }", fields = PUBLIC_FIELDS)
+    Optional<User> findPublicById(String id);
+
+    /** Batched {@link #findPublicById}; ids that do not exist are left out. */
+    @Query(value = "{ '_id' : { $in: ?0 } }", fields = PUBLIC_FIELDS)
+    List<User> findPublicByIdIn(Collection<String> ids);
+
+    @Query(value = "{ 'username' : { $in: ?0 } }", fields = PUBLIC_FIELDS)
+    List<User> findPublicByUsernameIn(Collection<String> usernames);
+
+    /** Only the version and last update, for answering conditional requests without the document. */
+    @Query(value = "{ '_id' : ?0 }", fields = "{ 'version' : 1, 'updatedAt' : 1 }")
+    Optional<User> findVersionStampById(String id);
+
+    /**
+     * Users changed after the ({@code updatedAt}, {@code id}) checkpoint and
+     * before {@code until}, for the change feed; served by the
+     * {@code updatedAt_id} index. Sort by updatedAt and id.
+     */
+    @Query(value = "{ 'updatedAt' : { $gte: ?0, $lt: ?2 }, $or: [ { 'updatedAt' : { $gt: ?0 } }, { '_id' : { $gt: ?1 } } ] }",
+           fields = PUBLIC_FIELDS)
+    List<User> findChangedAfter(LocalDateTime updatedAt, String id, LocalDateTime until, Pageable pageable);
+
+    @Query(value = "{ 'username' : ?0 }", fields = PUBLIC_FIELDS)
+    Optional<User> findPublicByUsername(String username);
+
+    @Query(value = "{ 'email' : ?0 }", fields = PUBLIC_FIELDS)
+    Optional<User> findPublicByEmail(String email);
+
     Boolean existsByUsername(String username);
 
     Boolean existsByEmail(String email);
 
     List<User> findByActiveTrue();
 
-    @Query("{ 'firstName' : { $regex: ?0, $options: 'i' } }")
-    Page<User> findByFirstNameContainingIgnoreCase(String firstName, Pageable pageable);
+    /**
+     * Users whose first name has a word starting with {@code firstName},
+     * ignoring case. The search-token index narrows the candidates and the
+     * regex only re-checks them, so the collection is never scanned. Text
+     * inside a word ("ohn" for "John") is not found, as the index only holds
+     * word prefixes, and neither is text shorter than
+     * {@link SearchTokenizer#MIN_PREFIX}.
+     */
+    default Page<User> findByFirstNameContainingIgnoreCase(String firstName, Pageable pageable) {
+        List<String> terms = SearchTokenizer.queryTerms(firstName);
+        if (terms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return findByFirstNameToken(terms.get(0), "(?:^|[^\\p{L}\\p{N}])" + Pattern.quote(firstName.trim()), pageable);
+    }
 
-    @Query("{ $or: [ { 'firstName' : { $regex: ?0, $options: 'i' } }, " +
-           "{ 'lastName' : { $regex: ?0, $options: 'i' } }, " +
-           "{ 'username' : { $regex: ?0, $options: 'i' } }, " +
-           "{ 'email' : { $regex: ?0, $options: 'i' } } ] }")
-    Page<User> searchUsers(String keyword, Pageable pageable);
+    @Query(value = "{ 'searchTokens' : ?0, 'firstName' : { $regex: ?1, $options: 'i' } }", fields = PUBLIC_FIELDS)
+    Page<User> findByFirstNameToken(String token, String firstNamePattern, Pageable pageable);
 
     long countByActiveTrue();
+
+    long countByPasswordRegex(String pattern);
+
+    @Query(value = "{ $or: [ { 'username' : { $in: ?0 } }, { 'email' : { $in: ?1 } } ] }",
+           fields = "{ 'username' : 1, 'email' : 1 }")
+    List<User> findExistingUsernamesOrEmails(Collection<String> usernames, Collection<String> emails);
 }
\ No newline at end of file
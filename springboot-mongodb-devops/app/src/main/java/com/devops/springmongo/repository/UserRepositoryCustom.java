@@ -0,0 +1,112 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.RawUserView;
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserCursor;
+import com.devops.springmongo.model.UserView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Query operations on the users collection that cannot be expressed as
+ * derived or {@code @Query} repository methods.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Keyset scan: returns up to {@code limit} users ordered by {@code sort},
+     * a sort field optionally followed by _id as tie-breaker, starting
+     * strictly after {@code after}. A {@code null} cursor starts from the
+     * beginning. Only {@code fields} and the sort field are read.
+     */
+    List<User> findAfter(Sort sort, UserCursor after, int limit, Set<String> fields);
+
+    /**
+     * Returns up to {@code limit} users whose search tokens contain every
+     * one of {@code terms}, served by the multikey index on searchTokens.
+     * Password hashes and search tokens are not read.
+     */
+    List<User> findBySearchTokens(List<String> terms, int limit);
+
+    /** Returns one page of users reading only {@code fields} of each document. */
+    Page<UserView> findViews(Pageable pageable, Set<String> fields);
+
+    /**
+     * Opens a cursor over active users that reads only {@code fields} of each
+     * document, {@code batchSize} documents per round trip. The returned
+     * stream must be closed to release the cursor.
+     */
+    Stream<UserView> streamActiveViews(int batchSize, Set<String> fields);
+
+    /** {@link #findViews} as raw BSON, skipping entity mapping; see {@link RawUserView}. */
+    Page<RawUserView> findRawViews(Pageable pageable, Set<String> fields);
+
+    /**
+     * {@link #findViews} for a sort no index serves: MongoDB may spill the
+     * sort to disk and gives up after {@code maxTime}. See {@code UserSortPlanner}.
+     */
+    Page<UserView> findViewsSortedOnDisk(Pageable pageable, Set<String> fields, Duration maxTime);
+
+    /** {@link #findViewsSortedOnDisk} as raw BSON, skipping entity mapping. */
+    Page<RawUserView> findRawViewsSortedOnDisk(Pageable pageable, Set<String> fields, Duration maxTime);
+
+    /** {@link #streamActiveViews} as raw BSON, skipping entity mapping. */
+    Stream<RawUserView> streamActiveRawViews(int batchSize, Set<String> fields);
+
+    /**
+     * {@link #findBySearchTokens} as raw BSON, reading {@code fields} plus
+     * the name fields search ranks by.
+     */
+    List<RawUserView> findRawBySearchTokens(List<String> terms, int limit, Set<String> fields);
+
+    /** Returns up to {@code limit} users that have no search tokens yet. */
+    List<User> findMissingSearchTokens(int limit);
+
+    /** Sets searchTokens on the given users with a single unordered bulk write. */
+    void updateSearchTokens(Map<String, List<String>> tokensById);
+
+    /**
+     * Opens a cursor over active users that fetches {@code batchSize}
+     * documents per round trip. Password hashes and search tokens are not
+     * read. The returned stream must be closed to release the cursor.
+     */
+    Stream<User> streamActiveUsers(int batchSize);
+
+    /**
+     * Inserts all users with one unordered bulk write, so a failing document
+     * does not stop the others. Ids must be assigned by the caller. Returns
+     * the write error code for each failed position; empty when all succeed.
+     */
+    Map<Integer, Integer> insertUnordered(List<User> users);
+
+    /**
+     * Counts users per day of {@code createdAt} in the JVM time zone, keyed by
+     * ISO date ({@code yyyy-MM-dd}). Scans the collection; meant for the
+     * periodic statistics reconcile, not for request paths.
+     */
+    Map<String, Long> countByCreatedDay();
+
+    /**
+     * Sets the profile fields of {@code changes} (first and last name, email,
+     * active, updatedAt) and search tokens derived from them with a single
+     * findAndModify, incrementing the version. The username of
+     * {@code changes} must match the stored one, since it is not written,
+     * and a non-null {@code expectedVersion} the stored version. Returns the user
+     * as it was before the update, without password or search tokens, or
+     * {@code null} when no document matched.
+     */
+    User updateProfile(String id, Long expectedVersion, User changes);
+
+    /**
+     * Deletes a user with a single findAndDelete and returns its active flag,
+     * createdAt and username, or {@code null} when there was no such user.
+     */
+    User removeById(String id);
+}
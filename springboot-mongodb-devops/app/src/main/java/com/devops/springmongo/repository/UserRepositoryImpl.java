@@ -0,0 +1,310 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.config.MongoReadRouting;
+import com.devops.springmongo.model.RawUserView;
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserCursor;
+import com.devops.springmongo.model.UserView;
+import com.devops.springmongo.service.SearchTokenizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private static final ClientSessionOptions CAUSAL = ClientSessionOptions.builder().causallyConsistent(true).build();
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoReadRouting readRouting;
+
+    @Override
+    public List<User> findAfter(Sort sort, UserCursor after, int limit, Set<String> fields) {
+        Sort.Order order = sort.iterator().next();
+        Query query = new Query();
+        query.fields().include(fields.toArray(new String[0])).include(order.getProperty());
+
+        if (after != null) {
+            query.addCriteria(seekCriteria(order, sort.toList().size() > 1, after));
+        }
+
+        query.with(sort).limit(limit).withReadPreference(readRouting.tolerant());
+
+        return tolerantRead(operations -> operations.find(query, User.class));
+    }
+
+    @Override
+    public List<User> findBySearchTokens(List<String> terms, int limit) {
+        Query query = new Query(Criteria.where("searchTokens").all(terms)).limit(limit)
+                .withReadPreference(readRouting.tolerant());
+        query.fields().exclude("password", "searchTokens");
+        return tolerantRead(operations -> operations.find(query, User.class));
+    }
+
+    @Override
+    public Page<UserView> findViews(Pageable pageable, Set<String> fields) {
+        return findViews(viewQuery(pageable, fields), pageable);
+    }
+
+    @Override
+    public Page<UserView> findViewsSortedOnDisk(Pageable pageable, Set<String> fields, Duration maxTime) {
+        return findViews(viewQuery(pageable, fields).allowDiskUse(true).maxTime(maxTime), pageable);
+    }
+
+    private Query viewQuery(Pageable pageable, Set<String> fields) {
+        Query query = new Query().with(pageable).withReadPreference(readRouting.tolerant());
+        query.fields().include(fields.toArray(new String[0]));
+        return query;
+    }
+
+    private Page<UserView> findViews(Query query, Pageable pageable) {
+        return tolerantRead(operations -> {
+            List<UserView> content = operations.query(User.class).as(UserView.class).matching(query).all();
+            return PageableExecutionUtils.getPage(content, pageable, () -> operations.count(
+                    Query.of(query).limit(-1).skip(-1).withReadPreference(readRouting.tolerant()), User.class));
+        });
+    }
+
+    @Override
+    public Stream<UserView> streamActiveViews(int batchSize, Set<String> fields) {
+        // Like streamActiveUsers: the cursor outlives the call, so there is no causal session
+        Query query = new Query(Criteria.where("active").is(true)).cursorBatchSize(batchSize)
+                .withReadPreference(readRouting.tolerant());
+        query.fields().include(fields.toArray(new String[0]));
+        return mongoTemplate.query(User.class).as(UserView.class).matching(query).stream();
+    }
+
+    @Override
+    public Page<RawUserView> findRawViews(Pageable pageable, Set<String> fields) {
+        return findRawViews(viewQuery(pageable, fields), pageable, fields);
+    }
+
+    @Override
+    public Page<RawUserView> findRawViewsSortedOnDisk(Pageable pageable, Set<String> fields, Duration maxTime) {
+        return findRawViews(viewQuery(pageable, fields).allowDiskUse(true).maxTime(maxTime), pageable, fields);
+    }
+
+    private Page<RawUserView> findRawViews(Query query, Pageable pageable, Set<String> fields) {
+        return tolerantRead(operations -> PageableExecutionUtils.getPage(findRaw(operations, query, fields), pageable,
+                () -> operations.count(Query.of(query).limit(-1).skip(-1).withReadPreference(readRouting.tolerant()), User.class)));
+    }
+
+    @Override
+    public Stream<RawUserView> streamActiveRawViews(int batchSize, Set<String> fields) {
+        Query query = new Query(Criteria.where("active").is(true)).cursorBatchSize(batchSize);
+        query.fields().include(fields.toArray(new String[0]));
+        MongoCursor<RawBsonDocument> cursor = mongoTemplate.execute(User.class,
+                collection -> findRaw(collection, query).batchSize(batchSize).cursor());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false)
+                .map(document -> new RawUserView(document, fields))
+                .onClose(cursor::close);
+    }
+
+    @Override
+    public List<RawUserView> findRawBySearchTokens(List<String> terms, int limit, Set<String> fields) {
+        Query query = new Query(Criteria.where("searchTokens").all(terms)).limit(limit);
+        query.fields().include(fields.toArray(new String[0])).include("username", "email", "firstName", "lastName");
+        return tolerantRead(operations -> findRaw(operations, query, fields));
+    }
+
+    @Override
+    public List<User> findMissingSearchTokens(int limit) {
+        Query query = new Query(Criteria.where("searchTokens").exists(false)).limit(limit);
+        query.fields().include("username", "email", "firstName", "lastName");
+        return mongoTemplate.find(query, User.class);
+    }
+
+    @Override
+    public void updateSearchTokens(Map<String, List<String>> tokensById) {
+        if (tokensById.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+        tokensById.forEach((id, tokens) ->
+                bulk.updateOne(Query.query(Criteria.where("id").is(id)), Update.update("searchTokens", tokens)));
+        bulk.execute();
+    }
+
+    @Override
+    public Map<Integer, Integer> insertUnordered(List<User> users) {
+        Map<Integer, Integer> errors = new HashMap<>();
+        if (users.isEmpty()) {
+            return errors;
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class)
+                    .insert(users)
+                    .execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                errors.put(error.getIndex(), error.getCode());
+            }
+        }
+        return errors;
+    }
+
+    @Override
+    public Stream<User> streamActiveUsers(int batchSize) {
+        // No causal session here: the cursor outlives the call, so exports only get the staleness bound
+        Query query = new Query(Criteria.where("active").is(true)).cursorBatchSize(batchSize)
+                .withReadPreference(readRouting.tolerant());
+        query.fields().exclude("password", "searchTokens");
+        return mongoTemplate.stream(query, User.class);
+    }
+
+    @Override
+    public Map<String, Long> countByCreatedDay() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("createdAt").ne(null)),
+                Aggregation.project().and(DateOperators.DateToString.dateOf("createdAt")
+                        .toString("%Y-%m-%d")
+                        .withTimezone(DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId())))
+                        .as("day"),
+                Aggregation.group("day").count().as("count"));
+
+        Map<String, Long> counts = new HashMap<>();
+        for (Document day : mongoTemplate.aggregate(aggregation, User.class, Document.class)) {
+            counts.put(day.getString("_id"), ((Number) day.get("count")).longValue());
+        }
+        return counts;
+    }
+
+    @Override
+    public User updateProfile(String id, Long expectedVersion, User changes) {
+        Query query = profileQuery(id, expectedVersion, changes.getUsername());
+        query.fields().exclude("password", "searchTokens");
+        return mongoTemplate.findAndModify(query, profileUpdate(changes), User.class);
+    }
+
+    @Override
+    public User removeById(String id) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        query.fields().include("active", "createdAt", "username");
+        return mongoTemplate.findAndRemove(query, User.class);
+    }
+
+    /**
+     * Runs a read that may be served by a secondary. When the request carries
+     * the operation time of an earlier write, the read runs in a causally
+     * consistent session starting after it, so a lagging secondary waits
+     * until it has applied that write instead of returning older data.
+     */
+    private <T> T tolerantRead(Function<MongoOperations, T> read) {
+        BsonTimestamp after = MongoReadRouting.readAfter();
+        if (after == null || !readRouting.isEnabled()) {
+            return read.apply(mongoTemplate);
+        }
+        try (ClientSession session = mongoTemplate.getMongoDatabaseFactory().getSession(CAUSAL)) {
+            session.advanceOperationTime(after);
+            return read.apply(mongoTemplate.withSession(session));
+        }
+    }
+
+    /**
+     * Runs {@code query} on the users collection with the driver's raw BSON
+     * codec; filter, projection and sort are mapped like MongoTemplate maps
+     * them, but results skip the entity converter.
+     */
+    private List<RawUserView> findRaw(MongoOperations operations, Query query, Set<String> fields) {
+        return operations.execute(User.class, collection -> {
+            List<RawUserView> views = new ArrayList<>();
+            findRaw(collection, query).forEach(document -> views.add(new RawUserView(document, fields)));
+            return views;
+        });
+    }
+
+    private FindIterable<RawBsonDocument> findRaw(MongoCollection<Document> collection, Query query) {
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(User.class);
+        QueryMapper queryMapper = new QueryMapper(mongoTemplate.getConverter());
+        Long maxTimeMsec = query.getMeta().getMaxTimeMsec();
+
+        return collection.withDocumentClass(RawBsonDocument.class)
+                .withReadPreference(readRouting.tolerant())
+                .find(queryMapper.getMappedObject(query.getQueryObject(), entity))
+                .projection(queryMapper.getMappedFields(query.getFieldsObject(), entity))
+                .sort(queryMapper.getMappedSort(query.getSortObject(), entity))
+                .skip((int) query.getSkip())
+                .limit(query.getLimit())
+                .allowDiskUse(query.getMeta().getAllowDiskUse())
+                .maxTime(maxTimeMsec != null ? maxTimeMsec : 0, TimeUnit.MILLISECONDS);
+    }
+
+    // username is never written, so the search tokens derived from the changes are right only if it matches
+    static Query profileQuery(String id, Long expectedVersion, String username) {
+        Criteria criteria = Criteria.where("id").is(id).and("username").is(username);
+        if (expectedVersion != null) {
+            criteria.and("version").is(expectedVersion);
+        }
+        return Query.query(criteria);
+    }
+
+    static Update profileUpdate(User changes) {
+        return new Update()
+                .set("firstName", changes.getFirstName())
+                .set("lastName", changes.getLastName())
+                .set("email", changes.getEmail())
+                .set("active", changes.isActive())
+                .set("updatedAt", changes.getUpdatedAt())
+                .set("searchTokens", SearchTokenizer.tokensFor(changes))
+                .inc("version", 1);
+    }
+
+    // (field > v) OR (field == v AND _id > id), mirrored for descending scans
+    private Criteria seekCriteria(Sort.Order order, boolean idTieBreaker, UserCursor after) {
+        boolean asc = order.isAscending();
+        String sortField = order.getProperty();
+
+        if ("id".equals(sortField)) {
+            Criteria id = Criteria.where("id");
+            return asc ? id.gt(after.getLastId()) : id.lt(after.getLastId());
+        }
+
+        Object value = after.getTypedValue();
+        Criteria pastValue = asc ? Criteria.where(sortField).gt(value) : Criteria.where(sortField).lt(value);
+        if (!idTieBreaker) {
+            return pastValue; // values are unique, so nothing else sorts equal to the cursor
+        }
+        Criteria sameId = Criteria.where(sortField).is(value).and("id");
+        Criteria sameValue = asc ? sameId.gt(after.getLastId()) : sameId.lt(after.getLastId());
+
+        return new Criteria().orOperator(pastValue, sameValue);
+    }
+}
@@ -0,0 +1,21 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.service.SearchTokenizer;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recomputes {@code User.searchTokens} whenever a user is written through
+ * MongoTemplate or a repository, so the token index never drifts from the
+ * fields it is derived from.
+ */
+@Component
+public class UserSearchTokenCallback implements BeforeConvertCallback<User> {
+
+    @Override
+    public User onBeforeConvert(User user, String collection) {
+        user.setSearchTokens(SearchTokenizer.tokensFor(user));
+        return user;
+    }
+}
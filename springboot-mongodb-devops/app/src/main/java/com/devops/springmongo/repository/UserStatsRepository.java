@@ -0,0 +1,9 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.UserStats;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserStatsRepository extends MongoRepository<UserStats, String>, UserStatsRepositoryCustom {
+}
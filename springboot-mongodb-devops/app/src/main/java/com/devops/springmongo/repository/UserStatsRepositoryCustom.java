@@ -0,0 +1,41 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.DailySignups;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental and bulk writes to the user statistics rollups.
+ */
+public interface UserStatsRepositoryCustom {
+
+    /**
+     * Applies deltas to the totals document and to the daily signup
+     * counters, creating any that do not exist yet, and bumps the revision.
+     */
+    void increment(long activeDelta, long inactiveDelta, Map<String, Long> signupDeltas);
+
+    /** Bumps the revision of the totals document for a write that leaves the totals unchanged. */
+    void touch();
+
+    /**
+     * Applies a reconcile's corrections like {@link #increment}, so deltas
+     * written concurrently are kept, stamps reconciledAt and removes daily
+     * counters that drop to zero. The revision is bumped as well, so a bump
+     * lost with a failed delta update is made up here.
+     */
+    void correct(long activeDelta, long inactiveDelta, Map<String, Long> signupDeltas);
+
+    /** Returns the daily signup counters between two ISO dates, inclusive, oldest first. */
+    List<DailySignups> findSignups(String fromDay, String toDay);
+
+    /**
+     * Takes the lease {@code name} for {@code owner}, or renews it, until
+     * {@code ttl} from now, and returns whether {@code owner} holds it.
+     * Leases are {@code lease:<name>} documents next to the totals; while
+     * another owner's lease has not expired, this returns false.
+     */
+    boolean tryLease(String name, String owner, Duration ttl);
+}
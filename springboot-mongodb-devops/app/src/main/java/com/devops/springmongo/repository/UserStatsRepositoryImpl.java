@@ -0,0 +1,85 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.DailySignups;
+import com.devops.springmongo.model.UserStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public class UserStatsRepositoryImpl implements UserStatsRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void increment(long activeDelta, long inactiveDelta, Map<String, Long> signupDeltas) {
+        mongoTemplate.upsert(totals(),
+                new Update().inc("activeUsers", activeDelta).inc("inactiveUsers", inactiveDelta).inc("revision", 1),
+                UserStats.class);
+        incrementSignups(signupDeltas);
+    }
+
+    @Override
+    public void touch() {
+        mongoTemplate.upsert(totals(), new Update().inc("revision", 1), UserStats.class);
+    }
+
+    @Override
+    public void correct(long activeDelta, long inactiveDelta, Map<String, Long> signupDeltas) {
+        mongoTemplate.upsert(totals(),
+                new Update().inc("activeUsers", activeDelta)
+                        .inc("inactiveUsers", inactiveDelta)
+                        .set("reconciledAt", LocalDateTime.now())
+                        .inc("revision", 1),
+                UserStats.class);
+        incrementSignups(signupDeltas);
+        mongoTemplate.remove(Query.query(Criteria.where("count").lte(0)), DailySignups.class);
+    }
+
+    @Override
+    public List<DailySignups> findSignups(String fromDay, String toDay) {
+        Query query = Query.query(Criteria.where("date").gte(fromDay).lte(toDay))
+                .with(Sort.by(Sort.Direction.ASC, "date"));
+        return mongoTemplate.find(query, DailySignups.class);
+    }
+
+    @Override
+    public boolean tryLease(String name, String owner, Duration ttl) {
+        Instant now = Instant.now();
+        Query query = Query.query(Criteria.where("_id").is("lease:" + name)
+                .orOperator(Criteria.where("owner").is(owner), Criteria.where("expiresAt").lte(now)));
+        try {
+            mongoTemplate.upsert(query, new Update().set("owner", owner).set("expiresAt", now.plus(ttl)),
+                    mongoTemplate.getCollectionName(UserStats.class));
+            return true;
+        } catch (DuplicateKeyException e) {
+            // held by another owner: nothing matched, and the upsert's insert collided on _id
+            return false;
+        }
+    }
+
+    private void incrementSignups(Map<String, Long> signupDeltas) {
+        if (signupDeltas.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DailySignups.class);
+        signupDeltas.forEach((day, delta) ->
+                bulk.upsert(Query.query(Criteria.where("date").is(day)), new Update().inc("count", delta)));
+        bulk.execute();
+    }
+
+    private Query totals() {
+        return Query.query(Criteria.where("id").is(UserStats.TOTALS_ID));
+    }
+}
@@ -0,0 +1,21 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.UserTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UserTombstoneRepository extends MongoRepository<UserTombstone, String> {
+
+    /**
+     * Tombstones after the ({@code deletedAt}, {@code id}) checkpoint and
+     * before {@code until}, for the change feed. Sort by deletedAt and id.
+     */
+    @Query("{ 'deletedAt' : { $gte: ?0, $lt: ?2 }, $or: [ { 'deletedAt' : { $gt: ?0 } }, { '_id' : { $gt: ?1 } } ] }")
+    List<UserTombstone> findDeletedAfter(LocalDateTime deletedAt, String id, LocalDateTime until, Pageable pageable);
+}
@@ -0,0 +1,185 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.BulkUserResponse;
+import com.devops.springmongo.model.BulkUserResult;
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports users in batches. Each batch costs one {@code $in} query for
+ * existing usernames and emails, password hashing spread over the shared
+ * hashing pool, and one unordered bulk insert, instead of four round trips
+ * and a serial BCrypt hash per user.
+ */
+@Service
+public class BulkUserService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkUserService.class);
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    PasswordHashingService passwordHashingService;
+
+    @Autowired
+    Validator validator;
+
+    @Autowired
+    UserStatsService userStatsService;
+
+    @Value("${app.users.bulk.batch-size:1000}")
+    int batchSize;
+
+    private final Counter userCreatedCounter;
+
+    public BulkUserService(MeterRegistry meterRegistry) {
+        this.userCreatedCounter = Counter.builder("users_created_total")
+                .description("Total number of users created")
+                .register(meterRegistry);
+    }
+
+    public BulkUserResponse createAll(Iterator<User> users) {
+        List<BulkUserResult> results = new ArrayList<>();
+        Set<String> seenUsernames = new HashSet<>();
+        Set<String> seenEmails = new HashSet<>();
+
+        int index = 0;
+        List<User> batch = new ArrayList<>(batchSize);
+        List<Integer> positions = new ArrayList<>(batchSize);
+
+        while (users.hasNext()) {
+            User user = users.next();
+            int position = index++;
+
+            String violations = validate(user);
+            if (violations != null) {
+                results.add(BulkUserResult.rejected(position, user, BulkUserResult.Status.INVALID, violations));
+                continue;
+            }
+            if (!seenUsernames.add(user.getUsername())) {
+                results.add(BulkUserResult.rejected(position, user, BulkUserResult.Status.DUPLICATE, "Username is already taken!"));
+                continue;
+            }
+            if (!seenEmails.add(user.getEmail())) {
+                results.add(BulkUserResult.rejected(position, user, BulkUserResult.Status.DUPLICATE, "Email is already in use!"));
+                continue;
+            }
+
+            batch.add(user);
+            positions.add(position);
+            if (batch.size() == batchSize) {
+                results.addAll(insertBatch(batch, positions));
+                batch = new ArrayList<>(batchSize);
+                positions = new ArrayList<>(batchSize);
+            }
+        }
+        results.addAll(insertBatch(batch, positions));
+
+        results.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        BulkUserResponse response = new BulkUserResponse(results);
+        logger.info("Bulk import finished: {} created, {} rejected", response.getCreated(), response.getRejected());
+        return response;
+    }
+
+    private List<BulkUserResult> insertBatch(List<User> batch, List<Integer> positions) {
+        List<BulkUserResult> results = new ArrayList<>(batch.size());
+        if (batch.isEmpty()) {
+            return results;
+        }
+
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        for (User existing : userRepository.findExistingUsernamesOrEmails(
+                batch.stream().map(User::getUsername).collect(Collectors.toList()),
+                batch.stream().map(User::getEmail).collect(Collectors.toList()))) {
+            takenUsernames.add(existing.getUsername());
+            takenEmails.add(existing.getEmail());
+        }
+
+        // the id is assigned up front, so auditing would not see these users as new: stamp them here
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        List<User> toInsert = new ArrayList<>(batch.size());
+        List<Integer> insertPositions = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            User user = batch.get(i);
+            if (takenUsernames.contains(user.getUsername())) {
+                results.add(BulkUserResult.rejected(positions.get(i), user, BulkUserResult.Status.DUPLICATE, "Username is already taken!"));
+            } else if (takenEmails.contains(user.getEmail())) {
+                results.add(BulkUserResult.rejected(positions.get(i), user, BulkUserResult.Status.DUPLICATE, "Email is already in use!"));
+            } else {
+                user.setId(new ObjectId().toHexString());
+                user.setVersion(null);
+                user.setCreatedAt(now);
+                user.setUpdatedAt(now);
+                toInsert.add(user);
+                insertPositions.add(positions.get(i));
+            }
+        }
+
+        hashPasswords(toInsert);
+        Map<Integer, Integer> errors = userRepository.insertUnordered(toInsert);
+
+        List<User> created = new ArrayList<>(toInsert.size());
+        for (int i = 0; i < toInsert.size(); i++) {
+            User user = toInsert.get(i);
+            Integer code = errors.get(i);
+            if (code == null) {
+                created.add(user);
+                results.add(BulkUserResult.created(insertPositions.get(i), user));
+            } else if (code == DUPLICATE_KEY) {
+                results.add(BulkUserResult.rejected(insertPositions.get(i), user, BulkUserResult.Status.DUPLICATE, "Username or email already exists"));
+            } else {
+                results.add(BulkUserResult.rejected(insertPositions.get(i), user, BulkUserResult.Status.FAILED, "Write error " + code));
+            }
+        }
+
+        userStatsService.recordCreated(created);
+        userCreatedCounter.increment(created.size());
+        return results;
+    }
+
+    private void hashPasswords(List<User> users) {
+        List<String> hashes = passwordHashingService.encodeAll(
+                users.stream().map(User::getPassword).collect(Collectors.toList()));
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setPassword(hashes.get(i));
+        }
+    }
+
+    private String validate(User user) {
+        if (user == null) {
+            return "User must not be null";
+        }
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+}
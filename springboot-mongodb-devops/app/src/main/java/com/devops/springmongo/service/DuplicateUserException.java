@@ -0,0 +1,32 @@
+package com.devops.springmongo.service;
+
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Thrown when a write collides with an existing username or email on the
+ * unique indexes of the users collection.
+ */
+public class DuplicateUserException extends RuntimeException {
+
+    // E11000 duplicate key error collection: devops_db.users index: email_1 dup key: { ... }
+    private static final Pattern INDEX_NAME = Pattern.compile("index: (\\S+)");
+
+    public DuplicateUserException(String message) {
+        super(message);
+    }
+
+    static DuplicateUserException from(DuplicateKeyException e) {
+        Matcher index = INDEX_NAME.matcher(String.valueOf(e.getMessage()));
+        String name = index.find() ? index.group(1) : "";
+        if (name.startsWith("email")) {
+            return new DuplicateUserException("Email is already in use!");
+        }
+        if (name.startsWith("username")) {
+            return new DuplicateUserException("Username is already taken!");
+        }
+        return new DuplicateUserException("User already exists");
+    }
+}
@@ -0,0 +1,13 @@
+package com.devops.springmongo.service;
+
+/**
+ * Thrown when a change feed checkpoint is older than tombstones are kept,
+ * so deletions since then may no longer be reported. The consumer has to
+ * resync from the start.
+ */
+public class ExpiredChangeTokenException extends RuntimeException {
+
+    public ExpiredChangeTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,45 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.repository.UserStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+/**
+ * Lets one replica at a time run a scheduled job. Every replica asks for
+ * the job's lease when the job is due; the holder renews it on each run,
+ * and if the holder goes away its lease expires and the next replica to
+ * ask takes over. Leases live in user_stats, see
+ * {@link UserStatsRepository#tryLease}.
+ */
+@Component
+public class JobLease {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobLease.class);
+
+    // pid@hostname, unique per pod
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName();
+
+    @Autowired
+    UserStatsRepository userStatsRepository;
+
+    /**
+     * Returns whether this replica holds the lease on {@code job} for the
+     * next {@code ttl}. Pass at least the job's interval, so that the lease
+     * does not lapse while the holder is still running.
+     */
+    public boolean tryAcquire(String job, Duration ttl) {
+        try {
+            return userStatsRepository.tryLease(job, owner, ttl);
+        } catch (RuntimeException e) {
+            logger.warn("Could not take the {} lease: {}", job, e.getMessage());
+            return false;
+        }
+    }
+
+    public String getOwner() { return owner; }
+}
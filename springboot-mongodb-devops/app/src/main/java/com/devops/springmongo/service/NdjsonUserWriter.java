@@ -0,0 +1,121 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.User;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writes users as newline-delimited JSON, or as one JSON array, straight to
+ * a response stream. Only one document plus a fixed-size output buffer is
+ * held at a time, and an optional rate cap keeps a long export from
+ * saturating the database.
+ */
+@Component
+public class NdjsonUserWriter {
+
+    private static final byte NEWLINE = '\n';
+
+    private final ObjectWriter writer;
+
+    private final ObjectWriter arrayWriter;
+
+    @Value("${app.users.stream.buffer-size:65536}")
+    private int bufferSize;
+
+    @Value("${app.users.stream.flush-every:500}")
+    private int flushEvery;
+
+    @Value("${app.users.stream.max-rate:0}")
+    private int maxRate;
+
+    public NdjsonUserWriter(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writerFor(User.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+        this.arrayWriter = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * Drains {@code users} into {@code out} and returns the number of
+     * documents written. The caller owns and closes the stream.
+     */
+    public long write(Stream<User> users, OutputStream out) throws IOException {
+        BufferedOutputStream buffered = new BufferedOutputStream(out, bufferSize);
+        SequenceWriter sequence = writer.writeValues(buffered);
+
+        long written = drain(users.map(user -> {
+            user.setPassword(null);
+            return user;
+        }), sequence);
+
+        if (written > 0) {
+            buffered.write(NEWLINE);
+        }
+        buffered.flush();
+        return written;
+    }
+
+    /**
+     * Drains {@code values} into {@code out} as a single JSON array, which is
+     * sent in chunks as the buffer fills, and returns the number of elements
+     * written. The caller owns and closes the stream.
+     */
+    public long writeArray(Stream<?> values, OutputStream out) throws IOException {
+        BufferedOutputStream buffered = new BufferedOutputStream(out, bufferSize);
+        long written;
+        try (SequenceWriter sequence = arrayWriter.writeValuesAsArray(buffered)) {
+            written = drain(values, sequence);
+        }
+        buffered.flush();
+        return written;
+    }
+
+    private long drain(Stream<?> values, SequenceWriter sequence) throws IOException {
+        long written = 0;
+        long startNanos = System.nanoTime();
+        Iterator<?> iterator = values.iterator();
+
+        while (iterator.hasNext()) {
+            sequence.write(iterator.next());
+            written++;
+
+            if (written % flushEvery == 0) {
+                sequence.flush();
+            }
+            if (maxRate > 0) {
+                throttle(written, startNanos);
+            }
+        }
+
+        sequence.flush();
+        return written;
+    }
+
+    // sleeps on the export pool (StreamingExportConfig), not a request or @Async thread
+    private void throttle(long written, long startNanos) throws IOException {
+        long dueNanos = startNanos + TimeUnit.SECONDS.toNanos(written) / maxRate;
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(dueNanos - System.nanoTime());
+        if (waitMillis > 0) {
+            try {
+                Thread.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("User export interrupted", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.StringJoiner;
+
+/**
+ * Periodically counts stored BCrypt hashes whose cost factor is below the
+ * configured strength and publishes the count as a gauge.
+ *
+ * <p>A hash can only be re-encoded from the plaintext, so raising the cost
+ * takes effect as passwords are next set; this gauge shows how many
+ * accounts are still on an older cost.
+ *
+ * <p>The count is a regex scan over every hash, so only the replica holding
+ * the audit's {@link JobLease} runs it; the others report NaN.
+ */
+@Component
+public class PasswordCostAudit {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordCostAudit.class);
+
+    private static final int MIN_BCRYPT_COST = 4;
+
+    private static final String LEASE = "password-cost-audit";
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    JobLease jobLease;
+
+    private final String outdatedHashPattern;
+    private final Duration interval;
+    private volatile double outdatedHashes = Double.NaN;
+
+    public PasswordCostAudit(MeterRegistry meterRegistry,
+                             @Value("${app.security.bcrypt.strength:10}") int strength,
+                             @Value("${app.security.bcrypt.audit-interval:3600000}") long intervalMillis) {
+        this.outdatedHashPattern = outdatedHashPattern(strength);
+        this.interval = Duration.ofMillis(intervalMillis);
+        Gauge.builder("password.hash.outdated", this, audit -> audit.outdatedHashes)
+                .description("Stored password hashes with a cost factor below the configured strength")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.security.bcrypt.audit-initial-delay:60000}",
+               fixedDelayString = "${app.security.bcrypt.audit-interval:3600000}")
+    public void audit() {
+        if (outdatedHashPattern == null) {
+            return;
+        }
+        if (!jobLease.tryAcquire(LEASE, interval)) {
+            outdatedHashes = Double.NaN;
+            return;
+        }
+        try {
+            long count = userRepository.countByPasswordRegex(outdatedHashPattern);
+            outdatedHashes = count;
+            if (count > 0) {
+                logger.info("{} users have password hashes below the configured BCrypt cost", count);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Password cost audit failed: {}", e.getMessage());
+        }
+    }
+
+    // e.g. strength 12 -> ^\$2[aby]?\$(04|05|...|11)\$
+    static String outdatedHashPattern(int strength) {
+        if (strength <= MIN_BCRYPT_COST) {
+            return null;
+        }
+        StringJoiner costs = new StringJoiner("|", "^\\$2[aby]?\\$(", ")\\$");
+        for (int cost = MIN_BCRYPT_COST; cost < strength; cost++) {
+            costs.add(String.format("%02d", cost));
+        }
+        return costs.toString();
+    }
+}
@@ -0,0 +1,12 @@
+package com.devops.springmongo.service;
+
+/**
+ * Thrown when the password-hashing pool is saturated and a request should be
+ * turned away quickly instead of queueing behind other BCrypt work.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
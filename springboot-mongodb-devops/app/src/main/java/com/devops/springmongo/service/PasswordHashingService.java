@@ -0,0 +1,148 @@
+package com.devops.springmongo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt on a dedicated, bounded pool so that a burst of sign-ups
+ * cannot occupy every request thread with CPU-heavy hashing. When the queue
+ * is full callers fail fast with {@link PasswordHashingRejectedException}.
+ */
+@Service
+public class PasswordHashingService {
+
+    private static final long BACKOFF_MILLIS = 10;
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+
+    private final Timer hashTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.security.hashing.threads:0}") int threads,
+                                  @Value("${app.security.hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${app.security.hashing.timeout:PT5S}") Duration timeout) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeout = timeout;
+
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTimer = Timer.builder("password.hash.duration")
+                .description("Time spent computing password hashes")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("password.hash.rejected")
+                .description("Password hash requests rejected because the pool was saturated")
+                .register(meterRegistry);
+        Gauge.builder("password.hash.queue.depth", executor, e -> e.getQueue().size())
+                .description("Password hash requests waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashes currently being computed")
+                .register(meterRegistry);
+    }
+
+    public String encode(String rawPassword) {
+        return await(submit(rawPassword));
+    }
+
+    /**
+     * Hashes many passwords without holding more than one pool-size worth of
+     * queue slots at a time, so a bulk import leaves room for interactive
+     * sign-ups. Unlike {@link #encode}, a full queue makes it back off and
+     * retry until the configured timeout instead of failing at once.
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        List<String> hashes = new ArrayList<>(rawPasswords.size());
+        int wave = executor.getMaximumPoolSize();
+
+        for (int from = 0; from < rawPasswords.size(); from += wave) {
+            List<Future<String>> pending = new ArrayList<>(wave);
+            for (String rawPassword : rawPasswords.subList(from, Math.min(from + wave, rawPasswords.size()))) {
+                pending.add(submitWhenAvailable(rawPassword));
+            }
+            for (Future<String> hash : pending) {
+                hashes.add(await(hash));
+            }
+        }
+        return hashes;
+    }
+
+    private Future<String> submit(String rawPassword) {
+        try {
+            return executor.submit(() -> hashTimer.record(() -> passwordEncoder.encode(rawPassword)));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException("Too many concurrent sign-ups, please retry");
+        }
+    }
+
+    private Future<String> submitWhenAvailable(String rawPassword) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            try {
+                return executor.submit(() -> hashTimer.record(() -> passwordEncoder.encode(rawPassword)));
+            } catch (RejectedExecutionException e) {
+                if (System.nanoTime() > deadline) {
+                    rejectedCounter.increment();
+                    throw new PasswordHashingRejectedException("Password hashing pool saturated, please retry");
+                }
+                try {
+                    Thread.sleep(BACKOFF_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while hashing password", interrupted);
+                }
+            }
+        }
+    }
+
+    private String await(Future<String> hash) {
+        try {
+            return hash.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            hash.cancel(true);
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException("Password hashing timed out, please retry");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
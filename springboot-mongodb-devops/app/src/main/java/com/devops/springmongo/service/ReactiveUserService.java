@@ -0,0 +1,206 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.DailySignups;
+import com.devops.springmongo.model.SearchPage;
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserStats;
+import com.devops.springmongo.model.UserTombstone;
+import com.devops.springmongo.repository.ReactiveUserRepository;
+import com.devops.springmongo.repository.UserTombstoneRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Implementation of the {@link UserService} operations for the reactive
+ * runtime mode, with the same business rules, error messages and counters.
+ * Users are read and written through the reactive driver. Everything else is
+ * blocking and runs off the event loop: BCrypt hashing on the bounded hashing
+ * pool, and the statistics rollups ({@link UserStatsService}) and deletion
+ * tombstones ({@link UserTombstoneRepository}), which use the blocking driver,
+ * on {@code boundedElastic}.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveUserService.class);
+
+    @Autowired
+    ReactiveUserRepository userRepository;
+
+    @Autowired
+    PasswordHashingService passwordHashingService;
+
+    @Autowired
+    UserStatsService userStatsService;
+
+    @Autowired
+    UserTombstoneRepository userTombstoneRepository;
+
+    @Value("${app.search.max-candidates:500}")
+    int searchMaxCandidates;
+
+    private final Counter userCreatedCounter;
+    private final Counter userUpdatedCounter;
+    private final Counter userDeletedCounter;
+
+    public ReactiveUserService(MeterRegistry meterRegistry) {
+        this.userCreatedCounter = Counter.builder("users_created_total")
+                .description("Total number of users created")
+                .register(meterRegistry);
+        this.userUpdatedCounter = Counter.builder("users_updated_total")
+                .description("Total number of users updated")
+                .register(meterRegistry);
+        this.userDeletedCounter = Counter.builder("users_deleted_total")
+                .description("Total number of users deleted")
+                .register(meterRegistry);
+    }
+
+    public Flux<User> findAll(Pageable pageable) {
+        logger.debug("Fetching users with pagination: {}", pageable);
+        return userRepository.findAllBy(pageable);
+    }
+
+    public Mono<Page<User>> findPage(Pageable pageable) {
+        return findAll(pageable).collectList()
+                .zipWith(userRepository.count())
+                .map(result -> new PageImpl<>(result.getT1(), pageable, result.getT2()));
+    }
+
+    public Mono<User> findById(String id) {
+        logger.debug("Fetching user by id: {}", id);
+        return userRepository.findPublicById(id);
+    }
+
+    public Mono<User> save(User user) {
+        logger.info("Creating new user: {}", user.getUsername());
+
+        user.setVersion(null);
+        return Mono.fromCallable(() -> passwordHashingService.encode(user.getPassword()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(hash -> {
+                    user.setPassword(hash);
+                    return userRepository.insert(user);
+                })
+                .onErrorMap(DuplicateKeyException.class, DuplicateUserException::from)
+                .flatMap(savedUser -> blocking(() -> userStatsService.recordCreated(savedUser)).thenReturn(savedUser))
+                .doOnNext(savedUser -> {
+                    userCreatedCounter.increment();
+                    logger.info("User created successfully: {}", savedUser.getId());
+                });
+    }
+
+    public Mono<User> update(String id, User user) {
+        logger.info("Updating user: {}", id);
+
+        user.setUpdatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+        return updateProfile(id, user)
+                .switchIfEmpty(Mono.defer(() -> userRepository.findPublicById(id)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(stored -> {
+                            if (stored.isEmpty() || Objects.equals(stored.get().getUsername(), user.getUsername())) {
+                                return Mono.error(UserService.notUpdated(stored, id, user.getVersion()));
+                            }
+                            // see UserService#update: a different username is ignored
+                            user.setUsername(stored.get().getUsername());
+                            return updateProfile(id, user).switchIfEmpty(Mono.defer(() ->
+                                    Mono.error(UserService.notUpdated(stored, id, user.getVersion()))));
+                        })))
+                .flatMap(previous -> {
+                    User updatedUser = UserService.applyProfile(previous, user);
+                    return blocking(() -> userStatsService.recordUpdated(previous.isActive(), updatedUser.isActive()))
+                            .thenReturn(updatedUser);
+                })
+                .doOnNext(updatedUser -> {
+                    userUpdatedCounter.increment();
+                    logger.info("User updated successfully: {}", updatedUser.getId());
+                });
+    }
+
+    private Mono<User> updateProfile(String id, User user) {
+        return userRepository.updateProfile(id, user.getVersion(), user)
+                .onErrorMap(DuplicateKeyException.class, DuplicateUserException::from);
+    }
+
+    /** See {@link UserService#deleteById}, including the gap between removal and tombstone. */
+    public Mono<Void> deleteById(String id) {
+        logger.info("Deleting user: {}", id);
+
+        return userRepository.removeById(id)
+                .switchIfEmpty(Mono.error(new RuntimeException("User not found with id: " + id)))
+                .flatMap(removedUser -> blocking(() -> {
+                    userTombstoneRepository.save(new UserTombstone(id, LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS)));
+                    userStatsService.recordDeleted(removedUser);
+                }))
+                .doOnSuccess(ignored -> {
+                    userDeletedCounter.increment();
+                    logger.info("User deleted successfully: {}", id);
+                });
+    }
+
+    /**
+     * Same token-index search and ranking as {@link UserService#searchUsers},
+     * emitted as a stream of the requested page.
+     */
+    public Flux<User> searchUsers(String keyword, Pageable pageable) {
+        return searchPage(keyword, pageable).flatMapIterable(Page::getContent);
+    }
+
+    public Mono<SearchPage<User>> searchPage(String keyword, Pageable pageable) {
+        logger.debug("Searching users with keyword: {}", keyword);
+
+        List<String> terms = SearchTokenizer.queryTerms(keyword);
+        if (terms.isEmpty()) {
+            return Mono.just(new SearchPage<>(List.of(), pageable, 0, false));
+        }
+
+        return userRepository.findBySearchTokens(terms, PageRequest.of(0, searchMaxCandidates + 1))
+                .collectList()
+                .map(hits -> UserService.rank(hits, Function.identity(), terms, pageable, searchMaxCandidates));
+    }
+
+    public Mono<Long> countActiveUsers() {
+        return userRepository.countByActiveTrue();
+    }
+
+    public Mono<UserStats> getStats() {
+        return Mono.fromCallable(userStatsService::getStats).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<List<DailySignups>> getDailySignups(LocalDate from, LocalDate to) {
+        return Mono.fromCallable(() -> userStatsService.getDailySignups(from, to)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Flux<User> findActiveUsers() {
+        return userRepository.findByActiveTrue();
+    }
+
+    // statistics rollups and tombstones go through the blocking driver; keep them off the event loop
+    private Mono<Void> blocking(Runnable action) {
+        return Mono.fromRunnable(action).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+}
@@ -0,0 +1,67 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Populates {@code searchTokens} on users written before the token index
+ * existed. Runs once in the background after startup and works through the
+ * collection in batches; it is idempotent, so concurrent replicas only
+ * repeat each other's work.
+ */
+@Component
+public class SearchTokenBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchTokenBackfill.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.search.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.backfill.batch-size:500}")
+    private int batchSize;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    public long run() {
+        long updated = 0;
+        try {
+            List<User> batch;
+            while (!(batch = userRepository.findMissingSearchTokens(batchSize)).isEmpty()) {
+                Map<String, List<String>> tokensById = new LinkedHashMap<>();
+                for (User user : batch) {
+                    tokensById.put(user.getId(), SearchTokenizer.tokensFor(user));
+                }
+                userRepository.updateSearchTokens(tokensById);
+                updated += batch.size();
+                logger.debug("Backfilled search tokens for {} users", updated);
+            }
+            if (updated > 0) {
+                logger.info("Search token backfill completed: {} users updated", updated);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Search token backfill failed after {} users: {}", updated, e.getMessage());
+        }
+        return updated;
+    }
+}
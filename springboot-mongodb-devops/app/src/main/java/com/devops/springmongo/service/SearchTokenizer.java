@@ -0,0 +1,102 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.User;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the normalized prefix tokens stored in {@code User.searchTokens} and
+ * scores search hits. Each word of firstName, lastName, username and email is
+ * lower-cased, stripped of diacritics and indexed under every prefix from
+ * {@link #MIN_PREFIX} to {@link #MAX_PREFIX} characters, so a keyword lookup
+ * becomes an equality match on a multikey index.
+ */
+public final class SearchTokenizer {
+
+    public static final int MIN_PREFIX = 2;
+    public static final int MAX_PREFIX = 20;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private SearchTokenizer() {}
+
+    public static List<String> tokensFor(User user) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addPrefixes(tokens, user.getFirstName());
+        addPrefixes(tokens, user.getLastName());
+        addPrefixes(tokens, user.getUsername());
+        addPrefixes(tokens, user.getEmail());
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Splits a search keyword into the tokens that must all be present on a
+     * matching user. Words shorter than {@link #MIN_PREFIX} are dropped and
+     * longer ones are truncated to {@link #MAX_PREFIX}, mirroring the index.
+     */
+    public static List<String> queryTerms(String keyword) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : words(keyword)) {
+            if (word.length() >= MIN_PREFIX) {
+                terms.add(word.length() > MAX_PREFIX ? word.substring(0, MAX_PREFIX) : word);
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * Ranks a hit: whole-word matches beat prefix matches, and username and
+     * name matches beat email matches.
+     */
+    public static int score(User user, List<String> terms) {
+        int score = 0;
+        for (String term : terms) {
+            score += Math.max(
+                    Math.max(fieldScore(user.getUsername(), term, 4), fieldScore(user.getLastName(), term, 3)),
+                    Math.max(fieldScore(user.getFirstName(), term, 3), fieldScore(user.getEmail(), term, 1)));
+        }
+        return score;
+    }
+
+    private static int fieldScore(String value, String term, int weight) {
+        int best = 0;
+        for (String word : words(value)) {
+            if (word.equals(term)) {
+                return weight * 2;
+            }
+            if (word.startsWith(term)) {
+                best = weight;
+            }
+        }
+        return best;
+    }
+
+    private static void addPrefixes(Set<String> tokens, String value) {
+        for (String word : words(value)) {
+            int max = Math.min(word.length(), MAX_PREFIX);
+            for (int length = MIN_PREFIX; length <= max; length++) {
+                tokens.add(word.substring(0, length));
+            }
+        }
+    }
+
+    static List<String> words(String value) {
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(WORD_SEPARATOR.split(normalized))
+                .filter(word -> !word.isEmpty())
+                .toList();
+    }
+}
@@ -0,0 +1,12 @@
+package com.devops.springmongo.service;
+
+/**
+ * Thrown when the unindexed sorts allowed at once are all running and a
+ * request should be turned away instead of adding another blocking sort.
+ */
+public class SortCapacityExceededException extends RuntimeException {
+
+    public SortCapacityExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,263 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Merges concurrent single-user lookups into one {@code $in} query.
+ *
+ * <p>The first lookup to arrive opens a batch and becomes its leader: it waits
+ * up to {@code window} for more keys, or until {@code max-size} keys have
+ * joined, then runs one query on its own thread and completes every
+ * waiter. A key that is already being loaded is not queried again; the
+ * second caller waits for the first load. No threads are added, and a lone
+ * lookup pays at most the window in extra latency.
+ *
+ * <p>With {@code app.users.batch.enabled=false} every lookup goes straight
+ * to the repository.
+ */
+@Component
+public class UserBatchLoader {
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxSize;
+
+    private final Batcher byId;
+    private final Batcher byUsername;
+
+    private final DistributionSummary batchSize;
+    private final Counter deduplicated;
+
+    public UserBatchLoader(UserRepository userRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.users.batch.enabled:true}") boolean enabled,
+                           @Value("${app.users.batch.window:PT0.002S}") Duration window,
+                           @Value("${app.users.batch.max-size:100}") int maxSize) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.maxSize = maxSize;
+
+        this.byId = new Batcher(userRepository::findPublicByIdIn, User::getId);
+        this.byUsername = new Batcher(userRepository::findPublicByUsernameIn, User::getUsername);
+
+        this.batchSize = DistributionSummary.builder("users.batch.size")
+                .description("Keys per batched user lookup query")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue((double) maxSize)
+                .register(meterRegistry);
+        this.deduplicated = Counter.builder("users.batch.deduplicated")
+                .description("Lookups served by a load already in flight for the same key")
+                .register(meterRegistry);
+    }
+
+    public Optional<User> findById(String id) {
+        return enabled ? byId.load(id) : userRepository.findPublicById(id);
+    }
+
+    public Optional<User> findByUsername(String username) {
+        return enabled ? byUsername.load(username) : userRepository.findPublicByUsername(username);
+    }
+
+    /**
+     * Loads many ids with as few queries as possible, sharing loads already in
+     * flight. Returns the users found, keyed by id.
+     */
+    public Map<String, User> findAllById(Collection<String> ids) {
+        if (!enabled) {
+            return index(userRepository.findPublicByIdIn(ids), User::getId);
+        }
+        return byId.loadAll(ids);
+    }
+
+    /**
+     * Stops sharing in-flight loads of the user {@code id} by id or by
+     * {@code username}, which may have read the user before a write that
+     * just completed; later lookups query again.
+     */
+    public void forget(String id, String username) {
+        byId.inFlight.remove(id);
+        if (username != null) {
+            byUsername.inFlight.remove(username);
+        }
+    }
+
+    private static Map<String, User> index(List<User> users, Function<User, String> keyOf) {
+        Map<String, User> byKey = new HashMap<>();
+        for (User user : users) {
+            byKey.put(keyOf.apply(user), user);
+        }
+        return byKey;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private final class Batcher {
+
+        private final Function<Collection<String>, List<User>> query;
+        private final Function<User, String> keyOf;
+
+        private final Map<String, CompletableFuture<Optional<User>>> inFlight = new ConcurrentHashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition closed = lock.newCondition();
+        private Batch open;
+
+        private Batcher(Function<Collection<String>, List<User>> query, Function<User, String> keyOf) {
+            this.query = query;
+            this.keyOf = keyOf;
+        }
+
+        Optional<User> load(String key) {
+            if (key == null) {
+                return Optional.empty();
+            }
+            CompletableFuture<Optional<User>> future = new CompletableFuture<>();
+            CompletableFuture<Optional<User>> existing = inFlight.putIfAbsent(key, future);
+            if (existing != null) {
+                deduplicated.increment();
+                return await(existing);
+            }
+
+            Batch batch;
+            boolean leader;
+            lock.lock();
+            try {
+                leader = open == null;
+                if (leader) {
+                    open = new Batch();
+                }
+                batch = open;
+                batch.keys.put(key, future);
+                if (batch.keys.size() >= maxSize) {
+                    close(batch);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (leader) {
+                awaitKeys(batch);
+                dispatch(batch.keys);
+            }
+            return await(future);
+        }
+
+        Map<String, User> loadAll(Collection<String> keys) {
+            Map<String, CompletableFuture<Optional<User>>> waiting = new HashMap<>();
+            Map<String, CompletableFuture<Optional<User>>> owned = new HashMap<>();
+            for (String key : new LinkedHashSet<>(keys)) {
+                if (key == null) {
+                    continue;
+                }
+                CompletableFuture<Optional<User>> future = new CompletableFuture<>();
+                CompletableFuture<Optional<User>> existing = inFlight.putIfAbsent(key, future);
+                if (existing != null) {
+                    deduplicated.increment();
+                    waiting.put(key, existing);
+                } else {
+                    owned.put(key, future);
+                    waiting.put(key, future);
+                }
+            }
+
+            // the caller already has its batch; split it by max-size instead of waiting for others
+            Map<String, CompletableFuture<Optional<User>>> chunk = new HashMap<>();
+            for (Map.Entry<String, CompletableFuture<Optional<User>>> entry : owned.entrySet()) {
+                chunk.put(entry.getKey(), entry.getValue());
+                if (chunk.size() >= maxSize) {
+                    dispatch(chunk);
+                    chunk = new HashMap<>();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                dispatch(chunk);
+            }
+
+            Map<String, User> found = new HashMap<>();
+            waiting.forEach((key, future) -> await(future).ifPresent(user -> found.put(key, user)));
+            return found;
+        }
+
+        private void awaitKeys(Batch batch) {
+            long remaining = windowNanos;
+            lock.lock();
+            try {
+                while (!batch.closed && remaining > 0) {
+                    remaining = closed.awaitNanos(remaining);
+                }
+                close(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close(batch);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // called with the lock held
+        private void close(Batch batch) {
+            if (!batch.closed) {
+                batch.closed = true;
+                if (open == batch) {
+                    open = null;
+                }
+                closed.signalAll();
+            }
+        }
+
+        private void dispatch(Map<String, CompletableFuture<Optional<User>>> keys) {
+            batchSize.record(keys.size());
+            try {
+                Map<String, User> found = index(query.apply(new ArrayList<>(keys.keySet())), keyOf);
+                keys.forEach((key, future) -> {
+                    inFlight.remove(key, future);
+                    future.complete(Optional.ofNullable(found.get(key)));
+                });
+            } catch (RuntimeException e) {
+                keys.forEach((key, future) -> {
+                    inFlight.remove(key, future);
+                    future.completeExceptionally(e);
+                });
+            }
+        }
+    }
+
+    private static final class Batch {
+
+        // guarded by the batcher's lock until closed, then owned by the leader
+        private final Map<String, CompletableFuture<Optional<User>>> keys = new HashMap<>();
+        private boolean closed;
+    }
+}
@@ -0,0 +1,195 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Size-bounded read-through cache for single-user lookups.
+ *
+ * <p>Users live in one Caffeine cache keyed by id (W-TinyLFU eviction,
+ * expire-after-write TTL). Username and email keys only map to an id and are
+ * re-checked against the cached user on every hit, so evicting the id entry
+ * invalidates all three keys at once. A load that overlaps an invalidation is
+ * returned to its caller but not cached.
+ *
+ * <p>The cache is local to each instance and invalidations are not broadcast:
+ * a write on one replica only evicts there, so other replicas may serve the
+ * previous version of a user for up to the TTL after it changed.
+ */
+@Component
+public class UserCache {
+
+    private final Cache<String, User> byId;
+    private final Cache<String, String> idByUsername;
+    private final Cache<String, String> idByEmail;
+
+    private final Lookup idLookup;
+    private final Lookup usernameLookup;
+    private final Lookup emailLookup;
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserCache(MeterRegistry meterRegistry,
+                     @Value("${app.cache.users.max-size:10000}") long maxSize,
+                     @Value("${app.cache.users.ttl:PT30S}") Duration ttl) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.idByUsername = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).build();
+        this.idByEmail = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).build();
+
+        this.idLookup = new Lookup(meterRegistry, "id");
+        this.usernameLookup = new Lookup(meterRegistry, "username");
+        this.emailLookup = new Lookup(meterRegistry, "email");
+
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users");
+    }
+
+    public Optional<User> getById(String id, Function<String, Optional<User>> loader) {
+        User cached = byId.getIfPresent(id);
+        if (cached != null) {
+            idLookup.hits.increment();
+            return Optional.of(new User(cached));
+        }
+        idLookup.misses.increment();
+        return load(idLookup, id, loader, null);
+    }
+
+    /**
+     * Cached users for {@code ids}, loading all misses with one call to
+     * {@code loader}. Returns the users found, keyed by id.
+     */
+    public Map<String, User> getAllById(Collection<String> ids, Function<Collection<String>, Map<String, User>> loader) {
+        Map<String, User> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            User cached = byId.getIfPresent(id);
+            if (cached != null) {
+                idLookup.hits.increment();
+                found.put(id, new User(cached));
+            } else {
+                idLookup.misses.increment();
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        long generation = invalidations.get();
+        long start = System.nanoTime();
+        Map<String, User> loaded = loader.apply(missing);
+        idLookup.loadTimer.record(Duration.ofNanos(System.nanoTime() - start));
+
+        boolean cacheable = invalidations.get() == generation;
+        loaded.forEach((id, user) -> {
+            if (cacheable) {
+                byId.put(id, new User(user));
+            }
+            found.put(id, user);
+        });
+        return found;
+    }
+
+    public Optional<User> getByUsername(String username, Function<String, Optional<User>> loader) {
+        return getBySecondaryKey(usernameLookup, username, idByUsername, User::getUsername, loader);
+    }
+
+    public Optional<User> getByEmail(String email, Function<String, Optional<User>> loader) {
+        return getBySecondaryKey(emailLookup, email, idByEmail, User::getEmail, loader);
+    }
+
+    /**
+     * Drops the user with the given id. Username and email entries that
+     * pointed at it fail their re-check on the next lookup and reload.
+     */
+    public void invalidate(String id) {
+        invalidations.incrementAndGet();
+        byId.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        byId.invalidateAll();
+        idByUsername.invalidateAll();
+        idByEmail.invalidateAll();
+    }
+
+    private Optional<User> getBySecondaryKey(Lookup lookup, String key, Cache<String, String> index,
+                                             Function<User, String> keyOf,
+                                             Function<String, Optional<User>> loader) {
+        String id = index.getIfPresent(key);
+        if (id != null) {
+            User cached = byId.getIfPresent(id);
+            if (cached != null && key.equals(keyOf.apply(cached))) {
+                lookup.hits.increment();
+                return Optional.of(new User(cached));
+            }
+            index.invalidate(key);
+        }
+        lookup.misses.increment();
+        return load(lookup, key, loader, index);
+    }
+
+    private Optional<User> load(Lookup lookup, String key, Function<String, Optional<User>> loader,
+                                Cache<String, String> index) {
+        long generation = invalidations.get();
+
+        long start = System.nanoTime();
+        Optional<User> loaded = loader.apply(key);
+        lookup.loadTimer.record(Duration.ofNanos(System.nanoTime() - start));
+
+        loaded.ifPresent(user -> {
+            if (user.getId() != null && invalidations.get() == generation) {
+                byId.put(user.getId(), new User(user));
+                if (index != null) {
+                    index.put(key, user.getId());
+                }
+            }
+        });
+        return loaded;
+    }
+
+    private static final class Lookup {
+
+        private final Counter hits;
+        private final Counter misses;
+        private final Timer loadTimer;
+
+        private Lookup(MeterRegistry meterRegistry, String key) {
+            this.hits = Counter.builder("users.cache.lookups")
+                    .description("User cache lookups by key type and result")
+                    .tag("lookup", key)
+                    .tag("result", "hit")
+                    .register(meterRegistry);
+            this.misses = Counter.builder("users.cache.lookups")
+                    .description("User cache lookups by key type and result")
+                    .tag("lookup", key)
+                    .tag("result", "miss")
+                    .register(meterRegistry);
+            this.loadTimer = Timer.builder("users.cache.load")
+                    .description("Time spent loading users into the cache")
+                    .tag("lookup", key)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -1,19 +1,44 @@
 package com.devops.springmongo.service;
 
+import com.devops.springmongo.model.ChangeCursor;
+import com.devops.springmongo.model.RawUserView;
+import com.devops.springmongo.model.SearchPage;
 import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserChange;
+import com.devops.springmongo.model.UserChanges;
+import com.devops.springmongo.model.UserCursor;
+import com.devops.springmongo.model.UserSlice;
+import com.devops.springmongo.model.UserTombstone;
+import com.devops.springmongo.model.UserView;
 import com.devops.springmongo.repository.UserRepository;
+import com.devops.springmongo.repository.UserTombstoneRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
@@ -21,10 +46,34 @@ public class UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
     @Autowired
-    private UserRepository userRepository;
+    UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    PasswordHashingService passwordHashingService;
+
+    @Autowired
+    UserCache userCache;
+
+    @Autowired
+    UserStatsService userStatsService;
+
+    @Autowired
+    UserBatchLoader userBatchLoader;
+
+    @Autowired
+    UserTombstoneRepository userTombstoneRepository;
+
+    @Autowired
+    UserSortPlanner userSortPlanner;
+
+    @Value("${app.search.max-candidates:500}")
+    int searchMaxCandidates;
+
+    @Value("${app.users.stream.batch-size:1000}")
+    int streamBatchSize;
+
+    @Value("${app.users.changes.settle:PT5S}")
+    Duration changesSettle = Duration.ofSeconds(5);
 
     private final Counter userCreatedCounter;
     private final Counter userUpdatedCounter;
@@ -52,34 +101,115 @@ public class UserService {
         return userRepository.findAll(pageable);
     }
 
+    /**
+     * Like {@link #findAll(Pageable)}, but reads only {@code fields} from
+     * MongoDB. A sort no index serves is rejected or budgeted by
+     * {@link UserSortPlanner}.
+     */
+    public Page<UserView> findViews(Pageable pageable, Set<String> fields) {
+        logger.debug("Fetching user views with pagination: {}, fields: {}", pageable, fields);
+        return userSortPlanner.execute(pageable,
+                () -> userRepository.findViews(pageable, fields),
+                maxTime -> userRepository.findViewsSortedOnDisk(pageable, fields, maxTime));
+    }
+
+    /** {@link #findViews} without entity mapping; the page serializes straight from BSON. */
+    public Page<RawUserView> findRawViews(Pageable pageable, Set<String> fields) {
+        logger.debug("Fetching raw user views with pagination: {}, fields: {}", pageable, fields);
+        return userSortPlanner.execute(pageable,
+                () -> userRepository.findRawViews(pageable, fields),
+                maxTime -> userRepository.findRawViewsSortedOnDisk(pageable, fields, maxTime));
+    }
+
+    /**
+     * Keyset pagination: seeks past {@code position} (see
+     * {@link UserCursor#parse}) instead of skipping, and never counts the
+     * collection. Only {@code fields} are read and returned. The sort comes
+     * from {@link UserSortPlanner}, so unique fields have no _id tie-breaker
+     * and a sort no index serves is rejected.
+     */
+    public UserSlice<UserView> findSlice(UserCursor position, int size, Set<String> fields) {
+        logger.debug("Fetching users after cursor: {}, size: {}", position.isStart() ? "start" : position.encode(), size);
+
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than zero");
+        }
+
+        String sortField = position.getSortField();
+        Sort.Direction direction = position.getDirection();
+        UserCursor after = position.isStart() ? null : position;
+        Sort sort = userSortPlanner.requireIndexed(userSortPlanner.sort(sortField, direction.name()));
+
+        List<User> users = userRepository.findAfter(sort, after, size + 1, fields);
+        boolean hasNext = users.size() > size;
+        if (hasNext) {
+            users = users.subList(0, size);
+        }
+
+        String nextCursor = hasNext
+                ? UserCursor.after(sortField, direction, users.get(users.size() - 1)).encode()
+                : null;
+        List<UserView> views = users.stream().map(user -> UserView.of(user, fields)).toList();
+        return new UserSlice<>(views, size, hasNext, nextCursor);
+    }
+
+    /**
+     * Cached lookups. Users are loaded without their password hash or search
+     * tokens, so neither is held in the cache nor returned to callers. Cache
+     * misses by id or username are batched with concurrent misses by
+     * {@link UserBatchLoader}.
+     */
     public Optional<User> findById(String id) {
         logger.debug("Fetching user by id: {}", id);
-        return userRepository.findById(id);
+        return userCache.getById(id, userBatchLoader::findById);
+    }
+
+    /**
+     * Multi-get: cached users plus one batched query for the rest, in the
+     * order of {@code ids}. Unknown ids are left out.
+     */
+    public List<User> findAllById(List<String> ids) {
+        logger.debug("Fetching {} users by id", ids.size());
+        Map<String, User> found = userCache.getAllById(new LinkedHashSet<>(ids), userBatchLoader::findAllById);
+        return ids.stream().distinct().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Version and last update of a user, enough to evaluate a conditional
+     * request, from a projection of just those two fields. Not from the
+     * cache: a copy another replica has updated since would still match the
+     * client's tag and turn a changed user into a 304.
+     */
+    public Optional<User> findVersionStamp(String id) {
+        return userRepository.findVersionStampById(id);
     }
 
     public Optional<User> findByUsername(String username) {
         logger.debug("Fetching user by username: {}", username);
-        return userRepository.findByUsername(username);
+        return userCache.getByUsername(username, userBatchLoader::findByUsername);
     }
 
     public Optional<User> findByEmail(String email) {
         logger.debug("Fetching user by email: {}", email);
-        return userRepository.findByEmail(email);
+        return userCache.getByEmail(email, userRepository::findPublicByEmail);
     }
 
+    /**
+     * Inserts the user in one round trip; the unique indexes on username and
+     * email reject duplicates with a {@link DuplicateUserException}.
+     */
     public User save(User user) {
         logger.info("Creating new user: {}", user.getUsername());
 
-        if (userRepository.existsByUsername(user.getUsername())) {
-            throw new RuntimeException("Username is already taken!");
-        }
-
-        if (userRepository.existsByEmail(user.getEmail())) {
-            throw new RuntimeException("Email is already in use!");
+        user.setVersion(null);
+        user.setPassword(passwordHashingService.encode(user.getPassword()));
+        User savedUser;
+        try {
+            savedUser = userRepository.insert(user);
+        } catch (DuplicateKeyException e) {
+            throw DuplicateUserException.from(e);
         }
-
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
-        User savedUser = userRepository.save(user);
+        userStatsService.recordCreated(savedUser);
 
         userCreatedCounter.increment();
         logger.info("User created successfully: {}", savedUser.getId());
@@ -87,40 +217,191 @@ public class UserService {
         return savedUser;
     }
 
+    /**
+     * Applies the profile fields of {@code user} with one findAndModify. The
+     * username cannot be changed and a different one is ignored. When
+     * {@code user.getVersion()} is set it must match the stored version,
+     * otherwise an {@link OptimisticLockingFailureException} is thrown.
+     */
     public User update(String id, User user) {
         logger.info("Updating user: {}", id);
 
-        return userRepository.findById(id)
-            .map(existingUser -> {
-                existingUser.setFirstName(user.getFirstName());
-                existingUser.setLastName(user.getLastName());
-                existingUser.setEmail(user.getEmail());
-                existingUser.setActive(user.isActive());
+        user.setUpdatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+        User previous = updateProfile(id, user);
+
+        if (previous == null) {
+            // only the failure path pays for a second round trip
+            Optional<User> stored = userRepository.findPublicById(id);
+            if (stored.isPresent() && !Objects.equals(stored.get().getUsername(), user.getUsername())) {
+                // the search tokens follow the username of the request; retry with the stored one
+                user.setUsername(stored.get().getUsername());
+                previous = updateProfile(id, user);
+            }
+            if (previous == null) {
+                throw notUpdated(stored, id, user.getVersion());
+            }
+        }
+
+        User updatedUser = applyProfile(previous, user);
+
+        userCache.invalidate(id);
+        userBatchLoader.forget(id, previous.getUsername());
+        userStatsService.recordUpdated(previous.isActive(), updatedUser.isActive());
+        userUpdatedCounter.increment();
+        logger.info("User updated successfully: {}", updatedUser.getId());
 
-                User updatedUser = userRepository.save(existingUser);
-                userUpdatedCounter.increment();
-                logger.info("User updated successfully: {}", updatedUser.getId());
+        return updatedUser;
+    }
+
+    private User updateProfile(String id, User user) {
+        try {
+            return userRepository.updateProfile(id, user.getVersion(), user);
+        } catch (DuplicateKeyException e) {
+            throw DuplicateUserException.from(e);
+        }
+    }
+
+    /** Why {@code updateProfile} matched nothing, given the user as read afterwards. */
+    static RuntimeException notUpdated(Optional<User> stored, String id, Long expectedVersion) {
+        if (stored.isPresent() && expectedVersion != null) {
+            return new OptimisticLockingFailureException("User was modified concurrently: " + id);
+        }
+        return new RuntimeException("User not found with id: " + id);
+    }
 
-                return updatedUser;
-            })
-            .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
+    /** Rebuilds the stored state after {@code updateProfile} from the pre-image and the changes. */
+    static User applyProfile(User previous, User changes) {
+        User updatedUser = new User(previous);
+        updatedUser.setFirstName(changes.getFirstName());
+        updatedUser.setLastName(changes.getLastName());
+        updatedUser.setEmail(changes.getEmail());
+        updatedUser.setActive(changes.isActive());
+        updatedUser.setUpdatedAt(changes.getUpdatedAt());
+        updatedUser.setVersion(previous.getVersion() != null ? previous.getVersion() + 1 : 1L);
+        return updatedUser;
     }
 
+    /**
+     * Removes the user, then writes the tombstone the change feed reports the
+     * deletion from. The two writes are not atomic: if the tombstone write
+     * fails, the deletion is missing from the feed and consumers only see it
+     * on a full resync.
+     */
     public void deleteById(String id) {
         logger.info("Deleting user: {}", id);
 
-        if (!userRepository.existsById(id)) {
+        User removedUser = userRepository.removeById(id);
+        if (removedUser == null) {
             throw new RuntimeException("User not found with id: " + id);
         }
 
-        userRepository.deleteById(id);
+        userCache.invalidate(id);
+        userBatchLoader.forget(id, removedUser.getUsername());
+        userTombstoneRepository.save(new UserTombstone(id, LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS)));
+        userStatsService.recordDeleted(removedUser);
         userDeletedCounter.increment();
         logger.info("User deleted successfully: {}", id);
     }
 
-    public Page<User> searchUsers(String keyword, Pageable pageable) {
+    /**
+     * Change feed: users created, updated or deleted after the checkpoint
+     * {@code since} (blank for the beginning), oldest first, at most
+     * {@code size} of them. Users and tombstones are each read from their
+     * index in (change time, _id) order and merged.
+     *
+     * <p>Changes from the last {@code app.users.changes.settle} are held back.
+     * Change times are stamped by the application before the write lands, so a
+     * slow write can become visible after a later one; the lag keeps the
+     * checkpoint from moving past it. A checkpoint older than tombstones are
+     * kept throws {@link ExpiredChangeTokenException}.
+     */
+    public UserChanges findChanges(String since, int size) {
+        logger.debug("Fetching user changes since: {}, size: {}", since, size);
+
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than zero");
+        }
+
+        ChangeCursor after = since == null || since.isBlank() ? ChangeCursor.START : ChangeCursor.decode(since);
+        LocalDateTime now = LocalDateTime.now();
+        if (after != ChangeCursor.START && after.getChangedAt().isBefore(now.minus(UserTombstone.RETENTION))) {
+            throw new ExpiredChangeTokenException("Change token is older than " + UserTombstone.RETENTION.toDays()
+                    + " days; resync from the start");
+        }
+
+        LocalDateTime until = now.minus(changesSettle);
+        List<User> users = userRepository.findChangedAfter(after.getChangedAt(), after.getLastId(), until,
+                PageRequest.of(0, size + 1, Sort.by("updatedAt", "id")));
+        List<UserTombstone> tombstones = userTombstoneRepository.findDeletedAfter(after.getChangedAt(), after.getLastId(),
+                until, PageRequest.of(0, size + 1, Sort.by("deletedAt", "id")));
+
+        List<UserChange> changes = new ArrayList<>(Math.min(size, users.size() + tombstones.size()));
+        int u = 0;
+        int t = 0;
+        while (changes.size() < size && (u < users.size() || t < tombstones.size())) {
+            boolean takeUser = t == tombstones.size() || u < users.size()
+                    && new ChangeCursor(users.get(u).getUpdatedAt(), users.get(u).getId())
+                            .compareTo(tombstones.get(t).getDeletedAt(), tombstones.get(t).getId()) < 0;
+            changes.add(takeUser ? UserChange.upserted(users.get(u++)) : UserChange.deleted(tombstones.get(t++)));
+        }
+
+        boolean hasMore = u < users.size() || t < tombstones.size();
+        ChangeCursor next = changes.isEmpty() ? after : changes.get(changes.size() - 1).cursor();
+        return new UserChanges(changes, hasMore, next.encode());
+    }
+
+    /**
+     * Token-index search: every word of the keyword must prefix a word of the
+     * user's name, username or email. At most {@code app.search.max-candidates}
+     * hits are ranked and paged; hits come in index order, so when more users
+     * match the page is marked {@link SearchPage#isCapped() capped} and a
+     * narrower keyword is needed to reach the rest.
+     */
+    public SearchPage<User> searchUsers(String keyword, Pageable pageable) {
         logger.debug("Searching users with keyword: {}", keyword);
-        return userRepository.searchUsers(keyword, pageable);
+
+        List<String> terms = SearchTokenizer.queryTerms(keyword);
+        if (terms.isEmpty()) {
+            return new SearchPage<>(List.of(), pageable, 0, false);
+        }
+        return rank(userRepository.findBySearchTokens(terms, searchMaxCandidates + 1), Function.identity(), terms, pageable,
+                searchMaxCandidates);
+    }
+
+    /** {@link #searchUsers} without entity mapping, returning only {@code fields}. */
+    public SearchPage<RawUserView> searchRawUsers(String keyword, Pageable pageable, Set<String> fields) {
+        logger.debug("Searching raw users with keyword: {}", keyword);
+
+        List<String> terms = SearchTokenizer.queryTerms(keyword);
+        if (terms.isEmpty()) {
+            return new SearchPage<>(List.of(), pageable, 0, false);
+        }
+        return rank(userRepository.findRawBySearchTokens(terms, searchMaxCandidates + 1, fields), RawUserView::names,
+                terms, pageable, searchMaxCandidates);
+    }
+
+    /**
+     * Best score first, then by username; each hit's names are read once.
+     * {@code hits} holds up to one more than {@code window}, which only
+     * tells that the window is capped and is not ranked itself.
+     */
+    static <T> SearchPage<T> rank(List<T> hits, Function<T, User> names, List<String> terms, Pageable pageable, int window) {
+        record Ranked<T>(T hit, int score, String username) {}
+        boolean capped = hits.size() > window;
+        List<T> ranked = hits.stream()
+                .limit(window)
+                .map(hit -> {
+                    User user = names.apply(hit);
+                    return new Ranked<>(hit, SearchTokenizer.score(user, terms), user.getUsername());
+                })
+                .sorted(Comparator.<Ranked<T>>comparingInt(Ranked::score).reversed()
+                        .thenComparing(Ranked::username, Comparator.nullsLast(Comparator.naturalOrder())))
+                .map(Ranked::hit)
+                .toList();
+
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        return new SearchPage<>(ranked.subList(from, to), pageable, ranked.size(), capped);
     }
 
     public long countActiveUsers() {
@@ -130,4 +411,23 @@ public class UserService {
     public List<User> findActiveUsers() {
         return userRepository.findByActiveTrue();
     }
-}
\ No newline at end of file
+
+    /** {@link #streamActiveUsers()} reading only {@code fields}; the caller must close the stream. */
+    public Stream<UserView> streamActiveViews(Set<String> fields) {
+        return userRepository.streamActiveViews(streamBatchSize, fields);
+    }
+
+    /** {@link #streamActiveViews} as raw BSON; the caller must close the stream. */
+    public Stream<RawUserView> streamActiveRawViews(Set<String> fields) {
+        return userRepository.streamActiveRawViews(streamBatchSize, fields);
+    }
+
+    /**
+     * Cursor-backed alternative to {@link #findActiveUsers()} for large
+     * exports; the caller must close the stream.
+     */
+    public Stream<User> streamActiveUsers() {
+        logger.debug("Streaming active users with batch size: {}", streamBatchSize);
+        return userRepository.streamActiveUsers(streamBatchSize);
+    }
+}
@@ -0,0 +1,255 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Decides how a user list sort runs. A sort is index-backed when its keys
+ * are a prefix of an index on users, all in the index's direction or all
+ * reversed, so MongoDB walks the index instead of sorting in memory. The
+ * indexes are the ones declared on {@link User}, plus a
+ * {@code {field: 1, _id: 1}} index for each of
+ * {@code app.users.sort.indexed-fields}, which this planner creates after
+ * startup when {@code app.users.sort.create-indexes} is on.
+ *
+ * <p>Any other sort is rejected, or with {@code app.users.sort.unindexed=disk}
+ * runs with allowDiskUse under a time limit, a page window and its own
+ * concurrency budget, so that a few expensive sorts cannot occupy the
+ * database.
+ */
+@Service
+public class UserSortPlanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSortPlanner.class);
+
+    public enum Unindexed { REJECT, DISK }
+
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+    private final List<String> indexedFields;
+    private final boolean createIndexes;
+    private final Unindexed unindexed;
+    private final Semaphore diskSorts;
+    private final Duration diskMaxTime;
+    private final long diskMaxWindow;
+
+    private final List<IndexKeys> indexes = new ArrayList<>();
+    private final Set<String> uniqueFields = new TreeSet<>();
+
+    private final Counter indexSortCounter;
+    private final Counter diskSortCounter;
+    private final Counter rejectedSortCounter;
+
+    public UserSortPlanner(MeterRegistry meterRegistry,
+                           ObjectProvider<MongoTemplate> mongoTemplate,
+                           @Value("${app.users.sort.indexed-fields:}") List<String> indexedFields,
+                           @Value("${app.users.sort.create-indexes:true}") boolean createIndexes,
+                           @Value("${app.users.sort.unindexed:reject}") String unindexed,
+                           @Value("${app.users.sort.disk.max-concurrent:2}") int diskMaxConcurrent,
+                           @Value("${app.users.sort.disk.max-time:PT5S}") Duration diskMaxTime,
+                           @Value("${app.users.sort.disk.max-window:10000}") long diskMaxWindow) {
+        this.mongoTemplate = mongoTemplate;
+        this.indexedFields = indexedFields.stream().map(String::trim).filter(field -> !field.isEmpty()).toList();
+        this.createIndexes = createIndexes;
+        this.unindexed = Unindexed.valueOf(unindexed.trim().toUpperCase());
+        this.diskSorts = new Semaphore(diskMaxConcurrent);
+        this.diskMaxTime = diskMaxTime;
+        this.diskMaxWindow = diskMaxWindow;
+
+        // the declared indexes are read without a MongoDB connection, so they are known in every profile
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        indexes.add(new IndexKeys(List.of(Sort.Order.asc("id"))));
+        for (IndexDefinition index : new MongoPersistentEntityIndexResolver(mappingContext).resolveIndexFor(User.class)) {
+            IndexKeys keys = IndexKeys.of(index.getIndexKeys());
+            if (keys != null) {
+                indexes.add(keys);
+                if (keys.keys().size() == 1 && index.getIndexOptions().getBoolean("unique", false)) {
+                    uniqueFields.add(keys.keys().get(0).getProperty());
+                }
+            }
+        }
+        for (String field : this.indexedFields) {
+            if (!UserView.FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown sort field in app.users.sort.indexed-fields: " + field);
+            }
+            indexes.add(new IndexKeys(List.of(Sort.Order.asc(field), Sort.Order.asc("id"))));
+        }
+
+        this.indexSortCounter = sortCounter(meterRegistry, "index");
+        this.diskSortCounter = sortCounter(meterRegistry, "disk");
+        this.rejectedSortCounter = sortCounter(meterRegistry, "rejected");
+    }
+
+    private static Counter sortCounter(MeterRegistry meterRegistry, String plan) {
+        return Counter.builder("users.sort.planned")
+                .description("User list sorts by how they were run")
+                .tag("plan", plan)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The sort for {@code sortBy}/{@code sortDir}. A field without a unique
+     * index gets _id as tie-breaker, so that equal values keep the same order
+     * from page to page and the sort still matches a {field, _id} index.
+     */
+    public Sort sort(String sortBy, String sortDir) {
+        if (!UserView.FIELDS.contains(sortBy)) {
+            throw new IllegalArgumentException("Unknown sort field: " + sortBy);
+        }
+        Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = Sort.by(direction, sortBy);
+        return "id".equals(sortBy) || uniqueFields.contains(sortBy) ? sort : sort.and(Sort.by(direction, "id"));
+    }
+
+    public boolean isIndexed(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        return orders.isEmpty() || indexes.stream().anyMatch(index -> index.covers(orders));
+    }
+
+    /** Fields whose sort an index serves, for error messages and docs. */
+    public Set<String> getIndexedSortFields() {
+        Set<String> fields = new TreeSet<>();
+        indexes.forEach(index -> fields.add(index.keys().get(0).getProperty()));
+        fields.retainAll(UserView.FIELDS);
+        return fields;
+    }
+
+    /**
+     * Runs {@code indexed} when an index serves the sort of {@code pageable};
+     * otherwise rejects it, or runs {@code onDisk} with the time limit when
+     * unindexed sorts are allowed and the disk-sort budget has room.
+     */
+    public <T> T execute(Pageable pageable, Supplier<T> indexed, Function<Duration, T> onDisk) {
+        if (isIndexed(pageable.getSort())) {
+            indexSortCounter.increment();
+            return indexed.get();
+        }
+        if (unindexed == Unindexed.REJECT) {
+            rejectedSortCounter.increment();
+            throw notIndexed(pageable.getSort());
+        }
+        if (pageable.isPaged() && pageable.getOffset() + pageable.getPageSize() > diskMaxWindow) {
+            rejectedSortCounter.increment();
+            throw new IllegalArgumentException("Sorting by " + sortField(pageable.getSort()) + " is limited to the first "
+                    + diskMaxWindow + " users");
+        }
+        if (!diskSorts.tryAcquire()) {
+            rejectedSortCounter.increment();
+            throw new SortCapacityExceededException("Too many unindexed sorts in progress, retry shortly");
+        }
+        try {
+            diskSortCounter.increment();
+            return onDisk.apply(diskMaxTime);
+        } finally {
+            diskSorts.release();
+        }
+    }
+
+    /**
+     * Returns {@code sort} when an index serves it and rejects it otherwise,
+     * for callers without a disk-sort path such as the reactive endpoints.
+     */
+    public Sort requireIndexed(Sort sort) {
+        if (!isIndexed(sort)) {
+            rejectedSortCounter.increment();
+            throw notIndexed(sort);
+        }
+        indexSortCounter.increment();
+        return sort;
+    }
+
+    private IllegalArgumentException notIndexed(Sort sort) {
+        return new IllegalArgumentException("Sorting by " + sortField(sort) + " is not backed by an index; "
+                + "sort by one of " + getIndexedSortFields());
+    }
+
+    private static String sortField(Sort sort) {
+        return sort.iterator().next().getProperty();
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (createIndexes && !indexedFields.isEmpty()) {
+            ensureIndexes();
+        }
+    }
+
+    /** Creates the {field, _id} index of each of {@code app.users.sort.indexed-fields} that is missing. */
+    public void ensureIndexes() {
+        MongoTemplate template = mongoTemplate.getIfAvailable();
+        if (template == null) {
+            return;
+        }
+        IndexOperations indexOps = template.indexOps(User.class);
+        for (String field : indexedFields) {
+            try {
+                indexOps.ensureIndex(new Index().on(field, Sort.Direction.ASC).on("_id", Sort.Direction.ASC).named(field + "_id"));
+                logger.info("Ensured sort index {}_id", field);
+            } catch (RuntimeException e) {
+                logger.error("Could not create sort index {}_id: {}", field, e.getMessage());
+            }
+        }
+    }
+
+    /** Keys of one index in order, with property names as a {@link Sort} uses them. */
+    record IndexKeys(List<Sort.Order> keys) {
+
+        static IndexKeys of(Document keys) {
+            List<Sort.Order> orders = new ArrayList<>();
+            for (var key : keys.entrySet()) {
+                if (!(key.getValue() instanceof Number direction)) {
+                    return null; // text, hashed and geo indexes do not serve sorts
+                }
+                String property = "_id".equals(key.getKey()) ? "id" : key.getKey();
+                orders.add(direction.intValue() < 0 ? Sort.Order.desc(property) : Sort.Order.asc(property));
+            }
+            return orders.isEmpty() ? null : new IndexKeys(orders);
+        }
+
+        boolean covers(List<Sort.Order> orders) {
+            if (orders.size() > keys.size()) {
+                return false;
+            }
+            boolean reversed = orders.get(0).getDirection() != keys.get(0).getDirection();
+            for (int i = 0; i < orders.size(); i++) {
+                Sort.Order order = orders.get(i);
+                Sort.Order key = keys.get(i);
+                if (!order.getProperty().equals(key.getProperty())
+                        || (order.getDirection() != key.getDirection()) != reversed) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.DailySignups;
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserStats;
+import com.devops.springmongo.repository.UserRepository;
+import com.devops.springmongo.repository.UserStatsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Serves user statistics from materialized rollups instead of counting the
+ * users collection per request. User writes apply deltas to an active and
+ * inactive total and to per-day signup counters as they happen; a scheduled
+ * reconcile recounts the collection and applies the difference to the
+ * rollups, correcting drift from failed delta updates. The recount scans
+ * users, so only the replica holding the reconcile's {@link JobLease} runs
+ * it, and it applies the difference with {@code $inc} rather than
+ * overwriting, so deltas written meanwhile are not lost.
+ *
+ * <p>Every user write also bumps the totals' revision, which list endpoints
+ * use as a collection-level ETag; see {@link #getRevision()}.
+ *
+ * <p>With {@code app.stats.materialized=false} no rollups are written and
+ * every read counts the users collection.
+ */
+@Service
+public class UserStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatsService.class);
+
+    private static final String RECONCILE_LEASE = "stats-reconcile";
+
+    // bounds of every ISO date, for reading all daily counters
+    private static final String FIRST_DAY = "0000-01-01";
+    private static final String LAST_DAY = "9999-12-31";
+
+    @Autowired
+    UserStatsRepository userStatsRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Value("${app.stats.materialized:true}")
+    boolean materialized;
+
+    @Value("${app.stats.signups.max-days:366}")
+    int maxSignupDays;
+
+    @Autowired
+    JobLease jobLease;
+
+    @Value("${app.stats.reconcile-interval:300000}")
+    long reconcileInterval;
+
+    private final Counter updateFailures;
+    private final Timer reconcileTimer;
+    private final AtomicLong drift = new AtomicLong();
+
+    public UserStatsService(MeterRegistry meterRegistry) {
+        this.updateFailures = Counter.builder("users.stats.update.failures")
+                .description("Statistics deltas that could not be applied and wait for the next reconcile")
+                .register(meterRegistry);
+        this.reconcileTimer = Timer.builder("users.stats.reconcile")
+                .description("Time to recount users and correct the statistics rollups")
+                .register(meterRegistry);
+        Gauge.builder("users.stats.drift", drift, AtomicLong::get)
+                .description("Users by which the materialized totals differed at the last reconcile")
+                .register(meterRegistry);
+    }
+
+    public UserStats getStats() {
+        if (materialized) {
+            Optional<UserStats> stats = userStatsRepository.findById(UserStats.TOTALS_ID);
+            if (stats.isPresent()) {
+                return stats.get();
+            }
+        }
+        long activeUsers = userRepository.countByActiveTrue();
+        return new UserStats(activeUsers, userRepository.count() - activeUsers, null);
+    }
+
+    /**
+     * Revision of the users collection, changed by every user write. Empty
+     * when rollups are not materialized; callers then cannot tell whether
+     * anything changed. A bump lost with a failed update is made up by the
+     * next reconcile.
+     */
+    public Optional<Long> getRevision() {
+        if (!materialized) {
+            return Optional.empty();
+        }
+        return userStatsRepository.findById(UserStats.TOTALS_ID).map(UserStats::getRevision);
+    }
+
+    /**
+     * Returns one entry per day from {@code from} to {@code to} inclusive,
+     * with zero for days without signups.
+     */
+    public List<DailySignups> getDailySignups(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days > maxSignupDays) {
+            throw new IllegalArgumentException("Date range must not exceed " + maxSignupDays + " days");
+        }
+
+        Map<String, Long> counts;
+        if (materialized) {
+            counts = userStatsRepository.findSignups(from.toString(), to.toString()).stream()
+                    .collect(Collectors.toMap(DailySignups::getDate, DailySignups::getCount));
+        } else {
+            counts = userRepository.countByCreatedDay();
+        }
+
+        List<DailySignups> series = new ArrayList<>((int) days);
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            String key = day.toString();
+            series.add(new DailySignups(key, counts.getOrDefault(key, 0L)));
+        }
+        return series;
+    }
+
+    public void recordCreated(User user) {
+        recordCreated(List.of(user));
+    }
+
+    public void recordCreated(Collection<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        long active = users.stream().filter(User::isActive).count();
+        apply(active, users.size() - active, signupDeltas(users, 1L));
+    }
+
+    public void recordUpdated(boolean wasActive, boolean isActive) {
+        if (wasActive != isActive) {
+            long delta = isActive ? 1 : -1;
+            apply(delta, -delta, Map.of());
+        } else {
+            touch();
+        }
+    }
+
+    public void recordDeleted(User user) {
+        apply(user.isActive() ? -1 : 0, user.isActive() ? 0 : -1, signupDeltas(List.of(user), -1L));
+    }
+
+    @Scheduled(initialDelayString = "${app.stats.reconcile-initial-delay:60000}",
+               fixedDelayString = "${app.stats.reconcile-interval:300000}")
+    public void reconcile() {
+        if (!materialized || !jobLease.tryAcquire(RECONCILE_LEASE, Duration.ofMillis(reconcileInterval))) {
+            return;
+        }
+        try {
+            reconcileTimer.record(() -> {
+                long activeUsers = userRepository.countByActiveTrue();
+                long inactiveUsers = userRepository.count() - activeUsers;
+                Map<String, Long> signupsByDay = userRepository.countByCreatedDay();
+
+                // A write that lands after this read is kept, since the correction is an $inc. One that lands
+                // between the start of the counts and this read is in the stored totals but maybe not in the
+                // counts, so the correction can be off by it; the next reconcile takes it out again.
+                UserStats stats = userStatsRepository.findById(UserStats.TOTALS_ID).orElseGet(UserStats::new);
+                long activeDelta = activeUsers - stats.getActiveUsers();
+                long inactiveDelta = inactiveUsers - stats.getInactiveUsers();
+                Map<String, Long> signupDeltas = signupCorrections(signupsByDay);
+
+                long difference = Math.abs(activeDelta) + Math.abs(inactiveDelta);
+                drift.set(difference);
+
+                userStatsRepository.correct(activeDelta, inactiveDelta, signupDeltas);
+                if (difference > 0 || !signupDeltas.isEmpty()) {
+                    logger.info("User statistics reconciled, corrected drift of {} users and {} signup days",
+                            difference, signupDeltas.size());
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("User statistics reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, Long> signupCorrections(Map<String, Long> signupsByDay) {
+        Map<String, Long> corrections = new HashMap<>(signupsByDay);
+        for (DailySignups stored : userStatsRepository.findSignups(FIRST_DAY, LAST_DAY)) {
+            corrections.merge(stored.getDate(), -stored.getCount(), Long::sum);
+        }
+        corrections.values().removeIf(delta -> delta == 0);
+        return corrections;
+    }
+
+    private void apply(long activeDelta, long inactiveDelta, Map<String, Long> signupDeltas) {
+        if (!materialized) {
+            return;
+        }
+        try {
+            userStatsRepository.increment(activeDelta, inactiveDelta, signupDeltas);
+        } catch (RuntimeException e) {
+            updateFailures.increment();
+            logger.warn("Could not update user statistics, next reconcile will correct them: {}", e.getMessage());
+        }
+    }
+
+    private void touch() {
+        if (!materialized) {
+            return;
+        }
+        try {
+            userStatsRepository.touch();
+        } catch (RuntimeException e) {
+            updateFailures.increment();
+            logger.warn("Could not bump the users revision, next reconcile will: {}", e.getMessage());
+        }
+    }
+
+    private static Map<String, Long> signupDeltas(Collection<User> users, long delta) {
+        Map<String, Long> deltas = new HashMap<>();
+        for (User user : users) {
+            // users without createdAt are not part of the rollup, as in countByCreatedDay
+            if (user.getCreatedAt() != null) {
+                deltas.merge(user.getCreatedAt().toLocalDate().toString(), delta, Long::sum);
+            }
+        }
+        return deltas;
+    }
+}
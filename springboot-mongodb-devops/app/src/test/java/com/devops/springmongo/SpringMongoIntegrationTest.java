@@ -22,7 +22,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
-@Testcontainers
+@Testcontainers(disabledWithoutDocker = true)
 @AutoConfigureWebMvc
 class SpringMongoIntegrationTest {
 
@@ -64,7 +64,7 @@ class SpringMongoIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.username").value("testuser"))
                 .andExpect(jsonPath("$.email").value("test@example.com"))
-                .andExpected(jsonPath("$.password").doesNotExist());
+                .andExpect(jsonPath("$.password").doesNotExist());
     }
 
     @Test
@@ -77,9 +77,26 @@ class SpringMongoIntegrationTest {
 
         // When & Then
         mockMvc.perform(get("/api/users"))
-                .andExpected(status().isOk())
-                .andExpected(jsonPath("$.content").isArray())
-                .andExpected(jsonPath("$.content.length()").value(2));
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").isArray())
+                .andExpect(jsonPath("$.content.length()").value(2));
+    }
+
+    @Test
+    void getUsersByCursor_ShouldReturnSliceWithoutTotals() throws Exception {
+        // Given
+        userRepository.save(createTestUser("user1", "user1@example.com"));
+        userRepository.save(createTestUser("user2", "user2@example.com"));
+        userRepository.save(createTestUser("user3", "user3@example.com"));
+
+        // When & Then
+        mockMvc.perform(get("/api/users").param("cursor", "").param("size", "2").param("sortBy", "username").param("sortDir", "asc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].username").value("user1"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
     }
 
     @Test
@@ -89,16 +106,16 @@ class SpringMongoIntegrationTest {
 
         // When & Then
         mockMvc.perform(get("/api/users/{id}", savedUser.getId()))
-                .andExpected(status().isOk())
-                .andExpected(jsonPath("$.username").value("testuser"))
-                .andExpected(jsonPath("$.email").value("test@example.com"));
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("testuser"))
+                .andExpect(jsonPath("$.email").value("test@example.com"));
     }
 
     @Test
     void getUserById_WhenUserNotExists_ShouldReturnNotFound() throws Exception {
         // When & Then
         mockMvc.perform(get("/api/users/{id}", "nonexistent"))
-                .andExpected(status().isNotFound());
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -108,7 +125,7 @@ class SpringMongoIntegrationTest {
 
         // When & Then
         mockMvc.perform(delete("/api/users/{id}", savedUser.getId()))
-                .andExpected(status().isOk());
+                .andExpect(status().isOk());
     }
 
     private User createTestUser(String username, String email) {
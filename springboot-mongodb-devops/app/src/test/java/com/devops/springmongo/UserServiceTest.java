@@ -1,7 +1,16 @@
 package com.devops.springmongo.service;
 
+import com.devops.springmongo.model.ChangeCursor;
+import com.devops.springmongo.model.SearchPage;
 import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserChange;
+import com.devops.springmongo.model.UserChanges;
+import com.devops.springmongo.model.UserCursor;
+import com.devops.springmongo.model.UserSlice;
+import com.devops.springmongo.model.UserTombstone;
+import com.devops.springmongo.model.UserView;
 import com.devops.springmongo.repository.UserRepository;
+import com.devops.springmongo.repository.UserTombstoneRepository;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,16 +18,31 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +51,12 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserStatsService userStatsService;
+
+    @Mock
+    private UserTombstoneRepository userTombstoneRepository;
+
     private UserService userService;
     private PasswordEncoder passwordEncoder;
     private MeterRegistry meterRegistry;
@@ -37,7 +67,15 @@ class UserServiceTest {
         meterRegistry = new SimpleMeterRegistry();
         userService = new UserService(meterRegistry);
         userService.userRepository = userRepository;
-        userService.passwordEncoder = passwordEncoder;
+        userService.passwordHashingService = new PasswordHashingService(passwordEncoder, meterRegistry, 1, 4, Duration.ofSeconds(5));
+        userService.searchMaxCandidates = 500;
+        userService.userCache = new UserCache(meterRegistry, 100, Duration.ofMinutes(5));
+        userService.userStatsService = userStatsService;
+        userService.userBatchLoader = new UserBatchLoader(userRepository, meterRegistry, false, Duration.ZERO, 100);
+        userService.userTombstoneRepository = userTombstoneRepository;
+        userService.userSortPlanner = new UserSortPlanner(meterRegistry,
+                new StaticListableBeanFactory().getBeanProvider(MongoTemplate.class),
+                List.of(), false, "reject", 1, Duration.ofSeconds(5), 1000);
     }
 
     @Test
@@ -62,7 +100,7 @@ class UserServiceTest {
         // Given
         String userId = "123";
         User expectedUser = createTestUser("testuser", "test@test.com");
-        when(userRepository.findById(userId)).thenReturn(Optional.of(expectedUser));
+        when(userRepository.findPublicById(userId)).thenReturn(Optional.of(expectedUser));
 
         // When
         Optional<User> actualUser = userService.findById(userId);
@@ -70,21 +108,147 @@ class UserServiceTest {
         // Then
         assertTrue(actualUser.isPresent());
         assertEquals(expectedUser.getUsername(), actualUser.get().getUsername());
-        verify(userRepository).findById(userId);
+        verify(userRepository).findPublicById(userId);
     }
 
     @Test
     void findById_WhenUserNotExists_ShouldReturnEmpty() {
         // Given
         String userId = "123";
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.findPublicById(userId)).thenReturn(Optional.empty());
 
         // When
         Optional<User> actualUser = userService.findById(userId);
 
         // Then
         assertFalse(actualUser.isPresent());
-        verify(userRepository).findById(userId);
+        verify(userRepository).findPublicById(userId);
+    }
+
+    @Test
+    void findById_WhenCalledTwice_ShouldHitDatabaseOnce() {
+        // Given
+        String userId = "123";
+        User expectedUser = createTestUser("testuser", "test@test.com");
+        expectedUser.setId(userId);
+        when(userRepository.findPublicById(userId)).thenReturn(Optional.of(expectedUser));
+
+        // When
+        userService.findById(userId);
+        Optional<User> cachedUser = userService.findById(userId);
+
+        // Then
+        assertEquals("testuser", cachedUser.get().getUsername());
+        verify(userRepository, times(1)).findPublicById(userId);
+        assertEquals(1.0, meterRegistry.get("users.cache.lookups").tag("lookup", "id").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void findByUsername_AfterFindById_ShouldReloadOnlyUsernameMapping() {
+        // Given
+        User user = createTestUser("testuser", "test@test.com");
+        user.setId("123");
+        when(userRepository.findPublicByUsername("testuser")).thenReturn(Optional.of(user));
+
+        // When
+        userService.findByUsername("testuser");
+        Optional<User> byId = userService.findById("123");
+        Optional<User> byUsername = userService.findByUsername("testuser");
+
+        // Then
+        assertTrue(byId.isPresent());
+        assertTrue(byUsername.isPresent());
+        verify(userRepository, times(1)).findPublicByUsername("testuser");
+        verify(userRepository, never()).findPublicById(anyString());
+    }
+
+    @Test
+    void update_ShouldInvalidateAllCachedKeys() {
+        // Given
+        User existing = createTestUser("testuser", "old@test.com");
+        existing.setId("123");
+        User changes = createTestUser("testuser", "new@test.com");
+        when(userRepository.findPublicByEmail("old@test.com")).thenReturn(Optional.of(new User(existing))).thenReturn(Optional.empty());
+        when(userRepository.updateProfile("123", null, changes)).thenReturn(existing);
+        userService.findByEmail("old@test.com");
+
+        // When
+        userService.update("123", changes);
+        Optional<User> byOldEmail = userService.findByEmail("old@test.com");
+
+        // Then
+        assertFalse(byOldEmail.isPresent());
+        verify(userRepository, times(2)).findPublicByEmail("old@test.com");
+    }
+
+    @Test
+    void update_ShouldApplyChangesInOneRoundTripAndBumpVersion() {
+        // Given
+        User previous = createTestUser("testuser", "old@test.com");
+        previous.setId("123");
+        previous.setVersion(4L);
+        User changes = createTestUser("testuser", "new@test.com");
+        changes.setActive(false);
+        changes.setVersion(4L);
+        when(userRepository.updateProfile("123", 4L, changes)).thenReturn(previous);
+
+        // When
+        User updatedUser = userService.update("123", changes);
+
+        // Then
+        assertEquals("new@test.com", updatedUser.getEmail());
+        assertEquals(5L, updatedUser.getVersion());
+        verify(userRepository, never()).findById(anyString());
+        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository, never()).updateSearchTokens(any());
+        verify(userStatsService).recordUpdated(true, false);
+    }
+
+    @Test
+    void update_WhenVersionIsStale_ShouldThrowOptimisticLockingFailure() {
+        // Given
+        User changes = createTestUser("testuser", "new@test.com");
+        changes.setVersion(3L);
+        when(userRepository.updateProfile("123", 3L, changes)).thenReturn(null);
+        when(userRepository.findPublicById("123")).thenReturn(Optional.of(createTestUser("testuser", "old@test.com")));
+
+        // When & Then
+        assertThrows(OptimisticLockingFailureException.class, () -> userService.update("123", changes));
+        verifyNoInteractions(userStatsService);
+    }
+
+    @Test
+    void update_WhenUserNotExists_ShouldThrowException() {
+        // Given
+        User changes = createTestUser("testuser", "new@test.com");
+        when(userRepository.updateProfile("123", null, changes)).thenReturn(null);
+        when(userRepository.findPublicById("123")).thenReturn(Optional.empty());
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> userService.update("123", changes));
+        assertEquals("User not found with id: 123", exception.getMessage());
+    }
+
+    @Test
+    void update_WhenUsernameDiffers_ShouldIgnoreItAndRetryWithStoredUsername() {
+        // Given
+        User existing = createTestUser("testuser", "old@test.com");
+        existing.setId("123");
+        existing.setVersion(1L);
+        User changes = createTestUser("renamed", "new@test.com");
+        when(userRepository.updateProfile("123", null, changes)).thenReturn(null).thenReturn(existing);
+        when(userRepository.findPublicById("123")).thenReturn(Optional.of(new User(existing)));
+
+        // When
+        User updatedUser = userService.update("123", changes);
+
+        // Then
+        assertEquals("testuser", updatedUser.getUsername());
+        assertEquals("new@test.com", updatedUser.getEmail());
+        assertEquals("testuser", changes.getUsername());
+        verify(userRepository, times(2)).updateProfile("123", null, changes);
+        verify(userRepository, never()).updateSearchTokens(any());
+        verify(userStatsService).recordUpdated(true, true);
     }
 
     @Test
@@ -94,9 +258,7 @@ class UserServiceTest {
         User savedUser = createTestUser("newuser", "newuser@test.com");
         savedUser.setId("123");
 
-        when(userRepository.existsByUsername(anyString())).thenReturn(false);
-        when(userRepository.existsByEmail(anyString())).thenReturn(false);
-        when(userRepository.save(any(User.class))).thenReturn(savedUser);
+        when(userRepository.insert(any(User.class))).thenReturn(savedUser);
 
         // When
         User actualUser = userService.save(inputUser);
@@ -105,70 +267,213 @@ class UserServiceTest {
         assertNotNull(actualUser);
         assertEquals(savedUser.getId(), actualUser.getId());
         assertEquals(savedUser.getUsername(), actualUser.getUsername());
-        verify(userRepository).existsByUsername(inputUser.getUsername());
-        verify(userRepository).existsByEmail(inputUser.getEmail());
-        verify(userRepository).save(any(User.class));
+        verify(userRepository, never()).existsByUsername(anyString());
+        verify(userRepository, never()).existsByEmail(anyString());
+        verify(userRepository).insert(any(User.class));
+        verify(userStatsService).recordCreated(savedUser);
     }
 
     @Test
     void save_WhenUsernameExists_ShouldThrowException() {
         // Given
         User inputUser = createTestUser("existinguser", "test@test.com");
-        when(userRepository.existsByUsername(inputUser.getUsername())).thenReturn(true);
+        when(userRepository.insert(any(User.class))).thenThrow(new DuplicateKeyException(
+                "E11000 duplicate key error collection: devops_db.users index: username dup key: { username: \"existinguser\" }"));
 
         // When & Then
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+        DuplicateUserException exception = assertThrows(DuplicateUserException.class, () -> {
             userService.save(inputUser);
         });
         assertEquals("Username is already taken!", exception.getMessage());
-        verify(userRepository).existsByUsername(inputUser.getUsername());
-        verify(userRepository, never()).save(any(User.class));
+        verifyNoInteractions(userStatsService);
     }
 
     @Test
     void save_WhenEmailExists_ShouldThrowException() {
         // Given
         User inputUser = createTestUser("newuser", "existing@test.com");
-        when(userRepository.existsByUsername(inputUser.getUsername())).thenReturn(false);
-        when(userRepository.existsByEmail(inputUser.getEmail())).thenReturn(true);
+        when(userRepository.insert(any(User.class))).thenThrow(new DuplicateKeyException(
+                "E11000 duplicate key error collection: devops_db.users index: email_1 dup key: { email: \"existing@test.com\" }"));
 
         // When & Then
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+        DuplicateUserException exception = assertThrows(DuplicateUserException.class, () -> {
             userService.save(inputUser);
         });
         assertEquals("Email is already in use!", exception.getMessage());
-        verify(userRepository).existsByUsername(inputUser.getUsername());
-        verify(userRepository).existsByEmail(inputUser.getEmail());
-        verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
     void deleteById_WhenUserExists_ShouldDeleteUser() {
         // Given
         String userId = "123";
-        when(userRepository.existsById(userId)).thenReturn(true);
+        User removedUser = createTestUser("user1", "user1@test.com");
+        when(userRepository.removeById(userId)).thenReturn(removedUser);
 
         // When
         userService.deleteById(userId);
 
         // Then
-        verify(userRepository).existsById(userId);
-        verify(userRepository).deleteById(userId);
+        verify(userRepository, never()).existsById(anyString());
+        verify(userStatsService).recordDeleted(removedUser);
+        verify(userTombstoneRepository).save(argThat(tombstone -> tombstone.getId().equals(userId)));
     }
 
     @Test
     void deleteById_WhenUserNotExists_ShouldThrowException() {
         // Given
         String userId = "123";
-        when(userRepository.existsById(userId)).thenReturn(false);
+        when(userRepository.removeById(userId)).thenReturn(null);
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
             userService.deleteById(userId);
         });
         assertEquals("User not found with id: " + userId, exception.getMessage());
-        verify(userRepository).existsById(userId);
-        verify(userRepository, never()).deleteById(userId);
+        verifyNoInteractions(userStatsService);
+    }
+
+    @Test
+    void findChanges_ShouldMergeUpdatesAndDeletionsInChangeOrder() {
+        // Given
+        LocalDateTime base = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.MILLIS);
+        User first = createTestUser("user1", "user1@test.com");
+        first.setId("1");
+        first.setUpdatedAt(base);
+        User third = createTestUser("user3", "user3@test.com");
+        third.setId("3");
+        third.setUpdatedAt(base.plusSeconds(2));
+        UserTombstone second = new UserTombstone("2", base.plusSeconds(1));
+        UserTombstone fourth = new UserTombstone("4", base.plusSeconds(3));
+        when(userRepository.findChangedAfter(any(), eq(""), any(), any())).thenReturn(List.of(first, third));
+        when(userTombstoneRepository.findDeletedAfter(any(), eq(""), any(), any())).thenReturn(List.of(second, fourth));
+
+        // When
+        UserChanges changes = userService.findChanges(null, 3);
+
+        // Then
+        assertEquals(List.of("1", "2", "3"), changes.getChanges().stream().map(UserChange::getId).toList());
+        assertTrue(changes.getChanges().get(1).isDeleted());
+        assertNull(changes.getChanges().get(1).getUser());
+        assertEquals("user3", changes.getChanges().get(2).getUser().getUsername());
+        assertTrue(changes.isHasMore());
+        ChangeCursor next = ChangeCursor.decode(changes.getNext());
+        assertEquals(base.plusSeconds(2), next.getChangedAt());
+        assertEquals("3", next.getLastId());
+    }
+
+    @Test
+    void findChanges_WhenTokenIsOlderThanTombstones_ShouldThrowExpired() {
+        // Given
+        String since = new ChangeCursor(LocalDateTime.now().minusDays(31), "1").encode();
+
+        // When & Then
+        assertThrows(ExpiredChangeTokenException.class, () -> userService.findChanges(since, 10));
+        verifyNoInteractions(userTombstoneRepository);
+    }
+
+    @Test
+    void findSlice_WhenMoreResultsExist_ShouldReturnNextCursor() {
+        // Given
+        User user1 = createTestUser("user1", "user1@test.com");
+        user1.setId("1");
+        User user2 = createTestUser("user2", "user2@test.com");
+        user2.setId("2");
+        User user3 = createTestUser("user3", "user3@test.com");
+        user3.setId("3");
+        Set<String> fields = UserView.parseFields("username");
+        when(userRepository.findAfter(eq(Sort.by(Sort.Direction.ASC, "username")), isNull(), eq(3), eq(fields)))
+                .thenReturn(Arrays.asList(user1, user2, user3));
+
+        // When
+        UserSlice<UserView> slice = userService.findSlice(UserCursor.parse("", "username", "asc"), 2, fields);
+
+        // Then
+        assertEquals(2, slice.getContent().size());
+        assertEquals("user1", slice.getContent().get(0).getUsername());
+        assertNull(slice.getContent().get(0).getEmail());
+        assertTrue(slice.isHasNext());
+        UserCursor next = UserCursor.decode(slice.getNextCursor());
+        assertEquals("username", next.getSortField());
+        assertEquals(Sort.Direction.ASC, next.getDirection());
+        assertEquals("2", next.getLastId());
+        assertEquals("user2", next.getLastValue());
+    }
+
+    @Test
+    void findSlice_WhenCursorGiven_ShouldSeekPastIt() {
+        // Given
+        String cursor = new UserCursor("email", Sort.Direction.DESC, "5", "e@test.com").encode();
+        when(userRepository.findAfter(eq(Sort.by(Sort.Direction.DESC, "email")), any(UserCursor.class), eq(11), eq(UserView.FIELDS)))
+                .thenReturn(List.of(createTestUser("user1", "a@test.com")));
+
+        // When
+        UserSlice<UserView> slice = userService.findSlice(UserCursor.parse(cursor, "createdAt", "asc"), 10, UserView.FIELDS);
+
+        // Then
+        assertEquals(1, slice.getContent().size());
+        assertFalse(slice.isHasNext());
+        assertNull(slice.getNextCursor());
+    }
+
+    @Test
+    void findSlice_WhenSizeNotPositive_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.findSlice(UserCursor.parse("", "createdAt", "desc"), 0, UserView.FIELDS));
+        verify(userRepository, never()).findAfter(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void parseCursor_WhenSortFieldNotIndexedOrCursorMalformed_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> UserCursor.parse("", "lastName", "asc"));
+        assertThrows(IllegalArgumentException.class, () -> UserCursor.parse("not-a-cursor!", "createdAt", "desc"));
+    }
+
+    @Test
+    void searchUsers_ShouldRankHitsAndPaginate() {
+        // Given
+        User emailMatch = createTestUser("other", "smith@test.com");
+        User nameMatch = createTestUser("jsmith", "js@test.com");
+        nameMatch.setLastName("Smith");
+        when(userRepository.findBySearchTokens(List.of("smith"), 501)).thenReturn(List.of(emailMatch, nameMatch));
+
+        // When
+        SearchPage<User> firstPage = userService.searchUsers("Smith", PageRequest.of(0, 1));
+        SearchPage<User> secondPage = userService.searchUsers("Smith", PageRequest.of(1, 1));
+
+        // Then
+        assertEquals(2, firstPage.getTotalElements());
+        assertFalse(firstPage.isCapped());
+        assertEquals("jsmith", firstPage.getContent().get(0).getUsername());
+        assertEquals("other", secondPage.getContent().get(0).getUsername());
+    }
+
+    @Test
+    void searchUsers_WithMoreHitsThanCandidates_ShouldPageWithinRankedWindowAndReportCapped() {
+        // Given
+        userService.searchMaxCandidates = 2;
+        User first = createTestUser("smith1", "a@test.com");
+        User second = createTestUser("smith2", "b@test.com");
+        User beyondWindow = createTestUser("smith", "c@test.com");
+        when(userRepository.findBySearchTokens(List.of("smith"), 3)).thenReturn(List.of(first, second, beyondWindow));
+
+        // When
+        SearchPage<User> page = userService.searchUsers("smith", PageRequest.of(0, 10));
+
+        // Then
+        assertTrue(page.isCapped());
+        assertEquals(2, page.getTotalElements());
+        assertEquals(List.of("smith1", "smith2"), page.getContent().stream().map(User::getUsername).toList());
+        assertTrue(page.map(User::getUsername).isCapped());
+    }
+
+    @Test
+    void searchUsers_WhenKeywordHasNoSearchableTerms_ShouldReturnEmptyPage() {
+        // When
+        Page<User> result = userService.searchUsers("a", PageRequest.of(0, 10));
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(userRepository, never()).findBySearchTokens(any(), anyInt());
     }
 
     private User createTestUser(String username, String email) {
@@ -0,0 +1,91 @@
+package com.devops.springmongo.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(meterRegistry, true, Duration.ofSeconds(2),
+            50, 10, 200, 1, 1, 4, 16, 2, 64, 2, 1, 4);
+
+    @Test
+    void budget_ShouldSeparateScansCreationAndBulkImportFromReads() {
+        assertEquals(AdmissionControlFilter.Budget.SCAN, AdmissionControlFilter.budget(request("GET", "/api/users/search")));
+        assertEquals(AdmissionControlFilter.Budget.SCAN, AdmissionControlFilter.budget(request("GET", "/api/users/active")));
+        assertEquals(AdmissionControlFilter.Budget.WRITE, AdmissionControlFilter.budget(request("POST", "/api/users")));
+        assertEquals(AdmissionControlFilter.Budget.BULK, AdmissionControlFilter.budget(request("POST", "/api/users/bulk")));
+        assertEquals(AdmissionControlFilter.Budget.READ, AdmissionControlFilter.budget(request("GET", "/api/users/batch")));
+        assertEquals(AdmissionControlFilter.Budget.READ, AdmissionControlFilter.budget(request("PUT", "/api/users/1")));
+        assertEquals(AdmissionControlFilter.Budget.READ, AdmissionControlFilter.budget(request("GET", "/api/users/1")));
+    }
+
+    @Test
+    void doFilter_OverLimit_ShouldRejectWithRetryAfterAndCount() throws Exception {
+        // Given
+        AdaptiveLimit scan = filter.limit(AdmissionControlFilter.Budget.SCAN);
+        assertTrue(scan.tryAcquire());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(request("GET", "/api/users/search"), response, chain);
+
+        // Then
+        assertEquals(503, response.getStatus());
+        assertEquals("2", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertNull(chain.getRequest());
+        assertEquals(1, meterRegistry.get("http.admission.rejected").tag("budget", "scan").counter().count());
+
+        // When
+        scan.release();
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/api/users/search"), admitted, new MockFilterChain());
+
+        // Then
+        assertEquals(200, admitted.getStatus());
+        assertEquals(0, scan.getInFlight());
+    }
+
+    @Test
+    void adaptiveLimit_ShouldGrowWhileLatencyHoldsAndShrinkWhenItRises() {
+        // Given
+        AdaptiveLimit limit = new AdaptiveLimit(20, 5, 100);
+        long fast = TimeUnit.MILLISECONDS.toNanos(10);
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            limit.update(fast, limit.getLimit(), false);
+        }
+        int grown = limit.getLimit();
+
+        for (int i = 0; i < 50; i++) {
+            limit.update(fast * 10, limit.getLimit(), false);
+        }
+
+        // Then
+        assertTrue(grown > 20, "limit should grow under healthy load, was " + grown);
+        assertTrue(limit.getLimit() < grown, "limit should shrink when latency rises, was " + limit.getLimit());
+
+        // When
+        int beforeFailure = limit.getLimit();
+        limit.update(fast, 0, true);
+
+        // Then
+        assertTrue(limit.getLimit() < beforeFailure);
+        assertTrue(limit.getLimit() >= 5);
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        return new MockHttpServletRequest(method, path);
+    }
+}
@@ -0,0 +1,54 @@
+package com.devops.springmongo.config;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorrelationIdFilterTest {
+
+    private final CorrelationIdFilter filter = new CorrelationIdFilter();
+
+    @Test
+    void doFilter_WithIncomingHeader_ShouldReuseItAndClearMdcAfterwards() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        request.addHeader(CorrelationIdFilter.CORRELATION_ID_HEADER, "req-42.a_b");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<String> seen = new AtomicReference<>();
+
+        // When
+        filter.doFilter(request, response, new MockFilterChain(
+                new HttpServlet() {
+                    @Override
+                    protected void service(HttpServletRequest req, HttpServletResponse res) {
+                        seen.set(MDC.get(CorrelationIdFilter.CORRELATION_ID));
+                    }
+                }));
+
+        // Then
+        assertEquals("req-42.a_b", seen.get());
+        assertEquals("req-42.a_b", response.getHeader(CorrelationIdFilter.CORRELATION_ID_HEADER));
+        assertNull(MDC.get(CorrelationIdFilter.CORRELATION_ID));
+    }
+
+    @Test
+    void correlationId_WithUnsafeOrMissingHeader_ShouldGenerateHexId() {
+        // When
+        String missing = CorrelationIdFilter.correlationId(null);
+        String injected = CorrelationIdFilter.correlationId("abc\n2024-01-01 ERROR forged");
+
+        // Then
+        assertTrue(missing.matches("[0-9a-f]{16}"));
+        assertTrue(injected.matches("[0-9a-f]{16}"));
+        assertNotEquals(missing, injected);
+    }
+}
@@ -0,0 +1,52 @@
+package com.devops.springmongo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyBeanPackagesTest {
+
+    @Test
+    void postProcessBeanFactory_ShouldMakeMatchingBeansAndFactoryMethodsLazy() {
+        // Given
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("openApiConfig",
+                BeanDefinitionBuilder.genericBeanDefinition(OpenApiConfig.class).getBeanDefinition());
+        beanFactory.registerBeanDefinition("customOpenAPI",
+                BeanDefinitionBuilder.genericBeanDefinition()
+                        .setFactoryMethodOnBean("customOpenAPI", "openApiConfig").getBeanDefinition());
+        beanFactory.registerBeanDefinition("mongoCommandMetrics",
+                BeanDefinitionBuilder.genericBeanDefinition(MongoCommandMetrics.class).getBeanDefinition());
+
+        LazyBeanPackages lazyBeanPackages = new LazyBeanPackages();
+        lazyBeanPackages.setEnvironment(new MockEnvironment()
+                .withProperty("app.startup.lazy-packages", "org.springdoc,com.devops.springmongo.config.OpenApiConfig"));
+
+        // When
+        lazyBeanPackages.postProcessBeanFactory(beanFactory);
+
+        // Then
+        assertTrue(beanFactory.getBeanDefinition("openApiConfig").isLazyInit());
+        assertTrue(beanFactory.getBeanDefinition("customOpenAPI").isLazyInit());
+        assertFalse(beanFactory.getBeanDefinition("mongoCommandMetrics").isLazyInit());
+    }
+
+    @Test
+    void postProcessBeanFactory_WithoutPrefixes_ShouldLeaveBeansEager() {
+        // Given
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("openApiConfig",
+                BeanDefinitionBuilder.genericBeanDefinition(OpenApiConfig.class).getBeanDefinition());
+        LazyBeanPackages lazyBeanPackages = new LazyBeanPackages();
+        lazyBeanPackages.setEnvironment(new MockEnvironment());
+
+        // When
+        lazyBeanPackages.postProcessBeanFactory(beanFactory);
+
+        // Then
+        assertFalse(beanFactory.getBeanDefinition("openApiConfig").isLazyInit());
+    }
+}
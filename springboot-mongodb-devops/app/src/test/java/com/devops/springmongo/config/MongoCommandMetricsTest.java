@@ -0,0 +1,110 @@
+package com.devops.springmongo.config;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoCommandMetricsTest {
+
+    private static final ConnectionDescription CONNECTION =
+            new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    private SimpleMeterRegistry meterRegistry;
+    private MongoCommandMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new MongoCommandMetrics(meterRegistry);
+    }
+
+    @Test
+    void commandSucceeded_ShouldTagWithRepositoryMethodAndCountReturnedDocuments() {
+        // Given
+        String previous = MongoCommandMetrics.enter("findByActiveTrue");
+        try {
+            metrics.commandStarted(started(1, "find", "{ find: 'users', filter: { active: true } }"));
+        } finally {
+            MongoCommandMetrics.exit(previous);
+        }
+
+        // When
+        metrics.commandSucceeded(new CommandSucceededEvent(null, 1, 1, CONNECTION, "devops_db", "find",
+                BsonDocument.parse("{ cursor: { id: 0, ns: 'devops_db.users', firstBatch: [ {}, {}, {} ] }, ok: 1 }"),
+                TimeUnit.MILLISECONDS.toNanos(12)));
+
+        // Then
+        Timer timer = meterRegistry.get("mongodb.command")
+                .tags("command", "find", "collection", "users", "method", "findByActiveTrue", "status", "success")
+                .timer();
+        assertEquals(1, timer.count());
+        assertEquals(12, timer.totalTime(TimeUnit.MILLISECONDS), 0.001);
+
+        DistributionSummary returned = meterRegistry.get("mongodb.command.docs.returned")
+                .tags("method", "findByActiveTrue")
+                .summary();
+        assertEquals(3, returned.totalAmount(), 0.001);
+    }
+
+    @Test
+    void commandFailed_OutsideRepository_ShouldRecordFailureWithoutMethod() {
+        // Given
+        metrics.commandStarted(started(2, "getMore", "{ getMore: 42, collection: 'users' }"));
+
+        // When
+        metrics.commandFailed(new CommandFailedEvent(null, 2, 2, CONNECTION, "devops_db", "getMore",
+                TimeUnit.MILLISECONDS.toNanos(5), new RuntimeException("cursor killed")));
+
+        // Then
+        Timer timer = meterRegistry.get("mongodb.command")
+                .tags("command", "getMore", "collection", "users", "method", "none", "status", "failure")
+                .timer();
+        assertEquals(1, timer.count());
+        assertNull(meterRegistry.find("mongodb.command.docs.returned").summary());
+    }
+
+    @Test
+    void enter_WhenNested_ShouldKeepOutermostMethod() {
+        // Given
+        String outer = MongoCommandMetrics.enter("findVersionStampById");
+        String inner = MongoCommandMetrics.enter("findById");
+
+        // When
+        metrics.commandStarted(started(3, "count", "{ count: 'users' }"));
+        MongoCommandMetrics.exit(inner);
+        MongoCommandMetrics.exit(outer);
+        metrics.commandSucceeded(new CommandSucceededEvent(null, 3, 3, CONNECTION, "devops_db", "count",
+                BsonDocument.parse("{ n: 4, ok: 1 }"), 1000));
+
+        // Then
+        assertNotNull(meterRegistry.find("mongodb.command")
+                .tags("method", "findVersionStampById").timer());
+        assertEquals(MongoCommandMetrics.UNKNOWN, currentMethodAfterExit());
+    }
+
+    private String currentMethodAfterExit() {
+        metrics.commandStarted(started(4, "find", "{ find: 'users' }"));
+        metrics.commandSucceeded(new CommandSucceededEvent(null, 4, 4, CONNECTION, "devops_db", "find",
+                BsonDocument.parse("{ ok: 1 }"), 1000));
+        return meterRegistry.get("mongodb.command").tags("command", "find").timer().getId().getTag("method");
+    }
+
+    private CommandStartedEvent started(int requestId, String commandName, String command) {
+        return new CommandStartedEvent(null, requestId, requestId, CONNECTION, "devops_db", commandName,
+                BsonDocument.parse(command));
+    }
+}
@@ -0,0 +1,126 @@
+package com.devops.springmongo.config;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.connection.ConnectionPoolSettings;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoPoolMetricsTest {
+
+    private static final ServerId SERVER = new ServerId(new ClusterId(), new ServerAddress("mongo-1", 27017));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MongoPoolMetrics metrics = new MongoPoolMetrics(meterRegistry);
+
+    @Test
+    void checkout_ShouldTrackCheckedOutWaitingAndWaitTime() {
+        // Given
+        metrics.connectionPoolCreated(new ConnectionPoolCreatedEvent(SERVER, ConnectionPoolSettings.builder().maxSize(50).build()));
+        ConnectionId connection = new ConnectionId(SERVER, 1, null);
+        metrics.connectionCreated(new ConnectionCreatedEvent(connection));
+
+        // When
+        metrics.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(SERVER, 1));
+        metrics.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(SERVER, 2));
+        metrics.connectionCheckedOut(new ConnectionCheckedOutEvent(connection, 1, TimeUnit.MILLISECONDS.toNanos(3)));
+
+        // Then
+        assertEquals(1, gauge("mongodb.pool.checkedout"));
+        assertEquals(1, gauge("mongodb.pool.waitqueue"));
+        assertEquals(1, gauge("mongodb.pool.size"));
+        assertEquals(50, gauge("mongodb.pool.max"));
+        Timer checkout = meterRegistry.get("mongodb.pool.checkout").tag("server", "mongo-1:27017").timer();
+        assertEquals(3, checkout.totalTime(TimeUnit.MILLISECONDS), 0.001);
+
+        // When
+        metrics.connectionCheckOutFailed(new ConnectionCheckOutFailedEvent(SERVER, 2,
+                ConnectionCheckOutFailedEvent.Reason.TIMEOUT, TimeUnit.SECONDS.toNanos(2)));
+        metrics.connectionCheckedIn(new ConnectionCheckedInEvent(connection, 1));
+
+        // Then
+        assertEquals(0, gauge("mongodb.pool.checkedout"));
+        assertEquals(0, gauge("mongodb.pool.waitqueue"));
+        assertEquals(1, meterRegistry.get("mongodb.pool.checkout.failures").tag("reason", "TIMEOUT").counter().count());
+    }
+
+    @Test
+    void connectionPoolClosed_ShouldRemovePoolMeters() {
+        // Given
+        metrics.connectionPoolCreated(new ConnectionPoolCreatedEvent(SERVER, ConnectionPoolSettings.builder().build()));
+
+        // When
+        metrics.connectionPoolClosed(new ConnectionPoolClosedEvent(SERVER));
+
+        // Then
+        assertNull(meterRegistry.find("mongodb.pool.size").gauge());
+        assertNull(meterRegistry.find("mongodb.pool.checkout").timer());
+    }
+
+    @Test
+    void applyPoolAndSocketSettings_ShouldApplyConfiguredPoolAndAvailableCompressors() {
+        // Given
+        MongoConfig config = new MongoConfig();
+        config.mongoPoolMetrics = new MongoPoolMetrics(meterRegistry);
+        config.poolMaxSize = 25;
+        config.poolMaxWaitTime = Duration.ofSeconds(2);
+        config.compressors = List.of("zstd", "zlib");
+        MongoClientSettings.Builder builder = MongoClientSettings.builder();
+
+        // When
+        config.applyPoolAndSocketSettings(builder, new ConnectionString("mongodb://localhost/test"));
+        MongoClientSettings settings = builder.build();
+
+        // Then
+        assertEquals(25, settings.getConnectionPoolSettings().getMaxSize());
+        assertEquals(2000, settings.getConnectionPoolSettings().getMaxWaitTime(TimeUnit.MILLISECONDS));
+        assertTrue(settings.getCompressorList().stream().map(MongoCompressor::getName).toList().contains("zlib"));
+        assertThrows(IllegalArgumentException.class, () -> MongoConfig.compressors(List.of("lz4")));
+    }
+
+    @Test
+    void applyPoolAndSocketSettings_ShouldKeepOptionsSetInTheUri() {
+        // Given
+        MongoConfig config = new MongoConfig();
+        config.mongoPoolMetrics = new MongoPoolMetrics(meterRegistry);
+        config.poolMaxSize = 25;
+        config.poolMaxWaitTime = Duration.ofSeconds(2);
+        config.connectTimeout = Duration.ofSeconds(5);
+        config.compressors = List.of("zlib");
+        ConnectionString uri = new ConnectionString("mongodb://localhost/test?maxPoolSize=200&connectTimeoutMS=1500&compressors=snappy");
+        MongoClientSettings.Builder builder = MongoClientSettings.builder().applyConnectionString(uri);
+
+        // When
+        config.applyPoolAndSocketSettings(builder, uri);
+        MongoClientSettings settings = builder.build();
+
+        // Then
+        assertEquals(200, settings.getConnectionPoolSettings().getMaxSize());
+        assertEquals(2000, settings.getConnectionPoolSettings().getMaxWaitTime(TimeUnit.MILLISECONDS));
+        assertEquals(1500, settings.getSocketSettings().getConnectTimeout(TimeUnit.MILLISECONDS));
+        assertEquals(List.of("snappy"), settings.getCompressorList().stream().map(MongoCompressor::getName).toList());
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).tag("server", "mongo-1:27017").gauge().value();
+    }
+}
@@ -0,0 +1,88 @@
+package com.devops.springmongo.config;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.ServerAddress;
+import com.mongodb.TaggableReadPreference;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.connection.ServerId;
+import com.mongodb.connection.ServerType;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoReadRoutingTest {
+
+    private static final ConnectionDescription SECONDARY = new ConnectionDescription(
+            new ConnectionId(new ServerId(new ClusterId(), new ServerAddress("mongo-2", 27017))),
+            17, ServerType.REPLICA_SET_SECONDARY, 1000, 16 * 1024 * 1024, 48 * 1024 * 1024, List.of());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        MongoReadRouting.clear();
+    }
+
+    @Test
+    void tolerant_ShouldBeSecondaryWithStalenessBoundOnlyWhenEnabled() {
+        // When
+        MongoReadRouting enabled = new MongoReadRouting(meterRegistry, true, "secondaryPreferred", Duration.ofMinutes(2));
+        MongoReadRouting disabled = new MongoReadRouting(meterRegistry, false, "secondaryPreferred", Duration.ofMinutes(2));
+
+        // Then
+        TaggableReadPreference tolerant = (TaggableReadPreference) enabled.tolerant();
+        assertEquals(ReadPreference.secondaryPreferred().getName(), tolerant.getName());
+        assertEquals(120, tolerant.getMaxStaleness(TimeUnit.SECONDS));
+        assertEquals(ReadPreference.primary(), disabled.tolerant());
+        assertThrows(IllegalArgumentException.class,
+                () -> new MongoReadRouting(meterRegistry, true, "secondary", Duration.ofSeconds(10)));
+    }
+
+    @Test
+    void listener_ShouldCountReadsPerServerAndExposeLastWriteAsToken() {
+        // Given
+        MongoReadRouting routing = new MongoReadRouting(meterRegistry, true, "secondaryPreferred", Duration.ofSeconds(90));
+
+        // When
+        routing.commandStarted(new CommandStartedEvent(null, 1, 1, SECONDARY, "devops_db", "find",
+                BsonDocument.parse("{ find: 'users' }")));
+        routing.commandSucceeded(succeeded("update", "{ ok: 1, operationTime: { $timestamp: { t: 1700000000, i: 7 } } }"));
+        routing.commandSucceeded(succeeded("insert", "{ ok: 1, operationTime: { $timestamp: { t: 1700000000, i: 3 } } }"));
+
+        // Then
+        assertEquals(1, meterRegistry.get("mongodb.reads")
+                .tags("server", "mongo-2:27017", "role", "secondary", "method", "none")
+                .counter().count());
+        String token = MongoReadRouting.lastWriteToken();
+        assertEquals("1700000000.7", token);
+
+        MongoReadRouting.readAfter(token);
+        assertEquals(new BsonTimestamp(1700000000, 7), MongoReadRouting.readAfter());
+    }
+
+    @Test
+    void readAfter_WithMalformedToken_ShouldBeIgnored() {
+        // When
+        MongoReadRouting.readAfter("1700000000");
+        MongoReadRouting.readAfter("abc.def");
+
+        // Then
+        assertNull(MongoReadRouting.readAfter());
+    }
+
+    private static CommandSucceededEvent succeeded(String command, String response) {
+        return new CommandSucceededEvent(null, 2, 2, SECONDARY, "devops_db", command, BsonDocument.parse(response), 1000);
+    }
+}
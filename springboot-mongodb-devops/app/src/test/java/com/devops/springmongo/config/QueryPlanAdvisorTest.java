@@ -0,0 +1,135 @@
+package com.devops.springmongo.config;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryPlanAdvisorTest {
+
+    private static final ConnectionDescription CONNECTION =
+            new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    private static final String COLLSCAN_EXPLAIN = """
+            { queryPlanner: { winningPlan: { stage: 'SORT', inputStage: { stage: 'COLLSCAN' } } },
+              executionStats: { nReturned: 2, executionTimeMillis: 40, totalKeysExamined: 0, totalDocsExamined: 5000 } }
+            """;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void summarize_WithCollectionScanAndSort_ShouldFlagBoth() {
+        // When
+        QueryPlanAdvisor.PlanSummary plan = QueryPlanAdvisor.summarize(BsonDocument.parse(COLLSCAN_EXPLAIN), 10);
+
+        // Then
+        assertEquals("SORT > COLLSCAN", plan.plan());
+        assertEquals(List.of(QueryPlanAdvisor.COLLSCAN, QueryPlanAdvisor.IN_MEMORY_SORT, QueryPlanAdvisor.HIGH_DOCS_EXAMINED),
+                plan.flags());
+        assertEquals(5000, plan.docsExamined());
+    }
+
+    @Test
+    void summarize_AggregateServedByIndex_ShouldReadPlanFromCursorStage() {
+        // Given
+        BsonDocument explain = BsonDocument.parse("""
+                { stages: [
+                    { $cursor: {
+                        queryPlanner: { winningPlan: { queryPlan: { stage: 'PROJECTION_COVERED',
+                            inputStage: { stage: 'IXSCAN', indexName: 'createdAt_id' } } } },
+                        executionStats: { nReturned: 30, totalKeysExamined: 30, totalDocsExamined: 0 } } },
+                    { $group: { _id: '$day', count: { $sum: 1 } } } ] }
+                """);
+
+        // When
+        QueryPlanAdvisor.PlanSummary plan = QueryPlanAdvisor.summarize(explain, 10);
+
+        // Then
+        assertEquals("PROJECTION_COVERED > IXSCAN(createdAt_id)", plan.plan());
+        assertTrue(plan.flags().isEmpty());
+    }
+
+    @Test
+    void commandSucceeded_ShouldExplainEachShapeOnceAndLogSlowRuns() {
+        // Given
+        List<BsonDocument> explained = new ArrayList<>();
+        QueryPlanAdvisor advisor = new QueryPlanAdvisor(meterRegistry, true, Duration.ofMillis(100), Duration.ofMinutes(10),
+                1, 10, Runnable::run, (database, command) -> {
+                    explained.add(command);
+                    return BsonDocument.parse(COLLSCAN_EXPLAIN);
+                });
+
+        // When
+        String previous = MongoCommandMetrics.enter("findByActiveTrue");
+        try {
+            run(advisor, 1, 5);
+            run(advisor, 2, 150);
+            run(advisor, 3, 200);
+        } finally {
+            MongoCommandMetrics.exit(previous);
+        }
+
+        // Then
+        assertEquals(1, explained.size());
+        BsonDocument inner = explained.get(0).getDocument("explain");
+        assertEquals("users", inner.getString("find").getValue());
+        assertFalse(inner.containsKey("lsid"));
+        assertFalse(inner.containsKey("$db"));
+        assertEquals("executionStats", explained.get(0).getString("verbosity").getValue());
+
+        QueryPlanAdvisor.ShapeReport shape = advisor.getShapes().get(0);
+        assertEquals("findByActiveTrue", shape.method());
+        assertEquals(3, shape.executions());
+        assertEquals("SORT > COLLSCAN", shape.plan().plan());
+
+        assertEquals(1, advisor.getSlowQueries().size());
+        assertEquals(200, advisor.getSlowQueries().get(0).millis());
+        assertEquals("SORT > COLLSCAN", advisor.getSlowQueries().get(0).plan().plan());
+        assertEquals(1, meterRegistry.get("mongodb.query.plan.flagged")
+                .tags("flag", QueryPlanAdvisor.COLLSCAN, "method", "findByActiveTrue").counter().count());
+    }
+
+    @Test
+    void claimExplain_AfterSlowRun_ShouldRecheckOnceWithoutExecuting() {
+        // Given
+        long minute = TimeUnit.MINUTES.toNanos(1);
+        long interval = TimeUnit.MINUTES.toNanos(10);
+        QueryPlanAdvisor.Shape shape = new QueryPlanAdvisor.Shape("findByActiveTrue", "find", "users");
+        assertEquals(QueryPlanAdvisor.EXECUTION_STATS, shape.claimExplain(1, interval));
+        shape.explainedAtNanos = 1;
+        shape.explaining.set(false);
+
+        // When
+        shape.slowRun();
+        String early = shape.claimExplain(minute - 1, interval);
+        String recheck = shape.claimExplain(minute + 1, interval);
+        shape.explainedAtNanos = minute + 1;
+        shape.explaining.set(false);
+        shape.slowRun();
+
+        // Then
+        assertNull(early);
+        assertEquals(QueryPlanAdvisor.QUERY_PLANNER, recheck);
+        assertNull(shape.claimExplain(3 * minute, interval));
+        assertEquals(QueryPlanAdvisor.EXECUTION_STATS, shape.claimExplain(minute + 1 + interval, interval));
+    }
+
+    private static void run(QueryPlanAdvisor advisor, int requestId, long millis) {
+        advisor.commandStarted(new CommandStartedEvent(null, requestId, requestId, CONNECTION, "devops_db", "find",
+                BsonDocument.parse("{ find: 'users', filter: { active: true }, $db: 'devops_db', lsid: { id: 1 } }")));
+        advisor.commandSucceeded(new CommandSucceededEvent(null, requestId, requestId, CONNECTION, "devops_db", "find",
+                BsonDocument.parse("{ cursor: { id: 0, firstBatch: [] }, ok: 1 }"), TimeUnit.MILLISECONDS.toNanos(millis)));
+    }
+}
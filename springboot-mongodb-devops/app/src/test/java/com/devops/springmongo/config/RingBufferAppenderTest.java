@@ -0,0 +1,113 @@
+package com.devops.springmongo.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferAppenderTest {
+
+    private LoggerContext context;
+    private BlockingAppender target;
+    private RingBufferAppender appender;
+
+    @BeforeEach
+    void setUp() {
+        context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        target = new BlockingAppender();
+        target.setContext(context);
+        target.start();
+
+        appender = new RingBufferAppender();
+        appender.setContext(context);
+        appender.setName("ASYNC");
+        appender.setQueueSize(4);
+        appender.setDiscardingThreshold(2);
+        appender.addAppender(target);
+        appender.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        target.release.countDown();
+        appender.stop();
+    }
+
+    @Test
+    void append_WhenBufferRunsLow_ShouldDropInfoFirstAndNeverBlock() throws Exception {
+        // Given
+        appender.doAppend(event(Level.INFO, "in flight"));
+        assertTrue(target.entered.await(5, TimeUnit.SECONDS));
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            appender.doAppend(event(Level.INFO, "info " + i));
+        }
+        appender.doAppend(event(Level.WARN, "warn 0"));
+        appender.doAppend(event(Level.WARN, "warn 1"));
+
+        // Then
+        assertEquals(1, appender.getDroppedCount(Level.INFO));
+        assertEquals(1, appender.getDroppedCount(Level.WARN));
+        assertEquals(4, appender.getNumberOfElementsInQueue());
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RingBufferAppenderMetrics.bind(meterRegistry, appender);
+        assertEquals(1, meterRegistry.get("logback.async.dropped").tags("level", "info").functionCounter().count());
+        assertEquals(4, meterRegistry.get("logback.async.queue.depth").gauge().value());
+    }
+
+    @Test
+    void stop_ShouldFlushQueuedEventsInOrder() throws Exception {
+        // Given
+        appender.doAppend(event(Level.INFO, "first"));
+        assertTrue(target.entered.await(5, TimeUnit.SECONDS));
+        appender.doAppend(event(Level.ERROR, "second"));
+        appender.doAppend(event(Level.WARN, "third"));
+
+        // When
+        target.release.countDown();
+        appender.stop();
+
+        // Then
+        assertEquals(List.of("first", "second", "third"),
+                target.received.stream().map(ILoggingEvent::getMessage).toList());
+        assertFalse(target.isStarted());
+    }
+
+    private LoggingEvent event(Level level, String message) {
+        return new LoggingEvent(getClass().getName(), context.getLogger("test"), level, message, null, null);
+    }
+
+    /** Holds the worker inside the first append until released, so the buffer can be filled deterministically. */
+    private static class BlockingAppender extends AppenderBase<ILoggingEvent> {
+
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<ILoggingEvent> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            received.add(event);
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.devops.springmongo.controller;
+
+import com.devops.springmongo.config.MongoReadRouting;
+import com.devops.springmongo.model.RawUserView;
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserView;
+import com.devops.springmongo.service.NdjsonUserWriter;
+import com.devops.springmongo.service.UserService;
+import com.devops.springmongo.service.UserSortPlanner;
+import com.devops.springmongo.service.UserStatsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserControllerTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private UserStatsService userStatsService;
+
+    @Mock
+    private MongoReadRouting readRouting;
+
+    @Spy
+    private UserSortPlanner userSortPlanner = new UserSortPlanner(new SimpleMeterRegistry(),
+            new StaticListableBeanFactory().getBeanProvider(MongoTemplate.class),
+            List.of(), false, "reject", 1, Duration.ofSeconds(5), 1000);
+
+    @Spy
+    private NdjsonUserWriter ndjsonUserWriter = new NdjsonUserWriter(new ObjectMapper().findAndRegisterModules());
+
+    @InjectMocks
+    private UserController userController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ndjsonUserWriter, "bufferSize", 8192);
+        ReflectionTestUtils.setField(ndjsonUserWriter, "flushEvery", 1);
+        mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
+    }
+
+    @Test
+    void getActiveUsers_WithoutNdjsonAccept_ShouldStreamJsonArray() throws Exception {
+        // Given
+        when(userService.streamActiveViews(UserView.FIELDS)).thenReturn(Stream.of(
+                UserView.of(createTestUser("user1"), UserView.FIELDS), UserView.of(createTestUser("user2"), UserView.FIELDS)));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/users/active"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].username").value("user1"));
+        verify(userService, never()).streamActiveUsers();
+    }
+
+    @Test
+    void getActiveUsers_WithNoActiveUsers_ShouldStreamEmptyArray() throws Exception {
+        // Given
+        when(userService.streamActiveViews(UserView.FIELDS)).thenReturn(Stream.empty());
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/users/active"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("[]"));
+    }
+
+    @Test
+    void getActiveUsers_WithUnknownField_ShouldReturnBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/users/active").param("fields", "password"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void getAllUsers_WithCurrentRevisionButInvalidParameters_ShouldReturnBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/users").param("fields", "password").header(HttpHeaders.IF_NONE_MATCH, "W/\"r42\""))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/users").param("cursor", "").param("sortBy", "lastName")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"r42\""))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(userService, userStatsService);
+    }
+
+    @Test
+    void getActiveUsers_WithRawJson_ShouldTranscodeWithoutUserViews() throws Exception {
+        // Given
+        userController.rawJson = true;
+        when(userService.streamActiveRawViews(UserView.FIELDS))
+                .thenReturn(Stream.of(RawUserView.of(createTestUser("user1"), UserView.FIELDS)));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/users/active"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("user1-id"))
+                .andExpect(jsonPath("$[0].username").value("user1"))
+                .andExpect(jsonPath("$[0].password").doesNotExist());
+        verify(userService, never()).streamActiveViews(any());
+    }
+
+    @Test
+    void getUserById_WithFields_ShouldReturnOnlyRequestedFields() throws Exception {
+        // Given
+        when(userService.findById("user1-id")).thenReturn(Optional.of(createTestUser("user1")));
+
+        // When & Then
+        mockMvc.perform(get("/api/users/user1-id").param("fields", "username"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("user1-id"))
+                .andExpect(jsonPath("$.username").value("user1"))
+                .andExpect(jsonPath("$.email").doesNotExist())
+                .andExpect(jsonPath("$.password").doesNotExist());
+    }
+
+    @Test
+    void getUserById_WithUnknownField_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/users/user1-id").param("fields", "password"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void getUserById_ShouldTagWithVersionAndAnswerRevalidationFromVersionStamp() throws Exception {
+        // Given
+        User user = createTestUser("user1");
+        user.setVersion(3L);
+        when(userService.findById("user1-id")).thenReturn(Optional.of(user));
+        when(userService.findVersionStamp("user1-id")).thenReturn(Optional.of(user));
+
+        // When & Then
+        mockMvc.perform(get("/api/users/user1-id"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+        mockMvc.perform(get("/api/users/user1-id").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(userService, times(1)).findById("user1-id");
+    }
+
+    @Test
+    void updateUser_WithStaleIfMatch_ShouldReturnPreconditionFailed() throws Exception {
+        // Given
+        when(userService.update(eq("user1-id"), any(User.class)))
+                .thenThrow(new OptimisticLockingFailureException("User was modified concurrently: user1-id"));
+
+        // When & Then
+        mockMvc.perform(put("/api/users/user1-id")
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"user1\",\"email\":\"user1@test.com\",\"password\":\"password123\","
+                                + "\"firstName\":\"Test\",\"lastName\":\"User\"}"))
+                .andExpect(status().isPreconditionFailed());
+        verify(userService).update(eq("user1-id"), argThat(user -> user.getVersion() == 2L));
+
+        mockMvc.perform(put("/api/users/user1-id")
+                        .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"user1\",\"email\":\"user1@test.com\",\"password\":\"password123\","
+                                + "\"firstName\":\"Test\",\"lastName\":\"User\"}"))
+                .andExpect(status().isPreconditionFailed());
+        verifyNoMoreInteractions(userService);
+    }
+
+    @Test
+    void getAllUsers_WithCurrentRevision_ShouldReturnNotModifiedWithoutQuerying() throws Exception {
+        // Given
+        when(userStatsService.getRevision()).thenReturn(Optional.of(42L));
+
+        // When & Then
+        mockMvc.perform(get("/api/users").header(HttpHeaders.IF_NONE_MATCH, "W/\"r42\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"r42\""));
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void streamActiveUsers_WithNdjsonAccept_ShouldWriteOneDocumentPerLine() throws Exception {
+        // Given
+        when(userService.streamActiveUsers()).thenReturn(Stream.of(createTestUser("user1"), createTestUser("user2")));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/users/active").accept(UserController.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.parseMediaType(UserController.APPLICATION_NDJSON_VALUE)))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"username\":\"user1\""));
+        assertFalse(body.contains("password123"));
+    }
+
+    private User createTestUser(String username) {
+        User user = new User(username, username + "@test.com", "password123", "Test", "User");
+        user.setId(username + "-id");
+        return user;
+    }
+}
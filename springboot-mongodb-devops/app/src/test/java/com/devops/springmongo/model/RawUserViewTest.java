@@ -0,0 +1,65 @@
+package com.devops.springmongo.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RawUserViewTest {
+
+    // as configured by spring.jackson.* in application.properties
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void serialize_ShouldWriteSameJsonAsUserView() throws Exception {
+        // Given
+        User user = new User("alice", "alice@test.com", "password123", "Alice", "Smith");
+        user.setId("alice-id");
+        user.setCreatedAt(LocalDateTime.of(2024, 3, 1, 10, 0, 0, 120_000_000));
+        user.setUpdatedAt(LocalDateTime.of(2024, 3, 2, 9, 30));
+        user.setVersion(4L);
+
+        for (Set<String> fields : List.of(UserView.FIELDS, UserView.parseFields("username,createdAt"))) {
+            // When
+            String raw = objectMapper.writeValueAsString(RawUserView.of(user, fields));
+
+            // Then
+            assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(UserView.of(user, fields))),
+                    objectMapper.readTree(raw));
+        }
+    }
+
+    @Test
+    void serialize_ShouldMapObjectIdAndLeaveOutUnselectedFields() throws Exception {
+        // Given
+        ObjectId id = new ObjectId();
+        BsonDocument stored = new BsonDocument("_id", new BsonObjectId(id))
+                .append("username", new BsonString("alice"))
+                .append("password", new BsonString("$2a$10$hash"))
+                .append("searchTokens", new BsonArray(List.of(new BsonString("al"))))
+                .append("_class", new BsonString("com.devops.springmongo.model.User"));
+        RawUserView view = new RawUserView(new RawBsonDocument(stored, new BsonDocumentCodec()), UserView.FIELDS);
+
+        // When
+        String json = objectMapper.writeValueAsString(view);
+
+        // Then
+        assertEquals("{\"id\":\"" + id.toHexString() + "\",\"username\":\"alice\"}", json);
+        assertEquals("alice", view.names().getUsername());
+    }
+}
@@ -0,0 +1,252 @@
+package com.devops.springmongo.repository;
+
+import com.devops.springmongo.model.ChangeCursor;
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserCursor;
+import com.devops.springmongo.model.UserView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserRepositoryTest {
+
+    private InMemoryUserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = new InMemoryUserRepository();
+    }
+
+    @Test
+    void insert_WithTakenUsername_ShouldThrowDuplicateKeyLikeMongo() {
+        // Given
+        userRepository.insert(createTestUser("user1", "user1@example.com"));
+
+        // When
+        DuplicateKeyException e = assertThrows(DuplicateKeyException.class,
+                () -> userRepository.insert(createTestUser("user1", "other@example.com")));
+
+        // Then
+        assertTrue(e.getMessage().contains("index: username"));
+        assertFalse(userRepository.existsByEmail("other@example.com"));
+        assertEquals(1, userRepository.count());
+    }
+
+    @Test
+    void insert_WithSameUsernameConcurrently_ShouldAcceptExactlyOne() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> inserts = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 64; i++) {
+            int n = i;
+            inserts.add(executor.submit(() -> {
+                try {
+                    userRepository.insert(createTestUser("contended", "user" + n + "@example.com"));
+                } catch (DuplicateKeyException e) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> insert : inserts) {
+            insert.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        assertEquals(63, rejected.get());
+        assertEquals(1, userRepository.count());
+        assertTrue(userRepository.findByUsername("contended").isPresent());
+    }
+
+    @Test
+    void findAfter_ByCreatedAt_ShouldSeekPastCursorInIndexOrder() {
+        // Given
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 5; i++) {
+            User user = createTestUser("user" + i, "user" + i + "@example.com");
+            user.setCreatedAt(base.plusMinutes(i));
+            userRepository.insert(user);
+        }
+        User second = userRepository.findByUsername("user1").orElseThrow();
+
+        // When
+        List<User> page = userRepository.findAfter(Sort.by("createdAt", "id"),
+                UserCursor.after("createdAt", Sort.Direction.ASC, second), 2, Set.of("id", "username"));
+
+        // Then
+        assertEquals(List.of("user2", "user3"), page.stream().map(User::getUsername).toList());
+        assertNull(page.get(0).getEmail());
+    }
+
+    @Test
+    void findByFirstNameContainingIgnoreCase_ShouldMatchWordPrefixesOfTheFirstName() {
+        // Given
+        for (String[] name : new String[][] {{"Mary Ann", "Smith"}, {"annabel", "Jones"}, {"Joanne", "Annis"}}) {
+            User user = createTestUser(name[0].replace(" ", "").toLowerCase(), name[0].replace(" ", "") + "@example.com");
+            user.setFirstName(name[0]);
+            user.setLastName(name[1]);
+            userRepository.insert(user);
+        }
+
+        // When
+        Page<User> page = userRepository.findByFirstNameContainingIgnoreCase("ANN", PageRequest.of(0, 10));
+
+        // Then
+        assertEquals(Set.of("Mary Ann", "annabel"), Set.copyOf(page.map(User::getFirstName).getContent()));
+        assertNull(page.getContent().get(0).getPassword());
+        assertTrue(userRepository.findByFirstNameContainingIgnoreCase("a", PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    void findChangedAfter_ShouldSeekPastCheckpointAndHoldBackUnsettledChanges() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            userRepository.insert(createTestUser("user" + i, "user" + i + "@example.com"));
+        }
+        PageRequest changeOrder = PageRequest.of(0, 10, Sort.by("updatedAt", "id"));
+        LocalDateTime later = LocalDateTime.now().plusMinutes(1);
+        List<User> all = userRepository.findChangedAfter(ChangeCursor.START.getChangedAt(), "", later, changeOrder);
+        User first = all.get(0);
+
+        // When
+        List<User> afterFirst = userRepository.findChangedAfter(first.getUpdatedAt(), first.getId(), later, changeOrder);
+        List<User> unsettled = userRepository.findChangedAfter(ChangeCursor.START.getChangedAt(), "",
+                first.getUpdatedAt(), changeOrder);
+
+        // Then
+        assertEquals(3, all.size());
+        assertEquals(all.subList(1, 3).stream().map(User::getId).toList(), afterFirst.stream().map(User::getId).toList());
+        assertTrue(unsettled.isEmpty());
+        assertNull(first.getPassword());
+    }
+
+    @Test
+    void findViews_SortedByCreatedAtDesc_ShouldReturnNewestFirstWithTotal() {
+        // Given
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 3; i++) {
+            User user = createTestUser("user" + i, "user" + i + "@example.com");
+            user.setCreatedAt(base.plusDays(i));
+            userRepository.insert(user);
+        }
+
+        // When
+        Page<UserView> page = userRepository.findViews(
+                PageRequest.of(0, 2, Sort.by("createdAt").descending()), UserView.FIELDS);
+
+        // Then
+        assertEquals(List.of("user2", "user1"), page.getContent().stream().map(UserView::getUsername).toList());
+        assertEquals(3, page.getTotalElements());
+    }
+
+    @Test
+    void updateProfile_ShouldMaintainIndexesAndRejectStaleVersionOrOtherUsername() {
+        // Given
+        User user = userRepository.insert(createTestUser("user1", "user1@example.com"));
+        User changes = createTestUser("user1", "renamed@example.com");
+        changes.setFirstName("Zed");
+        changes.setActive(false);
+
+        // When
+        User previous = userRepository.updateProfile(user.getId(), 0L, changes);
+
+        // Then
+        assertEquals("user1@example.com", previous.getEmail());
+        assertNull(previous.getPassword());
+        assertTrue(userRepository.findByEmail("renamed@example.com").isPresent());
+        assertFalse(userRepository.existsByEmail("user1@example.com"));
+        assertEquals(0, userRepository.countByActiveTrue());
+        assertEquals(1, userRepository.findBySearchTokens(List.of("zed"), 10).size());
+        assertTrue(userRepository.findBySearchTokens(List.of("test"), 10).isEmpty());
+        assertNull(userRepository.updateProfile(user.getId(), 0L, changes));
+        assertNull(userRepository.updateProfile(user.getId(), null, createTestUser("renamed", "renamed@example.com")));
+    }
+
+    @Test
+    void removeById_ShouldDropUserFromEveryIndex() {
+        // Given
+        User user = userRepository.insert(createTestUser("user1", "user1@example.com"));
+
+        // When
+        User removed = userRepository.removeById(user.getId());
+
+        // Then
+        assertTrue(removed.isActive());
+        assertNotNull(removed.getCreatedAt());
+        assertEquals(0, userRepository.count());
+        assertEquals(0, userRepository.countByActiveTrue());
+        assertTrue(userRepository.streamActiveViews(100, UserView.FIELDS).findAny().isEmpty());
+        assertTrue(userRepository.findBySearchTokens(List.of("user1"), 10).isEmpty());
+        assertNull(userRepository.removeById(user.getId()));
+        assertDoesNotThrow(() -> userRepository.insert(createTestUser("user1", "user1@example.com")));
+    }
+
+    @Test
+    void findAll_ByExample_ShouldApplyMatcherLikeMongo() {
+        // Given
+        userRepository.insert(createTestUser("alice", "alice@example.com"));
+        userRepository.insert(createTestUser("alina", "alina@example.com"));
+        User inactive = createTestUser("albert", "albert@example.com");
+        inactive.setActive(false);
+        userRepository.insert(inactive);
+        User probe = new User();
+        probe.setUsername("AL");
+
+        // When
+        List<User> exact = userRepository.findAll(Example.of(probe));
+        List<User> starting = userRepository.findAll(Example.of(probe, ExampleMatcher.matching()
+                .withMatcher("username", match -> match.startsWith().ignoreCase())), Sort.by("username"));
+
+        // Then
+        assertTrue(exact.isEmpty());
+        assertEquals(List.of("alice", "alina"), starting.stream().map(User::getUsername).toList());
+        assertEquals(3, userRepository.count(Example.of(probe, ExampleMatcher.matching()
+                .withIgnorePaths("active").withMatcher("username", match -> match.startsWith().ignoreCase()))));
+        assertThrows(IncorrectResultSizeDataAccessException.class, () -> userRepository.findOne(Example.of(new User())));
+    }
+
+    @Test
+    void findBy_Example_ShouldSortLimitAndPage() {
+        // Given
+        userRepository.insert(createTestUser("user1", "user1@example.com"));
+        userRepository.insert(createTestUser("user2", "user2@example.com"));
+        userRepository.insert(createTestUser("user3", "user3@example.com"));
+        Example<User> example = Example.of(new User());
+
+        // When
+        List<User> newest = userRepository.findBy(example, query -> query.sortBy(Sort.by("username").descending()).limit(2).all());
+        Page<User> page = userRepository.findBy(example, query -> query.page(PageRequest.of(1, 2, Sort.by("username"))));
+
+        // Then
+        assertEquals(List.of("user3", "user2"), newest.stream().map(User::getUsername).toList());
+        assertEquals(List.of("user3"), page.getContent().stream().map(User::getUsername).toList());
+        assertEquals(3, page.getTotalElements());
+        boolean exists = userRepository.findBy(example, query -> query.exists());
+        assertTrue(exists);
+    }
+
+    private User createTestUser(String username, String email) {
+        return new User(username, email, "hashed", "Test", "User");
+    }
+}
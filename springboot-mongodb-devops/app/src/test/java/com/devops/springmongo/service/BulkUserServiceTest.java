@@ -0,0 +1,130 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.BulkUserResponse;
+import com.devops.springmongo.model.BulkUserResult;
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkUserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserStatsService userStatsService;
+
+    private BulkUserService bulkUserService;
+    private PasswordHashingService passwordHashingService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        passwordHashingService = new PasswordHashingService(new BCryptPasswordEncoder(4), meterRegistry, 2, 4, Duration.ofSeconds(5));
+        bulkUserService = new BulkUserService(meterRegistry);
+        bulkUserService.userRepository = userRepository;
+        bulkUserService.passwordHashingService = passwordHashingService;
+        bulkUserService.validator = Validation.buildDefaultValidatorFactory().getValidator();
+        bulkUserService.userStatsService = userStatsService;
+        bulkUserService.batchSize = 2;
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHashingService.shutdown();
+    }
+
+    @Test
+    void createAll_ShouldReportPerItemResultsInRequestOrder() {
+        // Given
+        User existing = createTestUser("taken", "taken@test.com");
+        when(userRepository.findExistingUsernamesOrEmails(anyCollection(), anyCollection()))
+                .thenReturn(List.of(existing))
+                .thenReturn(List.of());
+        when(userRepository.insertUnordered(anyList())).thenReturn(Map.of());
+
+        List<User> users = List.of(
+                createTestUser("user1", "user1@test.com"),
+                createTestUser("taken", "other@test.com"),
+                createTestUser("user1", "dup@test.com"),
+                createTestUser("x", "not-an-email"),
+                createTestUser("user2", "user2@test.com"));
+
+        // When
+        BulkUserResponse response = bulkUserService.createAll(users.iterator());
+
+        // Then
+        assertEquals(5, response.getTotal());
+        assertEquals(2, response.getCreated());
+        List<BulkUserResult> results = response.getResults();
+        assertEquals(BulkUserResult.Status.CREATED, results.get(0).getStatus());
+        assertNotNull(results.get(0).getId());
+        assertEquals(BulkUserResult.Status.DUPLICATE, results.get(1).getStatus());
+        assertEquals(BulkUserResult.Status.DUPLICATE, results.get(2).getStatus());
+        assertEquals(BulkUserResult.Status.INVALID, results.get(3).getStatus());
+        assertEquals(BulkUserResult.Status.CREATED, results.get(4).getStatus());
+        assertTrue(users.get(0).getPassword().startsWith("$2a$"));
+        verify(userRepository, times(2)).findExistingUsernamesOrEmails(anyCollection(), anyCollection());
+        assertEquals(2.0, meterRegistry.get("users_created_total").counter().count());
+    }
+
+    @Test
+    void createAll_WhenInsertReportsDuplicateKey_ShouldMarkItemDuplicate() {
+        // Given
+        when(userRepository.findExistingUsernamesOrEmails(anyCollection(), anyCollection())).thenReturn(List.of());
+        when(userRepository.insertUnordered(anyList())).thenReturn(Map.of(1, 11000));
+
+        // When
+        BulkUserResponse response = bulkUserService.createAll(List.of(
+                createTestUser("user1", "user1@test.com"),
+                createTestUser("user2", "user2@test.com")).iterator());
+
+        // Then
+        assertEquals(BulkUserResult.Status.CREATED, response.getResults().get(0).getStatus());
+        assertEquals(BulkUserResult.Status.DUPLICATE, response.getResults().get(1).getStatus());
+        assertNull(response.getResults().get(1).getId());
+    }
+
+    @Test
+    void createAll_ShouldStampNewUsersAndIgnoreClientVersionAndDates() {
+        // Given
+        when(userRepository.findExistingUsernamesOrEmails(anyCollection(), anyCollection())).thenReturn(List.of());
+        when(userRepository.insertUnordered(anyList())).thenReturn(Map.of());
+        User user = createTestUser("user1", "user1@test.com");
+        user.setVersion(7L);
+        user.setCreatedAt(LocalDateTime.of(2000, 1, 1, 0, 0));
+
+        // When
+        bulkUserService.createAll(List.of(user).iterator());
+
+        // Then
+        assertNull(user.getVersion());
+        assertNotNull(user.getCreatedAt());
+        assertTrue(user.getCreatedAt().isAfter(LocalDateTime.now().minusMinutes(1)));
+        assertEquals(user.getCreatedAt(), user.getUpdatedAt());
+    }
+
+    private User createTestUser(String username, String email) {
+        return new User(username, email, "password123", "Test", "User");
+    }
+}
@@ -0,0 +1,82 @@
+package com.devops.springmongo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHashingService hashingService;
+
+    @AfterEach
+    void tearDown() {
+        hashingService.shutdown();
+    }
+
+    @Test
+    void encodeAll_ShouldHashEveryPasswordInOrder() {
+        // Given
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+        hashingService = new PasswordHashingService(encoder, meterRegistry, 2, 2, Duration.ofSeconds(5));
+
+        // When
+        List<String> hashes = hashingService.encodeAll(List.of("one", "two", "three"));
+
+        // Then
+        assertEquals(3, hashes.size());
+        assertTrue(encoder.matches("one", hashes.get(0)));
+        assertTrue(encoder.matches("three", hashes.get(2)));
+        assertEquals(3, meterRegistry.get("password.hash.duration").timer().count());
+    }
+
+    @Test
+    void encode_WhenQueueIsFull_ShouldFailFast() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder blockingEncoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return false;
+            }
+        };
+        hashingService = new PasswordHashingService(blockingEncoder, meterRegistry, 1, 1, Duration.ofSeconds(5));
+        Thread worker = new Thread(() -> hashingService.encode("a"));
+        Thread queued = new Thread(() -> hashingService.encode("b"));
+        worker.start();
+        started.await(5, TimeUnit.SECONDS);
+        queued.start();
+        while (meterRegistry.get("password.hash.queue.depth").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+
+        // When & Then
+        assertThrows(PasswordHashingRejectedException.class, () -> hashingService.encode("c"));
+        assertEquals(1.0, meterRegistry.get("password.hash.rejected").counter().count());
+
+        release.countDown();
+        worker.join();
+        queued.join();
+    }
+}
@@ -0,0 +1,107 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.repository.ReactiveUserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ReactiveUserServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReactiveUserRepository userRepository;
+    private ReactiveUserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(ReactiveUserRepository.class);
+        userService = new ReactiveUserService(meterRegistry);
+        userService.userRepository = userRepository;
+        userService.passwordHashingService = new PasswordHashingService(
+                new BCryptPasswordEncoder(4), meterRegistry, 1, 4, Duration.ofSeconds(5));
+        userService.userStatsService = mock(UserStatsService.class);
+        userService.searchMaxCandidates = 500;
+    }
+
+    @AfterEach
+    void tearDown() {
+        userService.passwordHashingService.shutdown();
+    }
+
+    @Test
+    void save_ShouldHashPasswordOffTheCallerAndCountCreation() {
+        // Given
+        User user = new User("testuser", "test@example.com", "password123", "Test", "User");
+        when(userRepository.insert(any(User.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        // When / Then
+        StepVerifier.create(userService.save(user))
+                .assertNext(saved -> assertTrue(saved.getPassword().startsWith("$2a$04$")))
+                .verifyComplete();
+        assertEquals(1.0, meterRegistry.get("users_created_total").counter().count());
+        verify(userService.userStatsService).recordCreated(user);
+    }
+
+    @Test
+    void save_WhenUsernameTaken_ShouldMapDuplicateKey() {
+        // Given
+        User user = new User("testuser", "test@example.com", "password123", "Test", "User");
+        when(userRepository.insert(any(User.class))).thenReturn(Mono.error(new DuplicateKeyException(
+                "E11000 duplicate key error collection: devops_db.users index: username dup key: { username: \"testuser\" }")));
+
+        // When / Then
+        StepVerifier.create(userService.save(user))
+                .expectErrorSatisfies(e -> {
+                    assertInstanceOf(DuplicateUserException.class, e);
+                    assertEquals("Username is already taken!", e.getMessage());
+                })
+                .verify();
+        verifyNoInteractions(userService.userStatsService);
+    }
+
+    @Test
+    void findPage_ShouldReadThroughThePublicProjection() {
+        // Given
+        PageRequest pageable = PageRequest.of(0, 10);
+        User user = new User("testuser", "test@example.com", null, "Test", "User");
+        when(userRepository.findAllBy(pageable)).thenReturn(Flux.just(user));
+        when(userRepository.count()).thenReturn(Mono.just(1L));
+
+        // When / Then
+        StepVerifier.create(userService.findPage(pageable))
+                .assertNext(page -> assertNull(page.getContent().get(0).getPassword()))
+                .verifyComplete();
+        verify(userRepository, never()).findAll(any(Sort.class));
+    }
+
+    @Test
+    void searchPage_ShouldRankCandidatesAndPageInMemory() {
+        // Given
+        User prefix = new User("johnny", "johnny@example.com", "pw", "Johnny", "Walker");
+        User exact = new User("john", "john@example.com", "pw", "John", "Doe");
+        when(userRepository.findBySearchTokens(eq(List.of("john")), any())).thenReturn(Flux.just(prefix, exact));
+
+        // When / Then
+        StepVerifier.create(userService.searchPage("John", PageRequest.of(0, 1)))
+                .assertNext(page -> {
+                    assertEquals(2, page.getTotalElements());
+                    assertEquals("john", page.getContent().get(0).getUsername());
+                })
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,47 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTokenizerTest {
+
+    @Test
+    void tokensFor_ShouldIndexNormalizedWordPrefixes() {
+        // Given
+        User user = new User("jdoe", "john.doe@example.com", "secret", "Jöhn", "Doe-Smith");
+
+        // When
+        List<String> tokens = SearchTokenizer.tokensFor(user);
+
+        // Then
+        assertTrue(tokens.containsAll(List.of("jo", "joh", "john", "do", "doe", "sm", "smith", "jd", "jdoe", "ex", "example", "com")));
+        assertFalse(tokens.contains("j"));
+        assertFalse(tokens.contains("ohn"));
+        assertEquals(tokens.size(), tokens.stream().distinct().count());
+    }
+
+    @Test
+    void queryTerms_ShouldNormalizeAndDropShortWords() {
+        assertEquals(List.of("john", "do"), SearchTokenizer.queryTerms("  JOHN d Do "));
+        assertEquals(List.of("aaaaaaaaaaaaaaaaaaaa"), SearchTokenizer.queryTerms("a".repeat(30)));
+        assertTrue(SearchTokenizer.queryTerms("x").isEmpty());
+        assertTrue(SearchTokenizer.queryTerms(null).isEmpty());
+    }
+
+    @Test
+    void score_ShouldRankWholeWordAboveUsernamePrefixAboveEmail() {
+        // Given
+        List<String> terms = SearchTokenizer.queryTerms("ann");
+        User exactName = new User("zed", "z@example.com", "secret", "Ann", "Lee");
+        User usernamePrefix = new User("annabel", "a@example.com", "secret", "Bel", "Lee");
+        User emailOnly = new User("bob", "annex@example.com", "secret", "Bob", "Lee");
+
+        // When & Then
+        assertTrue(SearchTokenizer.score(exactName, terms) > SearchTokenizer.score(usernamePrefix, terms));
+        assertTrue(SearchTokenizer.score(usernamePrefix, terms) > SearchTokenizer.score(emailOnly, terms));
+    }
+}
@@ -0,0 +1,161 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class UserBatchLoaderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    @Test
+    void findById_WhenCalledConcurrently_ShouldMergeLookupsIntoOneQuery() throws Exception {
+        // Given
+        when(userRepository.findPublicByIdIn(anyCollection())).thenAnswer(invocation -> users(invocation.getArgument(0)));
+        UserBatchLoader loader = new UserBatchLoader(userRepository, meterRegistry, true, Duration.ofSeconds(5), 3);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        // When
+        try {
+            List<Future<Optional<User>>> results = new ArrayList<>();
+            for (String id : List.of("1", "2", "3")) {
+                results.add(executor.submit(() -> loader.findById(id)));
+            }
+
+            // Then
+            for (int i = 0; i < 3; i++) {
+                assertEquals(String.valueOf(i + 1), results.get(i).get(5, TimeUnit.SECONDS).orElseThrow().getId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(userRepository, times(1)).findPublicByIdIn(anyCollection());
+        assertEquals(3.0, meterRegistry.get("users.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void findById_WhenSameKeyIsInFlight_ShouldShareTheLoad() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findPublicByIdIn(anyCollection())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return users(invocation.getArgument(0));
+        });
+        UserBatchLoader loader = new UserBatchLoader(userRepository, meterRegistry, true, Duration.ZERO, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // When
+        try {
+            Future<Optional<User>> first = executor.submit(() -> loader.findById("1"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Optional<User>> second = executor.submit(() -> loader.findById("1"));
+            while (meterRegistry.get("users.batch.deduplicated").counter().count() < 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            // Then
+            assertSame(first.get(5, TimeUnit.SECONDS).orElseThrow(), second.get(5, TimeUnit.SECONDS).orElseThrow());
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(userRepository, times(1)).findPublicByIdIn(anyCollection());
+    }
+
+    @Test
+    void forget_ShouldStopSharingInFlightLoadByUsername() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findPublicByUsernameIn(anyCollection())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            Collection<String> usernames = invocation.getArgument(0);
+            return users(usernames.stream().map(username -> username.substring("user".length())).toList());
+        });
+        UserBatchLoader loader = new UserBatchLoader(userRepository, meterRegistry, true, Duration.ZERO, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // When
+        try {
+            Future<Optional<User>> first = executor.submit(() -> loader.findByUsername("user1"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            loader.forget("1", "user1");
+            Future<Optional<User>> second = executor.submit(() -> loader.findByUsername("user1"));
+            while (mockingDetails(userRepository).getInvocations().size() < 2) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            // Then
+            assertNotSame(first.get(5, TimeUnit.SECONDS).orElseThrow(), second.get(5, TimeUnit.SECONDS).orElseThrow());
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(userRepository, times(2)).findPublicByUsernameIn(anyCollection());
+    }
+
+    @Test
+    void findAllById_ShouldQueryInChunksOfMaxSizeAndSkipUnknownIds() {
+        // Given
+        when(userRepository.findPublicByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            return users(ids.stream().filter(id -> !id.equals("404")).toList());
+        });
+        UserBatchLoader loader = new UserBatchLoader(userRepository, meterRegistry, true, Duration.ofSeconds(5), 2);
+
+        // When
+        Map<String, User> found = loader.findAllById(List.of("1", "2", "2", "3", "404"));
+
+        // Then
+        assertEquals(3, found.size());
+        assertFalse(found.containsKey("404"));
+        verify(userRepository, times(2)).findPublicByIdIn(anyCollection());
+    }
+
+    @Test
+    void findById_WhenDisabled_ShouldGoStraightToTheRepository() {
+        // Given
+        User user = users(List.of("1")).get(0);
+        when(userRepository.findPublicById("1")).thenReturn(Optional.of(user));
+        UserBatchLoader loader = new UserBatchLoader(userRepository, meterRegistry, false, Duration.ofSeconds(5), 100);
+
+        // When
+        Optional<User> result = loader.findById("1");
+
+        // Then
+        assertSame(user, result.orElseThrow());
+        verify(userRepository, never()).findPublicByIdIn(anyCollection());
+    }
+
+    private static List<User> users(Collection<String> ids) {
+        List<User> users = new ArrayList<>();
+        for (String id : ids) {
+            User user = new User();
+            user.setId(id);
+            user.setUsername("user" + id);
+            users.add(user);
+        }
+        return users;
+    }
+}
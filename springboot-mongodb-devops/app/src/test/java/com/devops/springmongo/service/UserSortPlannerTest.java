@@ -0,0 +1,120 @@
+package com.devops.springmongo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserSortPlannerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void sort_ShouldAddIdTieBreakerUnlessFieldIsUnique() {
+        // Given
+        UserSortPlanner planner = planner("reject", List.of());
+
+        // When & Then
+        assertEquals(Sort.by(Sort.Direction.DESC, "createdAt", "id"), planner.sort("createdAt", "desc"));
+        assertEquals(Sort.by(Sort.Direction.ASC, "username"), planner.sort("username", "asc"));
+        assertEquals(Sort.by(Sort.Direction.ASC, "id"), planner.sort("id", "asc"));
+        assertThrows(IllegalArgumentException.class, () -> planner.sort("password", "asc"));
+    }
+
+    @Test
+    void isIndexed_ShouldMatchIndexPrefixesInEitherDirection() {
+        // Given
+        UserSortPlanner planner = planner("reject", List.of("lastName"));
+
+        // When & Then
+        assertTrue(planner.isIndexed(planner.sort("createdAt", "desc")));
+        assertTrue(planner.isIndexed(planner.sort("updatedAt", "asc")));
+        assertTrue(planner.isIndexed(planner.sort("email", "desc")));
+        assertTrue(planner.isIndexed(planner.sort("lastName", "desc")));
+        assertFalse(planner.isIndexed(planner.sort("firstName", "asc")));
+        assertFalse(planner.isIndexed(Sort.by(Sort.Order.asc("createdAt"), Sort.Order.desc("id"))));
+        assertEquals(List.of("createdAt", "email", "id", "lastName", "updatedAt", "username"),
+                List.copyOf(planner.getIndexedSortFields()));
+    }
+
+    @Test
+    void execute_WithRejectMode_ShouldRejectUnindexedSort() {
+        // Given
+        UserSortPlanner planner = planner("reject", List.of());
+        PageRequest pageable = PageRequest.of(0, 10, planner.sort("lastName", "asc"));
+
+        // When
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> planner.execute(pageable, () -> "index", maxTime -> "disk"));
+
+        // Then
+        assertTrue(e.getMessage().startsWith("Sorting by lastName is not backed by an index"));
+        assertEquals(1, meterRegistry.get("users.sort.planned").tag("plan", "rejected").counter().count());
+    }
+
+    @Test
+    void requireIndexed_ShouldRejectUnindexedSortEvenInDiskMode() {
+        // Given
+        UserSortPlanner planner = planner("disk", List.of());
+
+        // When
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> planner.requireIndexed(planner.sort("lastName", "asc")));
+
+        // Then
+        assertTrue(e.getMessage().startsWith("Sorting by lastName is not backed by an index"));
+        assertEquals(planner.sort("createdAt", "desc"), planner.requireIndexed(planner.sort("createdAt", "desc")));
+        assertEquals(1, meterRegistry.get("users.sort.planned").tag("plan", "rejected").counter().count());
+    }
+
+    @Test
+    void execute_WithDiskMode_ShouldBudgetUnindexedSorts() throws Exception {
+        // Given
+        UserSortPlanner planner = planner("disk", List.of());
+        PageRequest pageable = PageRequest.of(0, 10, planner.sort("lastName", "asc"));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // When
+        Thread running = new Thread(() -> planner.execute(pageable, () -> "index", maxTime -> {
+            started.countDown();
+            awaitQuietly(release);
+            return "disk";
+        }));
+        running.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Then
+        assertThrows(SortCapacityExceededException.class, () -> planner.execute(pageable, () -> "index", maxTime -> "disk"));
+        assertThrows(IllegalArgumentException.class,
+                () -> planner.execute(PageRequest.of(100, 100, pageable.getSort()), () -> "index", maxTime -> "disk"));
+        assertEquals("index", planner.execute(PageRequest.of(0, 10, planner.sort("createdAt", "desc")),
+                () -> "index", maxTime -> "disk"));
+
+        release.countDown();
+        running.join();
+        assertEquals(Duration.ofSeconds(5), planner.execute(pageable, () -> null, maxTime -> maxTime));
+    }
+
+    private UserSortPlanner planner(String unindexed, List<String> indexedFields) {
+        return new UserSortPlanner(meterRegistry, new StaticListableBeanFactory().getBeanProvider(MongoTemplate.class),
+                indexedFields, false, unindexed, 1, Duration.ofSeconds(5), 1000);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
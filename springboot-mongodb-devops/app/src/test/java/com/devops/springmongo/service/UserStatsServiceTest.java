@@ -0,0 +1,166 @@
+package com.devops.springmongo.service;
+
+import com.devops.springmongo.model.DailySignups;
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserStats;
+import com.devops.springmongo.repository.UserRepository;
+import com.devops.springmongo.repository.UserStatsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserStatsServiceTest {
+
+    @Mock
+    private UserStatsRepository userStatsRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private JobLease jobLease;
+
+    private UserStatsService userStatsService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userStatsService = new UserStatsService(meterRegistry);
+        userStatsService.userStatsRepository = userStatsRepository;
+        userStatsService.userRepository = userRepository;
+        userStatsService.materialized = true;
+        userStatsService.maxSignupDays = 366;
+        userStatsService.jobLease = jobLease;
+        userStatsService.reconcileInterval = 300000;
+    }
+
+    @Test
+    void getStats_ShouldReadRollupWithoutCountingUsers() {
+        // Given
+        when(userStatsRepository.findById(UserStats.TOTALS_ID))
+                .thenReturn(Optional.of(new UserStats(7, 3, LocalDateTime.now())));
+
+        // When
+        UserStats stats = userStatsService.getStats();
+
+        // Then
+        assertEquals(7, stats.getActiveUsers());
+        assertEquals(10, stats.getTotalUsers());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void recordCreated_ShouldIncrementTotalsAndSignupDay() {
+        // Given
+        User active = createTestUser("user1", LocalDateTime.of(2024, 3, 1, 10, 0));
+        User inactive = createTestUser("user2", LocalDateTime.of(2024, 3, 1, 23, 0));
+        inactive.setActive(false);
+
+        // When
+        userStatsService.recordCreated(List.of(active, inactive));
+
+        // Then
+        verify(userStatsRepository).increment(1, 1, Map.of("2024-03-01", 2L));
+    }
+
+    @Test
+    void recordUpdated_WhenActiveFlagUnchanged_ShouldOnlyBumpRevision() {
+        // When
+        userStatsService.recordUpdated(true, true);
+
+        // Then
+        verify(userStatsRepository, never()).increment(anyLong(), anyLong(), anyMap());
+        verify(userStatsRepository).touch();
+    }
+
+    @Test
+    void recordDeleted_WhenRollupWriteFails_ShouldNotPropagate() {
+        // Given
+        User user = createTestUser("user1", LocalDateTime.of(2024, 3, 1, 10, 0));
+        doThrow(new RuntimeException("write failed"))
+                .when(userStatsRepository).increment(-1, 0, Map.of("2024-03-01", -1L));
+
+        // When
+        userStatsService.recordDeleted(user);
+
+        // Then
+        assertEquals(1.0, meterRegistry.get("users.stats.update.failures").counter().count());
+    }
+
+    @Test
+    void reconcile_ShouldIncrementRollupsByDriftAndReportIt() {
+        // Given
+        when(jobLease.tryAcquire("stats-reconcile", Duration.ofMinutes(5))).thenReturn(true);
+        when(userRepository.countByActiveTrue()).thenReturn(8L);
+        when(userRepository.count()).thenReturn(10L);
+        when(userRepository.countByCreatedDay()).thenReturn(Map.of("2024-03-01", 10L, "2024-03-02", 1L));
+        when(userStatsRepository.findById(UserStats.TOTALS_ID))
+                .thenReturn(Optional.of(new UserStats(7, 2, null)));
+        when(userStatsRepository.findSignups(anyString(), anyString()))
+                .thenReturn(List.of(new DailySignups("2024-03-01", 10), new DailySignups("2024-02-29", 2)));
+
+        // When
+        userStatsService.reconcile();
+
+        // Then
+        verify(userStatsRepository).correct(1, 0, Map.of("2024-03-02", 1L, "2024-02-29", -2L));
+        assertEquals(1.0, meterRegistry.get("users.stats.drift").gauge().value());
+    }
+
+    @Test
+    void reconcile_WithoutLease_ShouldNotCountUsers() {
+        // Given
+        when(jobLease.tryAcquire(anyString(), any())).thenReturn(false);
+
+        // When
+        userStatsService.reconcile();
+
+        // Then
+        verifyNoInteractions(userRepository, userStatsRepository);
+    }
+
+    @Test
+    void getDailySignups_ShouldFillDaysWithoutSignups() {
+        // Given
+        when(userStatsRepository.findSignups("2024-03-01", "2024-03-03"))
+                .thenReturn(List.of(new DailySignups("2024-03-02", 4)));
+
+        // When
+        List<DailySignups> series = userStatsService.getDailySignups(
+                LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 3));
+
+        // Then
+        assertEquals(List.of(0L, 4L, 0L), series.stream().map(DailySignups::getCount).toList());
+    }
+
+    @Test
+    void getDailySignups_WhenRangeTooLong_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> userStatsService.getDailySignups(
+                LocalDate.of(2020, 1, 1), LocalDate.of(2024, 1, 1)));
+    }
+
+    private User createTestUser(String username, LocalDateTime createdAt) {
+        User user = new User(username, username + "@test.com", "password123", "Test", "User");
+        user.setCreatedAt(createdAt);
+        return user;
+    }
+}
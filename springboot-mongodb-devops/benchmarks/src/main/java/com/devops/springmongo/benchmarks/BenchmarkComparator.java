@@ -0,0 +1,83 @@
+package com.devops.springmongo.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files and exits non-zero when any benchmark
+ * is slower than the baseline by more than the threshold percentage.
+ * Throughput modes regress when the score drops; time modes when it rises.
+ *
+ * <pre>BenchmarkComparator &lt;baseline.json&gt; &lt;current.json&gt; &lt;threshold-percent&gt;</pre>
+ */
+public final class BenchmarkComparator {
+
+    private BenchmarkComparator() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: BenchmarkComparator <baseline.json> <current.json> <threshold-percent>");
+            System.exit(2);
+        }
+        File baselineFile = new File(args[0]);
+        if (!baselineFile.isFile()) {
+            System.err.println("Baseline not found: " + baselineFile
+                    + " (copy a previous target/jmh-result.json there or pass -Djmh.baseline=...)");
+            System.exit(2);
+        }
+
+        List<String> regressions = compare(read(baselineFile), read(new File(args[1])), Double.parseDouble(args[2]));
+        if (!regressions.isEmpty()) {
+            System.err.println(regressions.size() + " benchmark(s) regressed past " + args[2] + "%:");
+            regressions.forEach(regression -> System.err.println("  " + regression));
+            System.exit(1);
+        }
+        System.out.println("No benchmark regressed past " + args[2] + "%");
+    }
+
+    static List<String> compare(Map<String, Result> baseline, Map<String, Result> current, double thresholdPercent) {
+        List<String> regressions = new ArrayList<>();
+        current.forEach((key, result) -> {
+            Result previous = baseline.get(key);
+            if (previous == null) {
+                System.out.printf("%-80s %12.3f %s (new)%n", key, result.score, result.unit);
+                return;
+            }
+            double change = (result.score - previous.score) / previous.score * 100;
+            double slowdown = result.higherIsBetter() ? -change : change;
+            System.out.printf("%-80s %12.3f -> %12.3f %s (%+.1f%%)%n", key, previous.score, result.score, result.unit, change);
+            if (slowdown > thresholdPercent) {
+                regressions.add(String.format("%s: %.3f -> %.3f %s (%.1f%% slower)",
+                        key, previous.score, result.score, result.unit, slowdown));
+            }
+        });
+        return regressions;
+    }
+
+    static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            Map<String, String> params = new TreeMap<>();
+            run.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            String key = run.path("benchmark").asText() + (params.isEmpty() ? "" : params.toString());
+            JsonNode metric = run.path("primaryMetric");
+            results.put(key, new Result(run.path("mode").asText(), metric.path("score").asDouble(),
+                    metric.path("scoreUnit").asText()));
+        }
+        return results;
+    }
+
+    record Result(String mode, double score, String unit) {
+        boolean higherIsBetter() {
+            return "thrpt".equals(mode);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.devops.springmongo.benchmarks;
+
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.service.SearchTokenizer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared fixtures: realistic users and an ObjectMapper configured like the
+ * application's (see spring.jackson.* in application.properties).
+ */
+final class BenchmarkUsers {
+
+    private BenchmarkUsers() {}
+
+    static User user(int i) {
+        User user = new User("user" + i, "user" + i + "@example.com",
+                "$2a$10$7EqJtq98hPqEX7fNZaFWoO5uJd8y0jvNhC6oE9wx/6dlyF6bBJ4Ee", "Firstname" + i, "Lastname" + i);
+        user.setId(new ObjectId().toHexString());
+        user.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i));
+        user.setUpdatedAt(user.getCreatedAt());
+        user.setVersion(1L);
+        user.setSearchTokens(SearchTokenizer.tokensFor(user));
+        return user;
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(user(i));
+        }
+        return users;
+    }
+
+    static ObjectMapper objectMapper() {
+        return new ObjectMapper()
+                .findAndRegisterModules()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+}
@@ -0,0 +1,100 @@
+package com.devops.springmongo.benchmarks;
+
+import com.devops.springmongo.config.MongoReadRouting;
+import com.devops.springmongo.controller.UserController;
+import com.devops.springmongo.repository.InMemoryUserRepository;
+import com.devops.springmongo.service.UserBatchLoader;
+import com.devops.springmongo.service.UserCache;
+import com.devops.springmongo.service.UserService;
+import com.devops.springmongo.service.UserSortPlanner;
+import com.devops.springmongo.service.UserStatsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * The {@link UserController} request path (dispatch, argument binding,
+ * service, cache, field selection and JSON writing) over the in-memory
+ * repository, so only the application's own cost is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserControllerBenchmark {
+
+    private static final int USERS = 1_000;
+
+    private MockMvc mockMvc;
+    private String userId;
+
+    @Setup
+    public void setUp() {
+        InMemoryUserRepository userRepository = new InMemoryUserRepository();
+        userRepository.insert(BenchmarkUsers.users(USERS));
+        userId = userRepository.findByUsername("user0").orElseThrow().getId();
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        UserSortPlanner sortPlanner = new UserSortPlanner(meterRegistry,
+                new StaticListableBeanFactory().getBeanProvider(MongoTemplate.class),
+                List.of(), false, "reject", 2, Duration.ofSeconds(5), 10_000);
+
+        UserService userService = new UserService(meterRegistry);
+        ReflectionTestUtils.setField(userService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userService, "userCache",
+                new UserCache(meterRegistry, 10_000, Duration.ofMinutes(5)));
+        ReflectionTestUtils.setField(userService, "userBatchLoader",
+                new UserBatchLoader(userRepository, meterRegistry, false, Duration.ZERO, 100));
+        ReflectionTestUtils.setField(userService, "userSortPlanner", sortPlanner);
+
+        UserController controller = new UserController();
+        ReflectionTestUtils.setField(controller, "userService", userService);
+        ReflectionTestUtils.setField(controller, "userStatsService", new UserStatsService(meterRegistry));
+        ReflectionTestUtils.setField(controller, "readRouting",
+                new MongoReadRouting(meterRegistry, false, "secondaryPreferred", Duration.ofSeconds(90)));
+        ReflectionTestUtils.setField(controller, "userSortPlanner", sortPlanner);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(BenchmarkUsers.objectMapper()))
+                .build();
+    }
+
+    @Benchmark
+    public String getUserById() throws Exception {
+        return mockMvc.perform(get("/api/users/{id}", userId)).andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String getUsersPage() throws Exception {
+        return mockMvc.perform(get("/api/users").param("size", "20"))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String getUsersPageWithFields() throws Exception {
+        return mockMvc.perform(get("/api/users").param("size", "20").param("fields", "id,username,email"))
+                .andReturn().getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.devops.springmongo.benchmarks;
+
+import com.devops.springmongo.model.RawUserView;
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/** Jackson cost of the user response bodies and of reading a create request. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserJsonBenchmark {
+
+    private ObjectWriter writer;
+    private ObjectReader userReader;
+    private User user;
+    private byte[] userJson;
+
+    @State(Scope.Benchmark)
+    public static class PageState {
+
+        @Param({"10", "100"})
+        int pageSize;
+
+        Page<User> page;
+
+        Page<RawUserView> rawPage;
+
+        @Setup
+        public void setUp() {
+            page = new PageImpl<>(BenchmarkUsers.users(pageSize), PageRequest.of(0, pageSize), 10_000);
+            rawPage = page.map(user -> RawUserView.of(user, UserView.FIELDS));
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = BenchmarkUsers.objectMapper();
+        writer = objectMapper.writer();
+        userReader = objectMapper.readerFor(User.class);
+        user = BenchmarkUsers.user(0);
+        userJson = writer.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws Exception {
+        return writer.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] serializePage(PageState state) throws Exception {
+        return writer.writeValueAsBytes(state.page);
+    }
+
+    @Benchmark
+    public byte[] serializeRawPage(PageState state) throws Exception {
+        return writer.writeValueAsBytes(state.rawPage);
+    }
+
+    @Benchmark
+    public User deserializeUser() throws Exception {
+        return userReader.readValue(userJson);
+    }
+}
@@ -0,0 +1,72 @@
+package com.devops.springmongo.benchmarks;
+
+import com.devops.springmongo.model.User;
+import com.devops.springmongo.model.UserView;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spring Data entity mapping between {@link User} and its BSON document,
+ * the per-document cost every repository read and write pays.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserMappingBenchmark {
+
+    private MappingMongoConverter converter;
+    private User user;
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        user = BenchmarkUsers.user(0);
+        document = new Document();
+        converter.write(user, document);
+    }
+
+    @Benchmark
+    public Document writeUser() {
+        Document target = new Document();
+        converter.write(user, target);
+        return target;
+    }
+
+    @Benchmark
+    public User readUser() {
+        return converter.read(User.class, document);
+    }
+
+    @Benchmark
+    public UserView readUserView() {
+        return converter.read(UserView.class, document);
+    }
+}
@@ -8,7 +8,12 @@ db.createCollection('users');
 db.users.createIndex({ "username": 1 }, { unique: true });
 db.users.createIndex({ "email": 1 }, { unique: true });
 db.users.createIndex({ "createdAt": 1 });
+db.users.createIndex({ "createdAt": 1, "_id": 1 }, { name: "createdAt_id" });
+db.users.createIndex({ "updatedAt": 1, "_id": 1 }, { name: "updatedAt_id" });
 db.users.createIndex({ "active": 1 });
+db.users.createIndex({ "searchTokens": 1 });
+db.user_tombstones.createIndex({ "deletedAt": 1 }, { name: "deletedAt_ttl", expireAfterSeconds: 2592000 });
+db.user_tombstones.createIndex({ "deletedAt": 1, "_id": 1 }, { name: "deletedAt_id" });
 
 // Insert sample data
 db.users.insertMany([
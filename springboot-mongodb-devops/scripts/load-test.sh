@@ -0,0 +1,57 @@
+#!/bin/bash
+set -e
+
+# Compares max sustainable throughput and tail latency of the running
+# application across runtime modes (e.g. platform threads vs. virtual threads).
+# Start the application in the mode under test, then run:
+#   ./scripts/load-test.sh <label> [base-url]
+# Results are appended to load-test-results.csv for side-by-side comparison.
+
+LABEL=${1:?"Usage: $0 <label> [base-url]"}
+BASE_URL=${2:-http://localhost:8080}
+DURATION=${DURATION:-60s}
+CONCURRENCY_LEVELS=${CONCURRENCY_LEVELS:-"50 200 800 2000"}
+RESULTS_FILE=${RESULTS_FILE:-load-test-results.csv}
+
+GREEN='\033[0;32m'
+RED='\033[0;31m'
+NC='\033[0m'
+
+print_status() {
+    echo -e "${GREEN}[INFO]${NC} $1"
+}
+
+print_error() {
+    echo -e "${RED}[ERROR]${NC} $1"
+}
+
+if ! command -v hey &> /dev/null; then
+    print_error "hey is not installed (go install github.com/rakyll/hey@latest)"
+    exit 1
+fi
+
+if [ ! -f "$RESULTS_FILE" ]; then
+    echo "label,endpoint,concurrency,rps,p50_seconds,p99_seconds,non_2xx" > "$RESULTS_FILE"
+fi
+
+ENDPOINTS=(
+    "/api/users?page=0&size=20"
+    "/api/users/search?keyword=test"
+    "/api/users/stats"
+)
+
+for endpoint in "${ENDPOINTS[@]}"; do
+    for concurrency in $CONCURRENCY_LEVELS; do
+        print_status "[$LABEL] $endpoint with $concurrency concurrent clients for $DURATION"
+        output=$(hey -z "$DURATION" -c "$concurrency" "$BASE_URL$endpoint")
+
+        rps=$(echo "$output" | awk '/Requests\/sec/ {print $2}')
+        p50=$(echo "$output" | awk '/50% in/ {print $3}')
+        p99=$(echo "$output" | awk '/99% in/ {print $3}')
+        non_2xx=$(echo "$output" | awk '/\[[3-5][0-9][0-9]\]/ {sum += $2} END {print sum + 0}')
+
+        echo "$LABEL,$endpoint,$concurrency,$rps,$p50,$p99,$non_2xx" >> "$RESULTS_FILE"
+    done
+done
+
+print_status "Results appended to $RESULTS_FILE"
@@ -0,0 +1,54 @@
+#!/bin/bash
+set -e
+
+# Measures time to first request: from launching the JVM until
+# /actuator/health first answers 200. Runs the given command RUNS times and
+# prints each run and the median, in milliseconds.
+#   ./scripts/measure-startup.sh java -jar app/target/springboot-mongodb-microservice-1.0.0-exec.jar
+#   PORT=18080 RUNS=5 ./scripts/measure-startup.sh java @jvm.args @app.args
+# The port is passed as --server.port, so the command must accept Spring Boot arguments.
+
+PORT=${PORT:-18080}
+RUNS=${RUNS:-5}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-120}
+
+if [ $# -eq 0 ]; then
+    echo "Usage: $0 <command...>"
+    exit 1
+fi
+
+now_ms() {
+    date +%s%3N
+}
+
+results=()
+for run in $(seq 1 "$RUNS"); do
+    start=$(now_ms)
+    "$@" --server.port="$PORT" > /tmp/measure-startup.log 2>&1 &
+    pid=$!
+
+    elapsed=""
+    while [ $(( $(now_ms) - start )) -lt $(( TIMEOUT_SECONDS * 1000 )) ]; do
+        if curl -sf -o /dev/null "http://localhost:$PORT/actuator/health"; then
+            elapsed=$(( $(now_ms) - start ))
+            break
+        fi
+        if ! kill -0 "$pid" 2>/dev/null; then
+            break
+        fi
+        sleep 0.05
+    done
+
+    kill "$pid" 2>/dev/null || true
+    wait "$pid" 2>/dev/null || true
+
+    if [ -z "$elapsed" ]; then
+        echo "Run $run: no healthy response, see /tmp/measure-startup.log"
+        exit 1
+    fi
+    echo "Run $run: ${elapsed} ms"
+    results+=("$elapsed")
+done
+
+median=$(printf '%s\n' "${results[@]}" | sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }')
+echo "Median time to first request: ${median} ms"